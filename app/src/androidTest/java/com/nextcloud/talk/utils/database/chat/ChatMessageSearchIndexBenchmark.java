@@ -0,0 +1,146 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.chat;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.nextcloud.talk.models.database.Models;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import io.requery.android.sqlcipher.SqlCipherDatabaseSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+    Searching 100k indexed messages has to stay below 50 ms on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatMessageSearchIndexBenchmark {
+    private static final String TAG = "SearchIndexBenchmark";
+
+    private static final String DATABASE_NAME = "search_index_benchmark.sqlite";
+    private static final int MESSAGES_COUNT = 100000;
+    private static final int ROOMS_COUNT = 20;
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final int SEARCH_LIMIT = 20;
+    private static final int MEASURED_RUNS = 9;
+    private static final long MAX_SEARCH_TIME_MS = 50;
+
+    private Context context;
+    private SqlCipherDatabaseSource sqlCipherDatabaseSource;
+    private ChatMessageSearchIndex chatMessageSearchIndex;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+
+        sqlCipherDatabaseSource = new SqlCipherDatabaseSource(context, Models.DEFAULT, DATABASE_NAME,
+                "benchmark", 9);
+        SQLiteDatabase database = sqlCipherDatabaseSource.getWritableDatabase();
+        ChatMessageSearchIndex.openDatabase(database);
+        chatMessageSearchIndex = new ChatMessageSearchIndex(sqlCipherDatabaseSource);
+
+        // word n turns up about 1/n as often as the most common one, the fixed width keeps words from
+        // being prefixes of each other
+        Random random = new Random(42);
+        database.beginTransaction();
+        try {
+            ChatMessage chatMessage = new ChatMessage();
+            StringBuilder text = new StringBuilder();
+            for (int i = 1; i <= MESSAGES_COUNT; i++) {
+                text.setLength(0);
+                int words = 3 + random.nextInt(15);
+                for (int word = 0; word < words; word++) {
+                    text.append(String.format(Locale.ROOT, "w%04d ",
+                            (int) Math.pow(VOCABULARY_SIZE, random.nextDouble())));
+                }
+
+                chatMessage.setJsonMessageId(i);
+                chatMessage.setMessage(text.toString());
+                chatMessageSearchIndex.index(i, 1, "room" + (i % ROOMS_COUNT), chatMessage);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sqlCipherDatabaseSource.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void searchStaysBelowTarget() {
+        // a rare word, one in two of five messages, a prefix and two words that have to match together
+        List<String> queries = Arrays.asList("w1234", "w0002", "w012", "w0003 w0017");
+
+        for (String query : queries) {
+            assertEquals(SEARCH_LIMIT, chatMessageSearchIndex.search(1, query, SEARCH_LIMIT).size());
+
+            long[] searchTimes = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = System.nanoTime();
+                chatMessageSearchIndex.search(1, query, SEARCH_LIMIT);
+                searchTimes[i] = (System.nanoTime() - start) / 1000000;
+            }
+
+            Arrays.sort(searchTimes);
+            long medianSearchTime = searchTimes[MEASURED_RUNS / 2];
+            Log.d(TAG, "\"" + query + "\": " + medianSearchTime + " ms");
+            assertTrue("\"" + query + "\" took " + medianSearchTime + " ms",
+                    medianSearchTime < MAX_SEARCH_TIME_MS);
+        }
+    }
+
+    @Test
+    public void resultsAreRankedAndComplete() {
+        List<ChatMessageSearchIndex.SearchResult> searchResults = chatMessageSearchIndex.search(1, "w0003 w0017",
+                SEARCH_LIMIT);
+
+        for (int i = 1; i < searchResults.size(); i++) {
+            assertTrue(searchResults.get(i - 1).getScore() >= searchResults.get(i).getScore());
+        }
+        for (ChatMessageSearchIndex.SearchResult searchResult : searchResults) {
+            assertTrue(searchResult.getText().contains("w0003"));
+            assertTrue(searchResult.getText().contains("w0017"));
+        }
+
+        assertEquals(0, chatMessageSearchIndex.search(2, "w0002", SEARCH_LIMIT).size());
+    }
+}
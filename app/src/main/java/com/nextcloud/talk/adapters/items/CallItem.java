@@ -30,7 +30,6 @@ import android.widget.TextView;
 
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.R;
@@ -136,11 +135,8 @@ public class CallItem extends AbstractFlexibleItem<CallItem.RoomItemViewHolder>
                         .nc_description_more_menu_one_to_one), conversation.getDisplayName()));
 
                 if (!TextUtils.isEmpty(conversation.getName())) {
-                    GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(userEntity.getBaseUrl(),
-                            conversation.getName(), R.dimen.avatar_size), new LazyHeaders.Builder()
-                            .setHeader("Accept", "image/*")
-                            .setHeader("User-Agent", ApiUtils.getUserAgent())
-                            .build());
+                    GlideUrl glideUrl = ApiUtils.getGlideUrlForAvatarWithName(userEntity.getBaseUrl(),
+                            conversation.getName(), R.dimen.avatar_size);
 
                     GlideApp.with(NextcloudTalkApplication.getSharedApplication().getApplicationContext())
                             .asBitmap()
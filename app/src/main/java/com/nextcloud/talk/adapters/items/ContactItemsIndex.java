@@ -0,0 +1,132 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.adapters.items;
+
+import com.nextcloud.talk.models.database.UserEntity;
+import com.nextcloud.talk.models.json.participants.Participant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import eu.davidea.flexibleadapter.items.AbstractFlexibleItem;
+
+/*
+    Contacts keyed by the user id they're shared with, kept sorted by name within one section per
+    letter. Pages of sharees are merged in with binary search, so adding a page costs the same no
+    matter how many contacts were loaded before.
+ */
+public class ContactItemsIndex {
+    private static final Comparator<UserItem> NAME_COMPARATOR = (o1, o2) -> {
+        int result = o1.getModel().getName().compareToIgnoreCase(o2.getModel().getName());
+        return result != 0 ? result : o1.getModel().getUserId().compareTo(o2.getModel().getUserId());
+    };
+
+    private final Map<String, UserItem> itemsByUserId = new HashMap<>();
+    private final TreeMap<String, Section> sections = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<AbstractFlexibleItem> items = new ArrayList<>();
+    private boolean sectionsAdded;
+
+    /**
+     * Adds a contact unless one with the same user id is known already.
+     *
+     * @return the new item, or null if the contact was known
+     */
+    public UserItem add(Participant participant, UserEntity userEntity) {
+        if (itemsByUserId.containsKey(participant.getUserId())) {
+            return null;
+        }
+
+        String headerTitle = participant.getName().substring(0, 1).toUpperCase();
+        Section section = sections.get(headerTitle);
+        if (section == null) {
+            section = new Section(new UserHeaderItem(headerTitle));
+            sections.put(headerTitle, section);
+            sectionsAdded = true;
+        }
+
+        UserItem userItem = new UserItem(participant, userEntity, section.header);
+        int sectionPosition = -Collections.binarySearch(section.items, userItem, NAME_COMPARATOR) - 1;
+        section.items.add(sectionPosition, userItem);
+        items.add(getFirstPosition(section) + sectionPosition, userItem);
+        itemsByUserId.put(participant.getUserId(), userItem);
+
+        return userItem;
+    }
+
+    /**
+     * Position of the item among all contacts, leaving out the headers.
+     */
+    public int getPosition(UserItem userItem) {
+        Section section = sections.get(userItem.getHeader().getModel());
+        return getFirstPosition(section) + Collections.binarySearch(section.items, userItem, NAME_COMPARATOR);
+    }
+
+    /**
+     * Position of the item in an adapter that shows a header in front of every section.
+     */
+    public int getAdapterPosition(UserItem userItem) {
+        return getPosition(userItem) + sections.headMap(userItem.getHeader().getModel(), true).size();
+    }
+
+    public void sortByPosition(List<UserItem> userItems) {
+        Collections.sort(userItems, (o1, o2) -> Integer.compare(getPosition(o1), getPosition(o2)));
+    }
+
+    // true if a section was started since the last call, which means the adapter has to add a header too
+    public boolean takeSectionsAdded() {
+        boolean result = sectionsAdded;
+        sectionsAdded = false;
+        return result;
+    }
+
+    /**
+     * All contacts sorted by name. The list is kept up to date, hand out copies of it.
+     */
+    public List<AbstractFlexibleItem> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    private int getFirstPosition(Section section) {
+        int position = 0;
+        for (Section previousSection : sections.headMap(section.header.getModel(), false).values()) {
+            position += previousSection.items.size();
+        }
+
+        return position;
+    }
+
+    private static class Section {
+        private final UserHeaderItem header;
+        private final List<UserItem> items = new ArrayList<>();
+
+        Section(UserHeaderItem header) {
+            this.header = header;
+        }
+    }
+}
@@ -21,6 +21,7 @@
 package com.nextcloud.talk.adapters.items;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.graphics.Typeface;
 import android.text.Spannable;
 import android.text.SpannableString;
@@ -34,7 +35,6 @@ import android.widget.TextView;
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.R;
@@ -42,6 +42,7 @@ import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.database.UserEntity;
 import com.nextcloud.talk.models.json.rooms.Conversation;
 import com.nextcloud.talk.utils.ApiUtils;
+import com.nextcloud.talk.utils.glide.AvatarPreloadModelProvider;
 import com.nextcloud.talk.utils.glide.GlideApp;
 
 import org.apache.commons.lang3.StringUtils;
@@ -58,7 +59,7 @@ import eu.davidea.flexibleadapter.utils.FlexibleUtils;
 import eu.davidea.viewholders.FlexibleViewHolder;
 
 public class ConversationItem extends AbstractFlexibleItem<ConversationItem.ConversationItemViewHolder> implements
-        IFilterable<String> {
+        IFilterable<String>, AvatarPreloadModelProvider.AvatarItem {
 
 
     private Conversation conversation;
@@ -82,6 +83,19 @@ public class ConversationItem extends AbstractFlexibleItem<ConversationItem.Conv
         return conversation;
     }
 
+    // only one to one conversations show the avatar of a user
+    @Nullable
+    @Override
+    public GlideUrl getAvatarUrl() {
+        if (conversation.getType() != Conversation.RoomType.ROOM_TYPE_ONE_TO_ONE_CALL ||
+                TextUtils.isEmpty(conversation.getName())) {
+            return null;
+        }
+
+        return ApiUtils.getGlideUrlForAvatarWithName(userEntity.getBaseUrl(), conversation.getName(),
+                R.dimen.avatar_size);
+    }
+
     @Override
     public int hashCode() {
         return conversation.hashCode();
@@ -176,11 +190,8 @@ public class ConversationItem extends AbstractFlexibleItem<ConversationItem.Conv
                                     context.getResources().getColor(R.color.nc_grey));
                     holder.dialogLastMessageUserAvatar.setImageDrawable(drawable);
                 } else {
-                    GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(userEntity.getBaseUrl(),
-                            conversation.getLastMessage().getActorId(), R.dimen.small_item_height), new LazyHeaders.Builder()
-                            .setHeader("Accept", "image/*")
-                            .setHeader("User-Agent", ApiUtils.getUserAgent())
-                            .build());
+                    GlideUrl glideUrl = ApiUtils.getGlideUrlForAvatarWithName(userEntity.getBaseUrl(),
+                            conversation.getLastMessage().getActorId(), R.dimen.small_item_height);
 
                     GlideApp.with(context)
                             .asBitmap()
@@ -208,19 +219,7 @@ public class ConversationItem extends AbstractFlexibleItem<ConversationItem.Conv
             case ROOM_TYPE_ONE_TO_ONE_CALL:
 
                 if (!TextUtils.isEmpty(conversation.getName())) {
-                    GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(userEntity.getBaseUrl(),
-                            conversation.getName(), R.dimen.avatar_size), new LazyHeaders.Builder()
-                            .setHeader("Accept", "image/*")
-                            .setHeader("User-Agent", ApiUtils.getUserAgent())
-                            .build());
-
-                    GlideApp.with(context)
-                            .asBitmap()
-                            .diskCacheStrategy(DiskCacheStrategy.NONE)
-                            .load(glideUrl)
-                            .centerInside()
-                            .override(avatarSize, avatarSize)
-                            .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+                    AvatarPreloadModelProvider.getAvatarRequest(context, getAvatarUrl(), avatarSize)
                             .into(holder.dialogAvatar);
 
                 } else {
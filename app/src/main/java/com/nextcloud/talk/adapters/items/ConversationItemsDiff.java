@@ -0,0 +1,173 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.adapters.items;
+
+import com.nextcloud.talk.models.json.rooms.Conversation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.davidea.flexibleadapter.FlexibleAdapter;
+import eu.davidea.flexibleadapter.items.AbstractFlexibleItem;
+
+/*
+    The difference between two snapshots of the conversation list, keyed by room token.
+    It's calculated off the main thread. Items of rooms that didn't change are carried over to
+    the new snapshot, so dispatching only touches rows that were removed, moved, inserted or changed.
+ */
+public class ConversationItemsDiff {
+    private static final int OPERATION_REMOVE = 0;
+    private static final int OPERATION_MOVE = 1;
+    private static final int OPERATION_INSERT = 2;
+    private static final int OPERATION_UPDATE = 3;
+
+    private final List<AbstractFlexibleItem> items;
+    private final List<Operation> operations;
+
+    private ConversationItemsDiff(List<AbstractFlexibleItem> items, List<Operation> operations) {
+        this.items = items;
+        this.operations = operations;
+    }
+
+    public static ConversationItemsDiff calculate(List<AbstractFlexibleItem> oldItems,
+                                                  List<AbstractFlexibleItem> freshItems) {
+        Map<String, AbstractFlexibleItem> oldItemsByToken = new HashMap<>();
+        for (AbstractFlexibleItem oldItem : oldItems) {
+            oldItemsByToken.put(getConversation(oldItem).getToken(), oldItem);
+        }
+
+        List<AbstractFlexibleItem> items = new ArrayList<>(freshItems.size());
+        Set<String> tokens = new HashSet<>();
+        AbstractFlexibleItem oldItem;
+        for (AbstractFlexibleItem freshItem : freshItems) {
+            Conversation conversation = getConversation(freshItem);
+            tokens.add(conversation.getToken());
+
+            oldItem = oldItemsByToken.get(conversation.getToken());
+            if (oldItem != null && oldItem.getClass() == freshItem.getClass() &&
+                    getConversation(oldItem).equals(conversation)) {
+                items.add(oldItem);
+            } else {
+                items.add(freshItem);
+            }
+        }
+
+        List<Operation> operations = new ArrayList<>();
+        List<String> currentTokens = new ArrayList<>(oldItems.size());
+        for (AbstractFlexibleItem item : oldItems) {
+            currentTokens.add(getConversation(item).getToken());
+        }
+
+        for (int i = currentTokens.size() - 1; i >= 0; i--) {
+            if (!tokens.contains(currentTokens.get(i))) {
+                operations.add(new Operation(OPERATION_REMOVE, i, i, null));
+                currentTokens.remove(i);
+            }
+        }
+
+        AbstractFlexibleItem item;
+        String token;
+        for (int i = 0; i < items.size(); i++) {
+            item = items.get(i);
+            token = getConversation(item).getToken();
+
+            if (i < currentTokens.size() && currentTokens.get(i).equals(token)) {
+                if (item != oldItemsByToken.get(token)) {
+                    operations.add(new Operation(OPERATION_UPDATE, i, i, item));
+                }
+                continue;
+            }
+
+            int fromPosition = currentTokens.subList(i, currentTokens.size()).indexOf(token);
+            if (fromPosition != -1) {
+                fromPosition += i;
+                operations.add(new Operation(OPERATION_MOVE, fromPosition, i, null));
+                currentTokens.add(i, currentTokens.remove(fromPosition));
+
+                if (item != oldItemsByToken.get(token)) {
+                    operations.add(new Operation(OPERATION_UPDATE, i, i, item));
+                }
+            } else {
+                operations.add(new Operation(OPERATION_INSERT, i, i, item));
+                currentTokens.add(i, token);
+            }
+        }
+
+        return new ConversationItemsDiff(Collections.unmodifiableList(items), operations);
+    }
+
+    private static Conversation getConversation(AbstractFlexibleItem item) {
+        if (item instanceof ConversationItem) {
+            return ((ConversationItem) item).getModel();
+        } else {
+            return ((CallItem) item).getModel();
+        }
+    }
+
+    public List<AbstractFlexibleItem> getItems() {
+        return items;
+    }
+
+    public boolean hasChanges() {
+        return operations.size() > 0;
+    }
+
+    // expects the adapter to show exactly the old snapshot, unfiltered
+    public void dispatchTo(FlexibleAdapter<AbstractFlexibleItem> adapter) {
+        for (Operation operation : operations) {
+            switch (operation.type) {
+                case OPERATION_REMOVE:
+                    adapter.removeItem(operation.fromPosition);
+                    break;
+                case OPERATION_MOVE:
+                    adapter.moveItem(operation.fromPosition, operation.toPosition);
+                    break;
+                case OPERATION_INSERT:
+                    adapter.addItem(operation.toPosition, operation.item);
+                    break;
+                case OPERATION_UPDATE:
+                    adapter.updateItem(operation.toPosition, operation.item, null);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static class Operation {
+        private final int type;
+        private final int fromPosition;
+        private final int toPosition;
+        private final AbstractFlexibleItem item;
+
+        Operation(int type, int fromPosition, int toPosition, AbstractFlexibleItem item) {
+            this.type = type;
+            this.fromPosition = fromPosition;
+            this.toPosition = toPosition;
+            this.item = item;
+        }
+    }
+}
@@ -24,7 +24,6 @@ import android.view.View;
 
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.R;
@@ -100,11 +99,8 @@ public class MentionAutocompleteItem extends AbstractFlexibleItem<UserItem.UserI
             holder.contactMentionId.setText("@" + userId);
         }
 
-        GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(currentUser.getBaseUrl(),
-                userId, R.dimen.avatar_size), new LazyHeaders.Builder()
-                .setHeader("Accept", "image/*")
-                .setHeader("User-Agent", ApiUtils.getUserAgent())
-                .build());
+        GlideUrl glideUrl = ApiUtils.getGlideUrlForAvatarWithName(currentUser.getBaseUrl(),
+                userId, R.dimen.avatar_size);
 
         int avatarSize = Math.round(NextcloudTalkApplication
                 .getSharedApplication().getResources().getDimension(R.dimen.avatar_size));
@@ -23,17 +23,13 @@ package com.nextcloud.talk.adapters.items;
 import android.view.View;
 import android.widget.TextView;
 
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
-import com.bumptech.glide.load.resource.bitmap.CircleCrop;
-import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.database.UserEntity;
 import com.nextcloud.talk.models.json.participants.Participant;
 import com.nextcloud.talk.utils.ApiUtils;
-import com.nextcloud.talk.utils.glide.GlideApp;
+import com.nextcloud.talk.utils.glide.AvatarPreloadModelProvider;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -52,7 +48,8 @@ import eu.davidea.flipview.FlipView;
 import eu.davidea.viewholders.FlexibleViewHolder;
 
 public class UserItem extends AbstractFlexibleItem<UserItem.UserItemViewHolder> implements
-        ISectionable<UserItem.UserItemViewHolder, UserHeaderItem>, IFilterable<String> {
+        ISectionable<UserItem.UserItemViewHolder, UserHeaderItem>, IFilterable<String>,
+        AvatarPreloadModelProvider.AvatarItem {
 
     private Participant participant;
     private UserEntity userEntity;
@@ -93,6 +90,12 @@ public class UserItem extends AbstractFlexibleItem<UserItem.UserItemViewHolder>
         return userEntity;
     }
 
+    @Override
+    public GlideUrl getAvatarUrl() {
+        return ApiUtils.getGlideUrlForAvatarWithName(userEntity.getBaseUrl(), participant.getUserId(),
+                R.dimen.avatar_size);
+    }
+
     public void flipItemSelection() {
         flipView.flip(!flipView.isFlipped());
     }
@@ -122,22 +125,11 @@ public class UserItem extends AbstractFlexibleItem<UserItem.UserItemViewHolder>
             holder.contactDisplayName.setText(participant.getName());
         }
 
-        GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(userEntity.getBaseUrl(),
-                participant.getUserId(), R.dimen.avatar_size), new LazyHeaders.Builder()
-                .setHeader("Accept", "image/*")
-                .setHeader("User-Agent", ApiUtils.getUserAgent())
-                .build());
-
         int avatarSize = Math.round(NextcloudTalkApplication
                 .getSharedApplication().getResources().getDimension(R.dimen.avatar_size));
 
-        GlideApp.with(NextcloudTalkApplication.getSharedApplication().getApplicationContext())
-                .asBitmap()
-                .diskCacheStrategy(DiskCacheStrategy.NONE)
-                .load(glideUrl)
-                .centerInside()
-                .override(avatarSize, avatarSize)
-                .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+        AvatarPreloadModelProvider.getAvatarRequest(NextcloudTalkApplication.getSharedApplication()
+                .getApplicationContext(), getAvatarUrl(), avatarSize)
                 .into(holder.avatarFlipView.getFrontImageView());
     }
 
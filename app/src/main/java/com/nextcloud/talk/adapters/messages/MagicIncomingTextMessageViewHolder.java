@@ -27,10 +27,7 @@ import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.support.v4.view.ViewCompat;
-import android.text.Spannable;
-import android.text.SpannableString;
 import android.text.TextUtils;
-import android.text.style.RelativeSizeSpan;
 import android.view.View;
 import android.widget.TextView;
 
@@ -41,14 +38,10 @@ import com.nextcloud.talk.R;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.json.chat.ChatMessage;
 import com.nextcloud.talk.utils.DisplayUtils;
-import com.nextcloud.talk.utils.EmojiDetection;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.stfalcon.chatkit.messages.MessageHolders;
 import com.stfalcon.chatkit.utils.ShapeImageView;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax.inject.Inject;
 
 import autodagger.AutoInjector;
@@ -121,50 +114,24 @@ public class MagicIncomingTextMessageViewHolder
             messageAuthor.setVisibility(View.VISIBLE);
         }
 
-        HashMap<String, HashMap<String, String>> messageParameters = message.getMessageParameters();
+        PreparedMessageCache.PreparedMessage preparedMessage = PreparedMessageCache.getInstance().get(message);
 
         Context context = NextcloudTalkApplication.getSharedApplication().getApplicationContext();
-        itemView.setSelected(false);
-        messageTimeView.setTextColor(context.getResources().getColor(R.color.warm_grey_four));
+        itemView.setSelected(preparedMessage.isSingleEmoji());
+        messageTimeView.setTextColor(resources.getColor(R.color.warm_grey_four));
 
         FlexboxLayout.LayoutParams layoutParams = (FlexboxLayout.LayoutParams) messageTimeView.getLayoutParams();
-        layoutParams.setWrapBefore(false);
-
-        Spannable messageString = new SpannableString(message.getText());
-
-        if (messageParameters != null && messageParameters.size() > 0) {
-            for (String key : messageParameters.keySet()) {
-                Map<String, String> individualHashMap = message.getMessageParameters().get(key);
-                if (individualHashMap.get("type").equals("user") || individualHashMap.get("type").equals("guest")) {
-                    int color;
-
-                    if (individualHashMap.get("id").equals(message.getActiveUserId())) {
-                        color = NextcloudTalkApplication.getSharedApplication().getResources().getColor(R.color
-                                .nc_incoming_text_mention_you);
-                    } else {
-                        color = NextcloudTalkApplication.getSharedApplication().getResources().getColor(R.color
-                                .nc_incoming_text_mention_others);
-                    }
-
-                    messageString = DisplayUtils.searchAndColor(messageText.getText().toString(),
-                            messageString, "@" + individualHashMap.get("name"), color);
-                } else if (individualHashMap.get("type").equals("file")) {
-                    itemView.setOnClickListener(v -> {
-                        Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(individualHashMap.get("link")));
-                        context.startActivity(browserIntent);
-                    });
-
-                }
-            }
-
-        } else if (EmojiDetection.isMessageWithSingleEmoticonOnly(context, message.getText())) {
-            messageString.setSpan(new RelativeSizeSpan(2.5f), 0, messageString.length(),
-                    Spannable.SPAN_INCLUSIVE_EXCLUSIVE);
-            layoutParams.setWrapBefore(true);
-            itemView.setSelected(true);
+        layoutParams.setWrapBefore(preparedMessage.isSingleEmoji());
+
+        String fileLink;
+        if ((fileLink = preparedMessage.getFileLink()) != null) {
+            itemView.setOnClickListener(v -> {
+                Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(fileLink));
+                context.startActivity(browserIntent);
+            });
         }
 
         messageTimeView.setLayoutParams(layoutParams);
-        messageText.setText(messageString);
+        messageText.setText(preparedMessage.getText());
     }
-}
\ No newline at end of file
+}
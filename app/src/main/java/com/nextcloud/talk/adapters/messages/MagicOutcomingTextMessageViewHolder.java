@@ -26,9 +26,6 @@ import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.support.v4.view.ViewCompat;
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.style.RelativeSizeSpan;
 import android.view.View;
 import android.widget.TextView;
 
@@ -38,13 +35,9 @@ import com.nextcloud.talk.R;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.json.chat.ChatMessage;
 import com.nextcloud.talk.utils.DisplayUtils;
-import com.nextcloud.talk.utils.EmojiDetection;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.stfalcon.chatkit.messages.MessageHolders;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax.inject.Inject;
 
 import autodagger.AutoInjector;
@@ -76,45 +69,29 @@ public class MagicOutcomingTextMessageViewHolder extends MessageHolders.Outcomin
     public void onBind(ChatMessage message) {
         super.onBind(message);
 
-        HashMap<String, HashMap<String, String>> messageParameters = message.getMessageParameters();
-
-        Spannable messageString = new SpannableString(message.getText());
+        PreparedMessageCache.PreparedMessage preparedMessage = PreparedMessageCache.getInstance().get(message);
 
         Context context = NextcloudTalkApplication.getSharedApplication().getApplicationContext();
-        itemView.setSelected(false);
-        messageTimeView.setTextColor(context.getResources().getColor(R.color.white60));
+        Resources resources = context.getResources();
+        itemView.setSelected(preparedMessage.isSingleEmoji());
 
         FlexboxLayout.LayoutParams layoutParams = (FlexboxLayout.LayoutParams) messageTimeView.getLayoutParams();
-        layoutParams.setWrapBefore(false);
-
-        if (messageParameters != null && messageParameters.size() > 0) {
-            for (String key : messageParameters.keySet()) {
-                Map<String, String> individualHashMap = message.getMessageParameters().get(key);
-                if (individualHashMap.get("type").equals("user") || individualHashMap.get("type").equals("guest")) {
-                    if (!individualHashMap.get("id").equals(message.getActiveUserId())) {
-                        messageString = DisplayUtils.searchAndColor(messageText.getText().toString(),
-                                messageString, "@" + individualHashMap.get("name"), NextcloudTalkApplication
-                                        .getSharedApplication().getResources().getColor(R.color.nc_outcoming_text_default));
-                    }
-
-                } else if (individualHashMap.get("type").equals("file")) {
-                    itemView.setOnClickListener(v -> {
-                        Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(individualHashMap.get("link")));
-                        context.startActivity(browserIntent);
-                    });
-
-                }
-            }
-
-        } else if (EmojiDetection.isMessageWithSingleEmoticonOnly(context, message.getText())) {
-            messageString.setSpan(new RelativeSizeSpan(2.5f), 0, messageString.length(),
-                    Spannable.SPAN_INCLUSIVE_EXCLUSIVE);
-            layoutParams.setWrapBefore(true);
-            messageTimeView.setTextColor(context.getResources().getColor(R.color.warm_grey_four));
-            itemView.setSelected(true);
+        layoutParams.setWrapBefore(preparedMessage.isSingleEmoji());
+
+        if (preparedMessage.isSingleEmoji()) {
+            messageTimeView.setTextColor(resources.getColor(R.color.warm_grey_four));
+        } else {
+            messageTimeView.setTextColor(resources.getColor(R.color.white60));
+        }
+
+        String fileLink;
+        if ((fileLink = preparedMessage.getFileLink()) != null) {
+            itemView.setOnClickListener(v -> {
+                Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(fileLink));
+                context.startActivity(browserIntent);
+            });
         }
 
-        Resources resources = NextcloudTalkApplication.getSharedApplication().getResources();
         if (message.isGrouped()) {
             Drawable bubbleDrawable =  DisplayUtils.getMessageSelector(resources.getColor(R.color.colorPrimary),
                     resources.getColor(R.color.transparent),
@@ -128,6 +105,6 @@ public class MagicOutcomingTextMessageViewHolder extends MessageHolders.Outcomin
         }
 
         messageTimeView.setLayoutParams(layoutParams);
-        messageText.setText(messageString);
+        messageText.setText(preparedMessage.getText());
     }
 }
@@ -26,8 +26,6 @@ import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.support.v4.view.ViewCompat;
-import android.text.Spannable;
-import android.text.SpannableString;
 import android.view.View;
 
 import com.nextcloud.talk.R;
@@ -36,8 +34,6 @@ import com.nextcloud.talk.models.json.chat.ChatMessage;
 import com.nextcloud.talk.utils.DisplayUtils;
 import com.stfalcon.chatkit.messages.MessageHolders;
 
-import java.util.Map;
-
 public class MagicSystemMessageViewHolder extends MessageHolders.IncomingTextMessageViewHolder<ChatMessage> {
 
     public MagicSystemMessageViewHolder(View itemView) {
@@ -55,36 +51,17 @@ public class MagicSystemMessageViewHolder extends MessageHolders.IncomingTextMes
                 resources.getColor(R.color.white_two), R.drawable.shape_grouped_incoming_message);
         ViewCompat.setBackground(bubble, bubbleDrawable);
 
-        Spannable messageString = new SpannableString(message.getText());
+        PreparedMessageCache.PreparedMessage preparedMessage = PreparedMessageCache.getInstance().get(message);
 
         Context context = NextcloudTalkApplication.getSharedApplication().getApplicationContext();
-        if (message.getMessageParameters() != null && message.getMessageParameters().size() > 0) {
-            for (String key : message.getMessageParameters().keySet()) {
-                Map<String, String> individualHashMap = message.getMessageParameters().get(key);
-                int color;
-                if (individualHashMap.get("type").equals("user") || individualHashMap.get("type").equals("guest")) {
-
-                    if (individualHashMap.get("id").equals(message.getActiveUserId())) {
-                        color = context.getResources().getColor(R.color.nc_incoming_text_mention_you);
-                    } else {
-                        color = context.getResources().getColor(R.color.nc_incoming_text_mention_others);
-                    }
-
-                    messageString = DisplayUtils.searchAndColor(message.getText(),
-                            messageString, "@" + individualHashMap.get("name"), color);
-                } else if (individualHashMap.get("type").equals("file")) {
-                    color = context.getResources().getColor(R.color
-                            .colorPrimary);
-                    messageString = DisplayUtils.searchAndColor(message.getText(), messageString, individualHashMap
-                            .get("name"), color);
-                    itemView.setOnClickListener(v -> {
-                        Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(individualHashMap.get("link")));
-                        context.startActivity(browserIntent);
-                    });
-                }
-            }
+        String fileLink;
+        if ((fileLink = preparedMessage.getFileLink()) != null) {
+            itemView.setOnClickListener(v -> {
+                Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(fileLink));
+                context.startActivity(browserIntent);
+            });
         }
 
-        text.setText(messageString);
+        text.setText(preparedMessage.getText());
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.adapters.messages;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.support.annotation.Nullable;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.RelativeSizeSpan;
+import android.util.LruCache;
+
+import com.nextcloud.talk.R;
+import com.nextcloud.talk.application.NextcloudTalkApplication;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+import com.nextcloud.talk.models.json.chat.ParsedMessage;
+import com.nextcloud.talk.utils.DisplayUtils;
+import com.nextcloud.talk.utils.EmojiDetection;
+
+import java.util.List;
+
+/*
+    Holds the final spannable text and layout decisions for chat messages so the view holders only have
+    to apply them. Messages are prepared off the main thread as soon as they arrive; anything that
+    wasn't prepared yet is prepared on first bind.
+ */
+public class PreparedMessageCache {
+    private static final int MAX_PREPARED_MESSAGES = 500;
+
+    private static final PreparedMessageCache holder = new PreparedMessageCache();
+
+    private final LruCache<String, PreparedMessage> preparedMessages = new LruCache<>(MAX_PREPARED_MESSAGES);
+
+    public static PreparedMessageCache getInstance() {
+        return holder;
+    }
+
+    public void prepare(List<ChatMessage> chatMessages) {
+        for (ChatMessage chatMessage : chatMessages) {
+            get(chatMessage);
+        }
+    }
+
+    public PreparedMessage get(ChatMessage chatMessage) {
+        String key = getKey(chatMessage);
+        PreparedMessage preparedMessage = preparedMessages.get(key);
+
+        if (preparedMessage == null) {
+            preparedMessage = prepareMessage(chatMessage);
+            preparedMessages.put(key, preparedMessage);
+        }
+
+        return preparedMessage;
+    }
+
+    public void clear() {
+        preparedMessages.evictAll();
+    }
+
+    private String getKey(ChatMessage chatMessage) {
+        return chatMessage.getBaseUrl() + "#" + chatMessage.getActiveUserId() + "#" + chatMessage.getJsonMessageId();
+    }
+
+    private PreparedMessage prepareMessage(ChatMessage chatMessage) {
+        Context context = NextcloudTalkApplication.getSharedApplication().getApplicationContext();
+        Resources resources = context.getResources();
+
+        ParsedMessage parsedMessage = chatMessage.getParsedMessage();
+        Spannable messageString = new SpannableString(parsedMessage.getText() != null ? parsedMessage.getText() : "");
+        boolean isSystemMessage = !TextUtils.isEmpty(chatMessage.getSystemMessage());
+        boolean isOutgoing = !isSystemMessage && chatMessage.getActorId() != null &&
+                chatMessage.getActorId().equals(chatMessage.getActiveUserId());
+        boolean isSingleEmoji = false;
+        String fileLink = null;
+
+        for (ParsedMessage.Span span : parsedMessage.getSpans()) {
+            if (span.isMention()) {
+                boolean isMentioningMe = span.getId() != null && span.getId().equals(chatMessage.getActiveUserId());
+                if (isOutgoing) {
+                    if (!isMentioningMe) {
+                        DisplayUtils.colorSpan(messageString, span.getStart(), span.getEnd(),
+                                resources.getColor(R.color.nc_outcoming_text_default));
+                    }
+                } else if (isMentioningMe) {
+                    DisplayUtils.colorSpan(messageString, span.getStart(), span.getEnd(),
+                            resources.getColor(R.color.nc_incoming_text_mention_you));
+                } else {
+                    DisplayUtils.colorSpan(messageString, span.getStart(), span.getEnd(),
+                            resources.getColor(R.color.nc_incoming_text_mention_others));
+                }
+            } else if (span.isFile()) {
+                if (isSystemMessage) {
+                    DisplayUtils.colorSpan(messageString, span.getStart(), span.getEnd(),
+                            resources.getColor(R.color.colorPrimary));
+                }
+                fileLink = span.getLink();
+            }
+        }
+
+        if (!isSystemMessage && !parsedMessage.hasSpans() &&
+                EmojiDetection.isMessageWithSingleEmoticonOnly(context, parsedMessage.getText())) {
+            messageString.setSpan(new RelativeSizeSpan(2.5f), 0, messageString.length(),
+                    Spannable.SPAN_INCLUSIVE_EXCLUSIVE);
+            isSingleEmoji = true;
+        }
+
+        return new PreparedMessage(messageString, isSingleEmoji, fileLink);
+    }
+
+    public static class PreparedMessage {
+        private final Spanned text;
+        private final boolean singleEmoji;
+        private final String fileLink;
+
+        PreparedMessage(Spanned text, boolean singleEmoji, @Nullable String fileLink) {
+            this.text = text;
+            this.singleEmoji = singleEmoji;
+            this.fileLink = fileLink;
+        }
+
+        public Spanned getText() {
+            return text;
+        }
+
+        public boolean isSingleEmoji() {
+            return singleEmoji;
+        }
+
+        @Nullable
+        public String getFileLink() {
+            return fileLink;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.api;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.MediaType;
+
+/*
+    Avatars kept in memory per server, user and size bucket (which is what the avatar URL is made of),
+    next to the avatars the server doesn't have. Also tracks which avatars are being fetched right
+    now, so that every list row showing the same user waits for one request.
+ */
+public class AvatarCache {
+    // small bitmaps, a few kilobytes each
+    private static final int MAX_CACHED_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_MISSING_AVATARS = 512;
+    // avatars barely ever change, refresh them in the background once they're this old
+    private static final long FRESH_MS = 10 * 60 * 1000;
+    private static final long MISSING_TTL_MS = 10 * 60 * 1000;
+
+    private final LruCache<String, Entry> entries = new LruCache<String, Entry>(MAX_CACHED_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.body.length;
+        }
+    };
+
+    // key to the time the 404 stops counting
+    private final LruCache<String, Long> missingAvatars = new LruCache<>(MAX_MISSING_AVATARS);
+
+    private final ConcurrentHashMap<String, Fetch> fetches = new ConcurrentHashMap<>();
+
+    @Nullable
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    void put(String key, Entry entry) {
+        missingAvatars.remove(key);
+        entries.put(key, entry);
+    }
+
+    boolean isMissing(String key) {
+        Long expiresAt = missingAvatars.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+
+        if (expiresAt < SystemClock.elapsedRealtime()) {
+            missingAvatars.remove(key);
+            return false;
+        }
+
+        return true;
+    }
+
+    void markMissing(String key) {
+        entries.remove(key);
+        missingAvatars.put(key, SystemClock.elapsedRealtime() + MISSING_TTL_MS);
+    }
+
+    /**
+     * Registers a fetch of the avatar, unless one is running already.
+     *
+     * @return the running fetch to wait for, or null if the caller should fetch and finish it
+     */
+    @Nullable
+    Fetch startFetch(String key, Fetch fetch) {
+        return fetches.putIfAbsent(key, fetch);
+    }
+
+    void finishFetch(String key, Fetch fetch, @Nullable Entry entry) {
+        fetch.entry = entry;
+        fetches.remove(key, fetch);
+        fetch.latch.countDown();
+    }
+
+    // forgets every avatar, e.g. once an account is removed
+    public void clear() {
+        entries.evictAll();
+        missingAvatars.evictAll();
+    }
+
+    static class Fetch {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Entry entry;
+
+        // the fetched avatar, or null if it failed or doesn't exist
+        @Nullable
+        Entry await() throws InterruptedException {
+            latch.await();
+            return entry;
+        }
+    }
+
+    static class Entry {
+        // 200 for uploaded avatars, 201 for the ones the server generated
+        final int code;
+        @Nullable
+        final MediaType contentType;
+        final byte[] body;
+        private final long storedAt = SystemClock.elapsedRealtime();
+        volatile boolean isRevalidating;
+
+        Entry(int code, @Nullable MediaType contentType, byte[] body) {
+            this.code = code;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        boolean isStale() {
+            return SystemClock.elapsedRealtime() - storedAt > FRESH_MS;
+        }
+    }
+}
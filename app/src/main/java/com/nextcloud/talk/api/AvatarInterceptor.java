@@ -0,0 +1,171 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.api;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+    Answers avatar requests from the AvatarCache. Known avatars come back right away and get
+    refreshed in the background once stale, avatars the server reported missing aren't asked for
+    again until their negative entry expires, and concurrent requests for one avatar share a fetch.
+ */
+public class AvatarInterceptor implements Interceptor {
+    private static final String TAG = "AvatarInterceptor";
+
+    private static final String AVATAR_PATH = "/index.php/avatar/";
+    // anything bigger isn't a list avatar, leave it to the disk cache
+    private static final long MAX_AVATAR_BYTES = 256 * 1024;
+
+    private final AvatarCache avatarCache;
+    private volatile OkHttpClient httpClient;
+
+    public AvatarInterceptor(AvatarCache avatarCache) {
+        this.avatarCache = avatarCache;
+    }
+
+    // the client this interceptor belongs to, used for background refreshes
+    public void setHttpClient(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+
+        if (!"GET".equals(request.method()) || !request.url().encodedPath().contains(AVATAR_PATH)) {
+            return chain.proceed(request);
+        }
+
+        String key = request.url().toString();
+        boolean isRefresh = request.cacheControl().noCache();
+
+        if (!isRefresh) {
+            if (avatarCache.isMissing(key)) {
+                return getNotFoundResponse(request);
+            }
+
+            AvatarCache.Entry entry = avatarCache.get(key);
+            if (entry != null) {
+                if (entry.isStale() && !entry.isRevalidating) {
+                    refresh(request, entry);
+                }
+                return getCachedResponse(request, entry);
+            }
+        }
+
+        AvatarCache.Fetch fetch = new AvatarCache.Fetch();
+        AvatarCache.Fetch runningFetch = avatarCache.startFetch(key, fetch);
+        if (runningFetch != null) {
+            try {
+                AvatarCache.Entry entry = runningFetch.await();
+                if (entry != null) {
+                    return getCachedResponse(request, entry);
+                } else if (avatarCache.isMissing(key)) {
+                    return getNotFoundResponse(request);
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for avatar");
+            }
+
+            return chain.proceed(request);
+        }
+
+        AvatarCache.Entry entry = null;
+        try {
+            Response response = chain.proceed(request);
+
+            if (response.code() == 404) {
+                avatarCache.markMissing(key);
+                return response;
+            }
+
+            ResponseBody peekedBody;
+            if (!response.isSuccessful() || response.body() == null ||
+                    (peekedBody = response.peekBody(MAX_AVATAR_BYTES + 1)).contentLength() > MAX_AVATAR_BYTES) {
+                return response;
+            }
+
+            entry = new AvatarCache.Entry(response.code(), response.body().contentType(), peekedBody.bytes());
+            avatarCache.put(key, entry);
+            return response;
+        } finally {
+            avatarCache.finishFetch(key, fetch, entry);
+        }
+    }
+
+    private void refresh(Request request, AvatarCache.Entry entry) {
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            return;
+        }
+
+        entry.isRevalidating = true;
+        client.newCall(request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build())
+                .enqueue(new Callback() {
+                    @Override
+                    public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                        entry.isRevalidating = false;
+                        Log.d(TAG, "Failed to refresh avatar");
+                    }
+
+                    @Override
+                    public void onResponse(@NonNull Call call, @NonNull Response response) {
+                        // a successful refresh replaced the entry already
+                        entry.isRevalidating = false;
+                        response.close();
+                    }
+                });
+    }
+
+    private Response getCachedResponse(Request request, AvatarCache.Entry entry) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(entry.code)
+                .message("OK")
+                .body(ResponseBody.create(entry.contentType, entry.body))
+                .build();
+    }
+
+    private Response getNotFoundResponse(Request request) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(404)
+                .message("Not Found")
+                .body(ResponseBody.create(MediaType.parse("text/plain"), ""))
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.api;
+
+import com.nextcloud.talk.models.database.UserEntity;
+
+import java.net.CookieManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.JavaNetCookieJar;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+/*
+    Hands out one NcApi per user, each with its own cookie jar so that sessions of different
+    accounts never mix. The clients are derived from the shared OkHttpClient and keep using its
+    connection pool and dispatcher, so background jobs reuse warm connections.
+ */
+public class NcApiProvider {
+    private final Retrofit retrofit;
+    private final OkHttpClient okHttpClient;
+
+    private final Map<Long, NcApi> ncApiByUserId = new ConcurrentHashMap<>();
+
+    public NcApiProvider(Retrofit retrofit, OkHttpClient okHttpClient) {
+        this.retrofit = retrofit;
+        this.okHttpClient = okHttpClient;
+    }
+
+    public NcApi getNcApi(UserEntity userEntity) {
+        return getNcApi(userEntity.getId());
+    }
+
+    public NcApi getNcApi(long userId) {
+        NcApi ncApi = ncApiByUserId.get(userId);
+        if (ncApi == null) {
+            ncApi = retrofit.newBuilder().client(okHttpClient.newBuilder().cookieJar(new
+                    JavaNetCookieJar(new CookieManager())).build()).build().create(NcApi.class);
+
+            NcApi existingNcApi = ncApiByUserId.putIfAbsent(userId, ncApi);
+            if (existingNcApi != null) {
+                ncApi = existingNcApi;
+            }
+        }
+
+        return ncApi;
+    }
+
+    public void evict(long userId) {
+        ncApiByUserId.remove(userId);
+    }
+
+    public void clear() {
+        ncApiByUserId.clear();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.api;
+
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/*
+    OCS responses aren't cacheable, so OkHttp's cache never serves them. For the endpoints that get
+    refreshed all the time this remembers the validators and body of the last response, asks the
+    server whether anything changed, and turns a 304 back into the remembered 200.
+ */
+public class RevalidationInterceptor implements Interceptor {
+    private static final String[] REVALIDATED_PATH_SUFFIXES = {
+            "/apps/spreed/api/v1/room",
+            "/cloud/capabilities",
+            "/cloud/user"
+    };
+
+    private final RevalidationStore revalidationStore;
+
+    public RevalidationInterceptor(RevalidationStore revalidationStore) {
+        this.revalidationStore = revalidationStore;
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+
+        if (!"GET".equals(request.method()) || !isRevalidated(request.url().encodedPath())) {
+            return chain.proceed(request);
+        }
+
+        String key = getKey(request);
+        RevalidationStore.Entry entry = revalidationStore.get(key);
+
+        if (entry != null) {
+            Request.Builder conditionalRequestBuilder = request.newBuilder();
+            if (!TextUtils.isEmpty(entry.eTag)) {
+                conditionalRequestBuilder.header("If-None-Match", entry.eTag);
+            }
+            if (!TextUtils.isEmpty(entry.lastModified)) {
+                conditionalRequestBuilder.header("If-Modified-Since", entry.lastModified);
+            }
+            request = conditionalRequestBuilder.build();
+        }
+
+        Response response = chain.proceed(request);
+
+        if (response.code() == 304 && entry != null) {
+            revalidationStore.recordHit();
+            response.close();
+            return response.newBuilder()
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(entry.contentType, entry.body))
+                    .build();
+        }
+
+        revalidationStore.recordMiss();
+
+        String eTag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (!response.isSuccessful() || response.body() == null ||
+                (TextUtils.isEmpty(eTag) && TextUtils.isEmpty(lastModified))) {
+            revalidationStore.remove(key);
+            return response;
+        }
+
+        MediaType contentType = response.body().contentType();
+        byte[] body = response.body().bytes();
+        revalidationStore.put(key, new RevalidationStore.Entry(eTag, lastModified, contentType, body));
+
+        return response.newBuilder()
+                .body(ResponseBody.create(contentType, body))
+                .build();
+    }
+
+    /*
+        The Authorization header keeps different accounts on the same server apart. Only its hash goes
+        into the key, so the credentials don't sit in the cache for as long as the entry lives.
+     */
+    private static String getKey(Request request) {
+        String authorization = request.header("Authorization");
+        String authorizationHash = authorization != null ? ByteString.encodeUtf8(authorization).sha256().hex() : "";
+        return authorizationHash + " " + request.url();
+    }
+
+    private boolean isRevalidated(String encodedPath) {
+        for (String suffix : REVALIDATED_PATH_SUFFIXES) {
+            if (encodedPath.endsWith(suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.api;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.MediaType;
+
+/*
+    Validators and last bodies of revalidated responses, kept in memory per user and URL.
+ */
+public class RevalidationStore {
+    private static final String TAG = "RevalidationStore";
+
+    // bodies are OCS JSON, a large rooms list is a few hundred kilobytes
+    private static final int MAX_CACHED_BYTES = 4 * 1024 * 1024;
+
+    private final LruCache<String, Entry> entries = new LruCache<String, Entry>(MAX_CACHED_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.body.length;
+        }
+    };
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Nullable
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    void remove(String key) {
+        entries.remove(key);
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public void clear() {
+        entries.evictAll();
+        Log.d(TAG, "Cleared after " + hitCount.get() + " hits and " + missCount.get() + " misses");
+    }
+
+    static class Entry {
+        @Nullable
+        final String eTag;
+        @Nullable
+        final String lastModified;
+        @Nullable
+        final MediaType contentType;
+        final byte[] body;
+
+        Entry(@Nullable String eTag, @Nullable String lastModified, @Nullable MediaType contentType, byte[] body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}
@@ -30,17 +30,26 @@ import android.support.multidex.MultiDex;
 import android.support.multidex.MultiDexApplication;
 import android.util.Log;
 
+import com.bluelinelabs.logansquare.LoganSquare;
 import com.nextcloud.talk.dagger.modules.BusModule;
 import com.nextcloud.talk.dagger.modules.ContextModule;
 import com.nextcloud.talk.dagger.modules.DatabaseModule;
 import com.nextcloud.talk.dagger.modules.RestModule;
+import com.nextcloud.talk.dagger.modules.SchedulerModule;
 import com.nextcloud.talk.jobs.AccountRemovalWorker;
 import com.nextcloud.talk.jobs.CapabilitiesWorker;
 import com.nextcloud.talk.jobs.PushRegistrationWorker;
+import com.nextcloud.talk.models.json.converters.SignalingTypeConverter;
+import com.nextcloud.talk.models.json.signaling.Signaling;
 import com.nextcloud.talk.utils.ClosedInterfaceImpl;
 import com.nextcloud.talk.utils.DeviceUtils;
 import com.nextcloud.talk.utils.DisplayUtils;
+import com.nextcloud.talk.utils.EmojiDetection;
+import com.nextcloud.talk.utils.database.chat.ChatMessageModule;
+import com.nextcloud.talk.utils.database.conversations.ConversationListModule;
+import com.nextcloud.talk.utils.database.outbox.OutboxModule;
 import com.nextcloud.talk.utils.database.user.UserModule;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideStateHolder;
 import com.nextcloud.talk.webrtc.MagicWebRTCUtils;
 import com.squareup.leakcanary.LeakCanary;
@@ -52,6 +61,7 @@ import org.webrtc.voiceengine.WebRtcAudioUtils;
 
 import java.util.concurrent.TimeUnit;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import androidx.work.Configuration;
@@ -68,7 +78,11 @@ import autodagger.AutoInjector;
                 ContextModule.class,
                 DatabaseModule.class,
                 RestModule.class,
+                SchedulerModule.class,
                 UserModule.class,
+                ChatMessageModule.class,
+                ConversationListModule.class,
+                OutboxModule.class,
         }
 )
 
@@ -87,6 +101,9 @@ public class NextcloudTalkApplication extends MultiDexApplication implements Lif
     protected NextcloudTalkApplicationComponent componentApplication;
     //endregion
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     public static NextcloudTalkApplication getSharedApplication() {
         return sharedApplication;
     }
@@ -121,11 +138,14 @@ public class NextcloudTalkApplication extends MultiDexApplication implements Lif
 
         sharedApplication = this;
 
+        LoganSquare.registerTypeConverter(Signaling.class, new SignalingTypeConverter());
+
         initializeWebRtc();
         DisplayUtils.useCompatVectorIfNeeded();
         buildComponent();
 
         componentApplication.inject(this);
+        appSchedulers.computation().scheduleDirect(() -> EmojiDetection.warmUp(getApplicationContext()));
         refWatcher = LeakCanary.install(this);
 
         new ClosedInterfaceImpl().providerInstallerInstallIfNeededAsync();
@@ -165,7 +185,11 @@ public class NextcloudTalkApplication extends MultiDexApplication implements Lif
                 .contextModule(new ContextModule(getApplicationContext()))
                 .databaseModule(new DatabaseModule())
                 .restModule(new RestModule())
+                .schedulerModule(new SchedulerModule())
                 .userModule(new UserModule())
+                .chatMessageModule(new ChatMessageModule())
+                .conversationListModule(new ConversationListModule())
+                .outboxModule(new OutboxModule())
                 .build();
     }
 
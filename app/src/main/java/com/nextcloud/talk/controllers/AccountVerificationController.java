@@ -48,6 +48,7 @@ import com.nextcloud.talk.utils.ClosedInterfaceImpl;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideMessageHolder;
 
 import org.greenrobot.eventbus.EventBus;
@@ -68,7 +69,6 @@ import butterknife.BindView;
 import io.reactivex.CompletableObserver;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 
 @AutoInjector(NextcloudTalkApplication.class)
@@ -91,6 +91,9 @@ public class AccountVerificationController extends BaseController {
     @Inject
     EventBus eventBus;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     @BindView(R.id.progress_text)
     TextView progressText;
 
@@ -179,7 +182,7 @@ public class AccountVerificationController extends BaseController {
         }
 
         ncApi.getServerStatus(queryUrl)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .subscribe(new Observer<Status>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -215,7 +218,7 @@ public class AccountVerificationController extends BaseController {
 
     private void findServerTalkApp(String credentials) {
         ncApi.getRooms(credentials, ApiUtils.getUrlForGetRooms(baseUrl))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .subscribe(new Observer<RoomsOverall>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -252,7 +255,7 @@ public class AccountVerificationController extends BaseController {
                 baseUrl, displayName, null, true,
                 userId, null, null,
                 appPreferences.getTemporaryClientCertAlias())
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.database())
                 .subscribe(new Observer<UserEntity>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -292,7 +295,7 @@ public class AccountVerificationController extends BaseController {
     private void fetchProfile(String credentials) {
         ncApi.getUserProfile(credentials,
                 ApiUtils.getUrlForUserProfile(baseUrl))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .subscribe(new Observer<UserProfileOverall>() {
                     @Override
                     public void onSubscribe(Disposable d) {
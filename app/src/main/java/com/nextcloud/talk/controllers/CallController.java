@@ -42,8 +42,8 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import com.bluelinelabs.logansquare.LoganSquare;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
@@ -66,11 +66,11 @@ import com.nextcloud.talk.models.json.rooms.RoomsOverall;
 import com.nextcloud.talk.models.json.signaling.DataChannelMessage;
 import com.nextcloud.talk.models.json.signaling.NCIceCandidate;
 import com.nextcloud.talk.models.json.signaling.NCMessagePayload;
-import com.nextcloud.talk.models.json.signaling.NCMessageWrapper;
 import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
 import com.nextcloud.talk.models.json.signaling.Signaling;
-import com.nextcloud.talk.models.json.signaling.SignalingOverall;
+import com.nextcloud.talk.models.json.signaling.SignalingUser;
 import com.nextcloud.talk.models.json.signaling.settings.IceServer;
+import com.nextcloud.talk.models.json.signaling.settings.Settings;
 import com.nextcloud.talk.models.json.signaling.settings.SignalingSettingsOverall;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.MagicFlipView;
@@ -80,13 +80,19 @@ import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.nextcloud.talk.utils.glide.GlideApp;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideCurrentRoomHolder;
+import com.nextcloud.talk.webrtc.AdaptiveCaptureController;
+import com.nextcloud.talk.webrtc.CallStatsCollector;
 import com.nextcloud.talk.webrtc.MagicAudioManager;
 import com.nextcloud.talk.webrtc.MagicPeerConnectionWrapper;
 import com.nextcloud.talk.webrtc.MagicWebRTCUtils;
+import com.nextcloud.talk.webrtc.PollingSignalingTransport;
+import com.nextcloud.talk.webrtc.SignalingTransport;
+import com.nextcloud.talk.webrtc.WebSocketSignalingTransport;
+import com.nextcloud.talk.webrtc.sdp.SdpPolicy;
 import com.wooplr.spotlight.SpotlightView;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
@@ -130,11 +136,11 @@ import eu.davidea.flipview.FlipView;
 import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import me.zhanghai.android.effortlesspermissions.AfterPermissionDenied;
 import me.zhanghai.android.effortlesspermissions.EffortlessPermissions;
 import me.zhanghai.android.effortlesspermissions.OpenAppDetailsDialogFragment;
 import okhttp3.Cache;
+import okhttp3.OkHttpClient;
 import pub.devrel.easypermissions.AfterPermissionGranted;
 
 @AutoInjector(NextcloudTalkApplication.class)
@@ -193,6 +199,11 @@ public class CallController extends BaseController {
     @Inject
     Cache cache;
 
+    @Inject
+    AppSchedulers appSchedulers;
+    @Inject
+    OkHttpClient okHttpClient;
+
     private PeerConnectionFactory peerConnectionFactory;
     private MediaConstraints audioConstraints;
     private MediaConstraints videoConstraints;
@@ -203,12 +214,17 @@ public class CallController extends BaseController {
     private AudioSource audioSource;
     private AudioTrack localAudioTrack;
     private VideoCapturer videoCapturer;
+    private AdaptiveCaptureController adaptiveCaptureController;
+    private CallStatsCollector callStatsCollector;
     private EglBase rootEglBase;
     private boolean leavingCall = false;
     private boolean inCall = false;
-    private Disposable signalingDisposable;
     private Disposable pingDisposable;
+    private SignalingTransport signalingTransport;
+    private String externalSignalingServer;
+    private String externalSignalingTicket;
     private List<PeerConnection.IceServer> iceServers;
+    private SdpPolicy sdpPolicy = SdpPolicy.getDefault();
     private CameraEnumerator cameraEnumerator;
     private String roomToken;
     private UserEntity conversationUser;
@@ -242,6 +258,8 @@ public class CallController extends BaseController {
         super(args);
         NextcloudTalkApplication.getSharedApplication().getComponentApplication().inject(this);
 
+        callStatsCollector = new CallStatsCollector(appSchedulers);
+
         roomId = args.getString(BundleKeys.KEY_ROOM_ID, "");
         roomToken = args.getString(BundleKeys.KEY_ROOM_TOKEN, "");
         conversationUser = Parcels.unwrap(args.getParcelable(BundleKeys.KEY_USER_ENTITY));
@@ -372,7 +390,7 @@ public class CallController extends BaseController {
     private void handleFromNotification() {
         ncApi.getRooms(credentials, ApiUtils.getUrlForGetRooms(baseUrl))
                 .retry(3)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RoomsOverall>() {
                     @Override
@@ -533,6 +551,9 @@ public class CallController extends BaseController {
 
         //Create a VideoSource instance
         if (videoCapturer != null) {
+            adaptiveCaptureController = new AdaptiveCaptureController(getApplicationContext(), videoCapturer,
+                    appSchedulers);
+            callStatsCollector.addListener(adaptiveCaptureController);
             videoSource = peerConnectionFactory.createVideoSource(videoCapturer);
             localVideoTrack = peerConnectionFactory.createVideoTrack("NCv0", videoSource);
             localMediaStream.addTrack(localVideoTrack);
@@ -741,9 +762,9 @@ public class CallController extends BaseController {
                 startVideoCapture();
             } else {
                 cameraControlButton.setAlpha(0.7f);
-                if (videoCapturer != null) {
+                if (adaptiveCaptureController != null) {
                     try {
-                        videoCapturer.stopCapture();
+                        adaptiveCaptureController.stopCapture();
                     } catch (InterruptedException e) {
                         Log.d(TAG, "Failed to stop capturing video while sensor is near the ear");
                     }
@@ -882,7 +903,7 @@ public class CallController extends BaseController {
         leavingCall = false;
 
         ncApi.getSignalingSettings(credentials, ApiUtils.getUrlForSignalingSettings(baseUrl))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .retry(3)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<SignalingSettingsOverall>() {
@@ -896,6 +917,10 @@ public class CallController extends BaseController {
                         IceServer iceServer;
                         if (signalingSettingsOverall != null && signalingSettingsOverall.getOcs() != null &&
                                 signalingSettingsOverall.getOcs().getSettings() != null) {
+                            Settings settings = signalingSettingsOverall.getOcs().getSettings();
+                            externalSignalingServer = settings.getExternalSignalingServer();
+                            externalSignalingTicket = settings.getExternalSignalingTicket();
+
                             if (signalingSettingsOverall.getOcs().getSettings().getStunServers() != null) {
                                 for (int i = 0; i < signalingSettingsOverall.getOcs().getSettings().getStunServers().size();
                                      i++) {
@@ -944,7 +969,7 @@ public class CallController extends BaseController {
     private void checkCapabilities() {
         ncApi.getCapabilities(credentials, ApiUtils.getUrlForCapabilities(baseUrl))
                 .retry(3)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<CapabilitiesOverall>() {
                     @Override
@@ -990,7 +1015,7 @@ public class CallController extends BaseController {
     private void joinRoomAndCall() {
         if ("0".equals(callSession)) {
             ncApi.joinRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(baseUrl, roomToken), null)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .retry(3)
                     .subscribe(new Observer<CallOverall>() {
@@ -1021,9 +1046,14 @@ public class CallController extends BaseController {
     }
 
     private void performCall() {
+        SignalingTransport transport = getSignalingTransport();
+        if (transport != null) {
+            transport.connect();
+        }
+
         ncApi.joinCall(credentials,
                 ApiUtils.getUrlForCall(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .retry(3)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<GenericOverall>() {
@@ -1055,7 +1085,7 @@ public class CallController extends BaseController {
 
                         if (needsPing) {
                             ncApi.pingCall(credentials, ApiUtils.getUrlForCallPing(baseUrl, roomToken))
-                                    .subscribeOn(Schedulers.newThread())
+                                    .subscribeOn(appSchedulers.network())
                                     .observeOn(AndroidSchedulers.mainThread())
                                     .repeatWhen(observable -> observable.delay(5000, TimeUnit.MILLISECONDS))
                                     .takeWhile(observable -> inCall)
@@ -1083,52 +1113,14 @@ public class CallController extends BaseController {
                                     });
                         }
 
-                        // Start pulling signaling messages
-                        String urlToken = null;
-                        if (isMultiSession) {
-                            urlToken = roomToken;
-                        }
-
                         NotificationUtils.cancelExistingNotifications(getApplicationContext(), conversationUser);
 
-                        ncApi.pullSignalingMessages(credentials, ApiUtils.getUrlForSignaling(baseUrl, urlToken))
-                                .subscribeOn(Schedulers.newThread())
-                                .observeOn(AndroidSchedulers.mainThread())
-                                .repeatWhen(observable -> observable)
-                                .takeWhile(observable -> inCall)
-                                .retry(3, observable -> inCall)
-                                .subscribe(new Observer<SignalingOverall>() {
-                                    @Override
-                                    public void onSubscribe(Disposable d) {
-                                        signalingDisposable = d;
-                                    }
-
-                                    @Override
-                                    public void onNext(SignalingOverall signalingOverall) {
-                                        if (signalingOverall.getOcs().getSignalings() != null) {
-                                            for (int i = 0; i < signalingOverall.getOcs().getSignalings().size(); i++) {
-                                                try {
-                                                    receivedSignalingMessage(signalingOverall.getOcs().getSignalings().get(i));
-                                                } catch (IOException e) {
-                                                    Log.e(TAG, "Failed to process received signaling" +
-                                                            " message");
-                                                }
-                                            }
-                                        }
-                                    }
-
-                                    @Override
-                                    public void onError(Throwable e) {
-                                        dispose(signalingDisposable);
-                                    }
-
-                                    @Override
-                                    public void onComplete() {
-                                        dispose(signalingDisposable);
-                                    }
-                                });
-
+                        callStatsCollector.start();
 
+                        SignalingTransport transport = getSignalingTransport();
+                        if (transport != null) {
+                            transport.start();
+                        }
                     }
 
                     @Override
@@ -1156,15 +1148,10 @@ public class CallController extends BaseController {
                 pingDisposable.dispose();
                 pingDisposable = null;
             }
-
-            if (signalingDisposable != null && !signalingDisposable.isDisposed()) {
-                signalingDisposable.dispose();
-                signalingDisposable = null;
-            }
         }
     }
 
-    private void receivedSignalingMessage(Signaling signaling) throws IOException {
+    private void receivedSignalingMessage(Signaling signaling) {
         String messageType = signaling.getType();
 
         if (leavingCall) {
@@ -1172,11 +1159,12 @@ public class CallController extends BaseController {
         }
 
         if ("usersInRoom".equals(messageType)) {
-            processUsersInRoom((List<HashMap<String, Object>>) signaling.getMessageWrapper());
+            if (signaling.getUsersInRoom() != null) {
+                processUsersInRoom(signaling.getUsersInRoom());
+            }
         } else if ("message".equals(messageType)) {
-            NCSignalingMessage ncSignalingMessage = LoganSquare.parse(signaling.getMessageWrapper().toString(),
-                    NCSignalingMessage.class);
-            if (ncSignalingMessage.getRoomType().equals("video")) {
+            NCSignalingMessage ncSignalingMessage = signaling.getNcSignalingMessage();
+            if (ncSignalingMessage != null && "video".equals(ncSignalingMessage.getRoomType())) {
                 MagicPeerConnectionWrapper magicPeerConnectionWrapper = alwaysGetPeerConnectionWrapperForSessionId
                         (ncSignalingMessage.getFrom());
 
@@ -1193,13 +1181,9 @@ public class CallController extends BaseController {
                         case "offer":
                         case "answer":
                             magicPeerConnectionWrapper.setNick(ncSignalingMessage.getPayload().getNick());
-                            String sessionDescriptionStringWithPreferredCodec = MagicWebRTCUtils.preferCodec
-                                    (ncSignalingMessage.getPayload().getSdp(),
-                                            "VP8", false);
-
                             SessionDescription sessionDescriptionWithPreferredCodec = new SessionDescription(
                                     SessionDescription.Type.fromCanonicalForm(type),
-                                    sessionDescriptionStringWithPreferredCodec);
+                                    sdpPolicy.apply(ncSignalingMessage.getPayload().getSdp()));
 
                             if (magicPeerConnectionWrapper.getPeerConnection() != null) {
                                 magicPeerConnectionWrapper.getPeerConnection().setRemoteDescription(magicPeerConnectionWrapper
@@ -1232,9 +1216,24 @@ public class CallController extends BaseController {
         leavingCall = true;
         inCall = false;
 
+        synchronized (this) {
+            if (signalingTransport != null) {
+                signalingTransport.stop();
+                signalingTransport = null;
+            }
+        }
+
+        callStatsCollector.stop();
+        callStatsCollector.dumpReport(NextcloudTalkApplication.getSharedApplication().getApplicationContext(),
+                roomToken);
+
         if (videoCapturer != null) {
             try {
-                videoCapturer.stopCapture();
+                if (adaptiveCaptureController != null) {
+                    callStatsCollector.removeListener(adaptiveCaptureController);
+                    adaptiveCaptureController.stopCapture();
+                    adaptiveCaptureController = null;
+                }
             } catch (InterruptedException e) {
                 Log.e(TAG, "Failed to stop capturing while hanging up");
             }
@@ -1284,7 +1283,7 @@ public class CallController extends BaseController {
 
     private void hangupNetworkCalls() {
         ncApi.leaveCall(credentials, ApiUtils.getUrlForCall(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<GenericOverall>() {
                     @Override
@@ -1317,7 +1316,7 @@ public class CallController extends BaseController {
 
     private void leaveRoom() {
         ncApi.leaveRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<GenericOverall>() {
                     @Override
@@ -1345,29 +1344,22 @@ public class CallController extends BaseController {
     }
 
     private void startVideoCapture() {
-        if (videoCapturer != null) {
-            videoCapturer.startCapture(1280, 720, 30);
+        if (adaptiveCaptureController != null) {
+            adaptiveCaptureController.startCapture();
         }
     }
 
-    private void processUsersInRoom(List<HashMap<String, Object>> users) {
+    private void processUsersInRoom(List<SignalingUser> users) {
         List<String> newSessions = new ArrayList<>();
         Set<String> oldSesssions = new HashSet<>();
 
-        for (HashMap<String, Object> participant : users) {
-            if (!participant.get("sessionId").equals(callSession)) {
-                Object inCallObject = participant.get("inCall");
-                boolean isNewSession;
-                if (inCallObject instanceof Boolean) {
-                    isNewSession = (boolean) inCallObject;
-                } else {
-                    isNewSession = ((long) inCallObject) != 0;
-                }
-
-                if (isNewSession) {
-                    newSessions.add(participant.get("sessionId").toString());
+        String localSessionId = getLocalSessionId();
+        for (SignalingUser participant : users) {
+            if (participant.getSessionId() != null && !participant.getSessionId().equals(localSessionId)) {
+                if (participant.isInCall()) {
+                    newSessions.add(participant.getSessionId());
                 } else {
-                    oldSesssions.add(participant.get("sessionId").toString());
+                    oldSesssions.add(participant.getSessionId());
                 }
             }
         }
@@ -1401,7 +1393,7 @@ public class CallController extends BaseController {
 
     private void getPeersForCall() {
         ncApi.getPeersForCall(credentials, ApiUtils.getUrlForCall(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .subscribe(new Observer<ParticipantsOverall>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -1434,6 +1426,22 @@ public class CallController extends BaseController {
     private void deleteMagicPeerConnection(MagicPeerConnectionWrapper magicPeerConnectionWrapper) {
         magicPeerConnectionWrapper.removePeerConnection();
         magicPeerConnectionWrapperList.remove(magicPeerConnectionWrapper);
+        onPeerConnectionsChanged();
+    }
+
+    private void onPeerConnectionsChanged() {
+        Map<String, PeerConnection> peerConnections = new HashMap<>();
+        for (MagicPeerConnectionWrapper magicPeerConnectionWrapper : magicPeerConnectionWrapperList) {
+            if (magicPeerConnectionWrapper.getPeerConnection() != null) {
+                peerConnections.put(magicPeerConnectionWrapper.getSessionId(),
+                        magicPeerConnectionWrapper.getPeerConnection());
+            }
+        }
+
+        callStatsCollector.setPeerConnections(peerConnections);
+        if (adaptiveCaptureController != null) {
+            adaptiveCaptureController.setPeerSessions(peerConnections.keySet());
+        }
     }
 
     private MagicPeerConnectionWrapper alwaysGetPeerConnectionWrapperForSessionId(String sessionId) {
@@ -1442,8 +1450,9 @@ public class CallController extends BaseController {
             return magicPeerConnectionWrapper;
         } else {
             magicPeerConnectionWrapper = new MagicPeerConnectionWrapper(peerConnectionFactory,
-                    iceServers, sdpConstraints, sessionId, callSession, localMediaStream);
+                    iceServers, sdpConstraints, sessionId, getLocalSessionId(), localMediaStream, sdpPolicy);
             magicPeerConnectionWrapperList.add(magicPeerConnectionWrapper);
+            onPeerConnectionsChanged();
             return magicPeerConnectionWrapper;
         }
     }
@@ -1536,10 +1545,7 @@ public class CallController extends BaseController {
     }
 
     @Subscribe(threadMode = ThreadMode.BACKGROUND)
-    public void onMessageEvent(SessionDescriptionSendEvent sessionDescriptionSend) throws IOException {
-        NCMessageWrapper ncMessageWrapper = new NCMessageWrapper();
-        ncMessageWrapper.setEv("message");
-        ncMessageWrapper.setSessionId(callSession);
+    public void onMessageEvent(SessionDescriptionSendEvent sessionDescriptionSend) {
         NCSignalingMessage ncSignalingMessage = new NCSignalingMessage();
         ncSignalingMessage.setTo(sessionDescriptionSend.getPeerId());
         ncSignalingMessage.setRoomType("video");
@@ -1554,65 +1560,70 @@ public class CallController extends BaseController {
             ncMessagePayload.setIceCandidate(sessionDescriptionSend.getNcIceCandidate());
         }
 
-
-        // Set all we need
         ncSignalingMessage.setPayload(ncMessagePayload);
-        ncMessageWrapper.setSignalingMessage(ncSignalingMessage);
 
+        SignalingTransport transport = getSignalingTransport();
+        if (transport != null) {
+            transport.send(ncSignalingMessage);
+        }
+    }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("{")
-                     .append("\"fn\":\"")
-                     .append(StringEscapeUtils.escapeJson(LoganSquare.serialize(ncMessageWrapper.getSignalingMessage()))).append("\"")
-                     .append(",")
-                     .append("\"sessionId\":")
-                     .append("\"").append(StringEscapeUtils.escapeJson(callSession)).append("\"")
-                     .append(",")
-                     .append("\"ev\":\"message\"")
-                     .append("}");
-
-        List<String> strings = new ArrayList<>();
-        String stringToSend = stringBuilder.toString();
-        strings.add(stringToSend);
+    /*
+        An external signaling server takes the whole exchange over one WebSocket; without one we keep polling
+        the Talk signaling endpoint.
+     */
+    @Nullable
+    private synchronized SignalingTransport getSignalingTransport() {
+        if (signalingTransport == null && !leavingCall) {
+            if (!TextUtils.isEmpty(externalSignalingServer) && !TextUtils.isEmpty(externalSignalingTicket)) {
+                signalingTransport = new WebSocketSignalingTransport(okHttpClient,
+                        ApiUtils.getUrlForExternalSignalingServer(externalSignalingServer),
+                        ApiUtils.getUrlForExternalServerAuthBackend(baseUrl), conversationUser.getUserId(),
+                        externalSignalingTicket, roomToken, callSession, signalingTransportListener);
+            } else {
+                String urlToken = null;
+                if (isMultiSession) {
+                    urlToken = roomToken;
+                }
 
-        String urlToken = null;
-        if (isMultiSession) {
-            urlToken = roomToken;
+                signalingTransport = new PollingSignalingTransport(ncApi, appSchedulers, credentials,
+                        ApiUtils.getUrlForSignaling(baseUrl, urlToken), callSession, signalingTransportListener);
+            }
         }
 
-        ncApi.sendSignalingMessages(credentials, ApiUtils.getUrlForSignaling(baseUrl, urlToken),
-                strings.toString())
-                .retry(3)
-                .subscribeOn(Schedulers.newThread())
-                .subscribe(new Observer<SignalingOverall>() {
-                    @Override
-                    public void onSubscribe(Disposable d) {
+        return signalingTransport;
+    }
 
-                    }
+    private synchronized String getLocalSessionId() {
+        if (signalingTransport != null && signalingTransport.getSessionId() != null) {
+            return signalingTransport.getSessionId();
+        }
 
-                    @Override
-                    public void onNext(SignalingOverall signalingOverall) {
-                        if (signalingOverall.getOcs().getSignalings() != null) {
-                            for (int i = 0; i < signalingOverall.getOcs().getSignalings().size(); i++) {
-                                try {
-                                    receivedSignalingMessage(signalingOverall.getOcs().getSignalings().get(i));
-                                } catch (IOException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                    }
+        return callSession;
+    }
 
-                    @Override
-                    public void onError(Throwable e) {
-                    }
+    private SignalingTransport.Listener signalingTransportListener = new SignalingTransport.Listener() {
+        @Override
+        public void onSignalingMessage(Signaling signaling) {
+            receivedSignalingMessage(signaling);
+        }
 
-                    @Override
-                    public void onComplete() {
+        @Override
+        public void onSignalingTransportFailed(SignalingTransport failedSignalingTransport) {
+            synchronized (CallController.this) {
+                if (failedSignalingTransport != signalingTransport) {
+                    return;
+                }
+            }
 
-                    }
-                });
-    }
+            // with an external signaling server the others aren't reachable over polling, the call is over
+            Log.e(TAG, "Lost the signaling server");
+            if (getActivity() != null) {
+                Toast.makeText(getActivity(), R.string.nc_call_signaling_lost, Toast.LENGTH_LONG).show();
+            }
+            hangup(false);
+        }
+    };
 
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
@@ -54,7 +54,6 @@ import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.load.resource.bitmap.TransformationUtils;
 import com.bumptech.glide.request.RequestOptions;
@@ -77,6 +76,7 @@ import com.nextcloud.talk.utils.MagicFlipView;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.glide.GlideApp;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.AvatarStatusCodeHolder;
 
 import org.greenrobot.eventbus.EventBus;
@@ -96,7 +96,6 @@ import butterknife.OnClick;
 import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import okhttp3.Cache;
 
 @AutoInjector(NextcloudTalkApplication.class)
@@ -116,6 +115,9 @@ public class CallNotificationController extends BaseController {
     @Inject
     EventBus eventBus;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     @BindView(R.id.conversationNameTextView)
     TextView conversationNameTextView;
 
@@ -201,7 +203,7 @@ public class CallNotificationController extends BaseController {
     private void checkIfAnyParticipantsRemainInRoom() {
         ncApi.getPeersForCall(credentials, ApiUtils.getUrlForParticipants(userBeingCalled.getBaseUrl(),
                 currentConversation.getToken()))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .takeWhile(observable -> !leavingScreen)
                 .retry(3)
                 .subscribe(new Observer<ParticipantsOverall>() {
@@ -250,7 +252,7 @@ public class CallNotificationController extends BaseController {
 
     private void handleFromNotification() {
         ncApi.getRooms(credentials, ApiUtils.getUrlForGetRooms(userBeingCalled.getBaseUrl()))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .retry(3)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RoomsOverall>() {
@@ -416,11 +418,8 @@ public class CallNotificationController extends BaseController {
             case ROOM_TYPE_ONE_TO_ONE_CALL:
                 avatarImageView.setVisibility(View.VISIBLE);
 
-                GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(userBeingCalled.getBaseUrl(),
-                        currentConversation.getName(), R.dimen.avatar_size_very_big), new LazyHeaders.Builder()
-                        .setHeader("Accept", "image/*")
-                        .setHeader("User-Agent", ApiUtils.getUserAgent())
-                        .build());
+                GlideUrl glideUrl = ApiUtils.getGlideUrlForAvatarWithName(userBeingCalled.getBaseUrl(),
+                        currentConversation.getName(), R.dimen.avatar_size_very_big);
 
                 GlideApp.with(NextcloudTalkApplication.getSharedApplication().getApplicationContext())
                         .asBitmap()
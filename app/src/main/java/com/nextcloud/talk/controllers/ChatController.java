@@ -48,29 +48,32 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.bumptech.glide.load.DataSource;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.engine.GlideException;
-import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestListener;
-import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.activities.MagicCallActivity;
 import com.nextcloud.talk.adapters.messages.MagicIncomingTextMessageViewHolder;
 import com.nextcloud.talk.adapters.messages.MagicOutcomingTextMessageViewHolder;
 import com.nextcloud.talk.adapters.messages.MagicSystemMessageViewHolder;
+import com.nextcloud.talk.adapters.messages.PreparedMessageCache;
 import com.nextcloud.talk.api.NcApi;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.callbacks.MentionAutocompleteCallback;
 import com.nextcloud.talk.controllers.base.BaseController;
+import com.nextcloud.talk.events.OutgoingMessageEvent;
+import com.nextcloud.talk.jobs.SendMessagesWorker;
+import com.nextcloud.talk.models.database.OutgoingMessage;
 import com.nextcloud.talk.models.database.UserEntity;
 import com.nextcloud.talk.models.json.call.Call;
 import com.nextcloud.talk.models.json.call.CallOverall;
 import com.nextcloud.talk.models.json.chat.ChatMessage;
 import com.nextcloud.talk.models.json.chat.ChatOverall;
+import com.nextcloud.talk.models.json.chat.ChatUtils;
 import com.nextcloud.talk.models.json.generic.GenericOverall;
 import com.nextcloud.talk.models.json.mention.Mention;
 import com.nextcloud.talk.models.json.rooms.Conversation;
@@ -81,8 +84,12 @@ import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.KeyboardUtils;
 import com.nextcloud.talk.utils.NotificationUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
+import com.nextcloud.talk.utils.chat.ChatPollingEngine;
+import com.nextcloud.talk.utils.database.chat.ChatMessageUtils;
+import com.nextcloud.talk.utils.database.outbox.OutboxUtils;
 import com.nextcloud.talk.utils.database.user.UserUtils;
-import com.nextcloud.talk.utils.glide.GlideApp;
+import com.nextcloud.talk.utils.glide.AvatarPreloadModelProvider;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideCurrentRoomHolder;
 import com.otaliastudios.autocomplete.Autocomplete;
 import com.otaliastudios.autocomplete.AutocompleteCallback;
@@ -97,25 +104,37 @@ import com.stfalcon.chatkit.messages.MessagesListAdapter;
 import com.stfalcon.chatkit.utils.DateFormatter;
 import com.webianks.library.PopupBubble;
 
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
 import org.parceler.Parcels;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
 import autodagger.AutoInjector;
 import butterknife.BindView;
 import butterknife.OnClick;
+import io.reactivex.CompletableObserver;
 import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import retrofit2.HttpException;
 import retrofit2.Response;
 
@@ -127,6 +146,16 @@ public class ChatController extends BaseController implements MessagesListAdapte
     NcApi ncApi;
     @Inject
     UserUtils userUtils;
+    @Inject
+    ChatMessageUtils chatMessageUtils;
+    @Inject
+    OutboxUtils outboxUtils;
+
+    @Inject
+    AppSchedulers appSchedulers;
+    @Inject
+    EventBus eventBus;
+
     @BindView(R.id.messagesListView)
     MessagesList messagesListView;
     @BindView(R.id.messageInputView)
@@ -156,14 +185,22 @@ public class ChatController extends BaseController implements MessagesListAdapte
     private Autocomplete mentionAutocomplete;
     private LinearLayoutManager layoutManager;
     private boolean lookingIntoFuture = false;
+    private ChatPollingEngine chatPollingEngine;
     private int newMessagesCount = 0;
     private Boolean startCallFromNotification = null;
     private String roomId;
     private boolean voiceOnly;
     private boolean isFirstMessagesProcessing = true;
     private boolean isHelloClicked;
+    // messages shown before the server confirmed them, oldest first
+    private List<ChatMessage> localEchoes = new ArrayList<>();
+    // polls that came back without the message since the outbox sent it, by echo id
+    private Map<String, Integer> sentLocalEchoPolls = new HashMap<>();
+    private boolean pendingMessagesShown;
 
     private static final byte CONTENT_TYPE_SYSTEM_MESSAGE = 1;
+    private static final int CACHED_MESSAGES_LIMIT = 100;
+    private static final int MAX_UNCONFIRMED_POLLS = 3;
 
     public ChatController(Bundle args) {
         super(args);
@@ -212,7 +249,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
     private void getRoomInfo() {
         ncApi.getRoom(credentials, ApiUtils.getRoom(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RoomOverall>() {
                     @Override
@@ -244,7 +281,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
     private void handleFromNotification() {
         ncApi.getRooms(credentials, ApiUtils.getUrlForGetRooms(baseUrl))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RoomsOverall>() {
                     @Override
@@ -313,13 +350,9 @@ public class ChatController extends BaseController implements MessagesListAdapte
             adapter = new MessagesListAdapter<>(conversationUser.getUserId(), messageHolders, new ImageLoader() {
                 @Override
                 public void loadImage(ImageView imageView, String url) {
-                    GlideApp.with(NextcloudTalkApplication.getSharedApplication().getApplicationContext())
-                            .asBitmap()
-                            .diskCacheStrategy(DiskCacheStrategy.NONE)
-                            .load(url)
-                            .centerInside()
-                            .override(imageView.getMeasuredWidth(), imageView.getMeasuredHeight())
-                            .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+                    // the url asks for avatar_size already, loading it at that size matches what was preloaded
+                    AvatarPreloadModelProvider.getAvatarRequest(NextcloudTalkApplication.getSharedApplication()
+                            .getApplicationContext(), url, getAvatarSize())
                             .listener(new RequestListener<Bitmap>() {
                                 @Override
                                 public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
@@ -388,7 +421,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
 
         messageInputView.setInputListener(input -> {
-            sendMessage(input, 1);
+            sendMessage(input);
             return true;
         });
 
@@ -429,6 +462,8 @@ public class ChatController extends BaseController implements MessagesListAdapte
     @Override
     protected void onAttach(@NonNull View view) {
         super.onAttach(view);
+        eventBus.register(this);
+
         if (getActionBar() != null) {
             getActionBar().setDisplayHomeAsUpEnabled(true);
         }
@@ -451,6 +486,12 @@ public class ChatController extends BaseController implements MessagesListAdapte
         }
     }
 
+    @Override
+    protected void onDetach(@NonNull View view) {
+        super.onDetach(view);
+        eventBus.unregister(this);
+    }
+
     @Override
     protected String getTitle() {
         return conversationName;
@@ -461,6 +502,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
         super.onDestroy();
         adapter = null;
         inChat = false;
+        stopChatPolling();
         ApplicationWideCurrentRoomHolder.getInstance().clear();
         leaveRoom();
     }
@@ -477,7 +519,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
     private void startPing() {
         if (!conversationUser.hasSpreedCapabilityWithName("no-ping")) {
             ncApi.pingCall(credentials, ApiUtils.getUrlForCallPing(baseUrl, roomToken))
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .repeatWhen(observable -> observable.delay(5000, TimeUnit.MILLISECONDS))
                     .takeWhile(observable -> inChat)
@@ -508,7 +550,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
     public void sendHello() {
         if (!isHelloClicked) {
             isHelloClicked = true;
-            sendMessage(getResources().getString(R.string.nc_hello) + " 👋", 1);
+            sendMessage(getResources().getString(R.string.nc_hello) + " 👋");
         }
     }
 
@@ -516,7 +558,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
         if (currentCall == null) {
             ncApi.joinRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(baseUrl, roomToken), roomPassword)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .retry(3)
                     .subscribe(new Observer<CallOverall>() {
@@ -530,7 +572,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
                             inChat = true;
                             currentCall = callOverall.getOcs().getData();
                             startPing();
-                            pullChatMessages(0);
+                            loadCachedMessages();
                             if (startCallFromNotification != null && startCallFromNotification) {
                                 startCallFromNotification = false;
                                 startACall(voiceOnly);
@@ -550,13 +592,13 @@ public class ChatController extends BaseController implements MessagesListAdapte
         } else {
             inChat = true;
             startPing();
-            pullChatMessages(0);
+            loadCachedMessages();
         }
     }
 
     private void leaveRoom() {
         ncApi.leaveRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(baseUrl, roomToken))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<GenericOverall>() {
                     @Override
@@ -593,12 +635,209 @@ public class ChatController extends BaseController implements MessagesListAdapte
         }
     }
 
-    private void sendMessage(CharSequence message, int attempt) {
+    private void sendMessage(CharSequence message) {
+        if (credentials == null) {
+            // guests have no account to keep an outbox for
+            sendMessageDirectly(message, 1);
+            return;
+        }
+
+        outboxUtils.enqueueMessage(conversationUser.getId(), roomToken, message.toString(),
+                conversationUser.getDisplayName())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Observer<OutgoingMessage>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+
+                    }
+
+                    @Override
+                    public void onNext(OutgoingMessage outgoingMessage) {
+                        scheduleOutgoingMessages();
+
+                        if (adapter != null) {
+                            addLocalEcho(outgoingMessage);
+                        }
+
+                        if (popupBubble != null && popupBubble.isShown()) {
+                            popupBubble.hide();
+                        }
+
+                        if (messagesListView != null) {
+                            messagesListView.smoothScrollToPosition(0);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Failed to queue message, sending it directly");
+                        sendMessageDirectly(message, 1);
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+                });
+    }
+
+    private void scheduleOutgoingMessages() {
+        Data userData = new Data.Builder()
+                .putLong(BundleKeys.KEY_INTERNAL_USER_ID, conversationUser.getId())
+                .build();
+
+        OneTimeWorkRequest sendMessagesWork = new OneTimeWorkRequest.Builder(SendMessagesWorker.class)
+                .setInputData(userData)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+
+        // appending keeps a single chain per user, so a message queued mid-run is picked up right after it
+        WorkManager.getInstance().beginUniqueWork(SendMessagesWorker.TAG + conversationUser.getId(),
+                ExistingWorkPolicy.APPEND, sendMessagesWork).enqueue();
+    }
+
+    private void showPendingMessages() {
+        if (credentials == null || pendingMessagesShown) {
+            return;
+        }
+
+        pendingMessagesShown = true;
+
+        outboxUtils.getPendingMessages(conversationUser.getId(), roomToken)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Observer<List<OutgoingMessage>>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        disposableList.add(d);
+                    }
+
+                    @Override
+                    public void onNext(List<OutgoingMessage> outgoingMessages) {
+                        if (adapter == null || outgoingMessages.size() == 0) {
+                            return;
+                        }
+
+                        for (OutgoingMessage outgoingMessage : outgoingMessages) {
+                            addLocalEcho(outgoingMessage);
+                        }
+
+                        // the outbox survived a restart or an earlier visit, make sure it keeps draining
+                        scheduleOutgoingMessages();
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Failed to load pending messages");
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+                });
+    }
+
+    // negative ids never collide with the ones handed out by the server
+    private void addLocalEcho(OutgoingMessage outgoingMessage) {
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setJsonMessageId((int) -outgoingMessage.getId());
+        chatMessage.setToken(roomToken);
+        chatMessage.setActorType("users");
+        chatMessage.setActorId(conversationUser.getUserId());
+        chatMessage.setActorDisplayName(outgoingMessage.getActorDisplayName());
+        chatMessage.setTimestamp(outgoingMessage.getTimestamp());
+        chatMessage.setMessage(outgoingMessage.getMessage());
+        chatMessage.setBaseUrl(conversationUser.getBaseUrl());
+        chatMessage.setActiveUserId(conversationUser.getUserId());
+        chatMessage.setGrouped(adapter.isPreviousSameAuthor(chatMessage.getActorId(), -1) &&
+                (adapter.getSameAuthorLastMessagesCount(chatMessage.getActorId()) % 5) > 0);
+
+        localEchoes.add(chatMessage);
+        adapter.addToStart(chatMessage, true);
+    }
+
+    // the first polled message that ChatUtils.isSentMessage takes for an echo replaces it
+    private ChatMessage takeLocalEcho(ChatMessage chatMessage) {
+        for (int i = 0; i < localEchoes.size(); i++) {
+            ChatMessage localEcho = localEchoes.get(i);
+            if (ChatUtils.isSentMessage(chatMessage, conversationUser.getUserId(), localEcho.getText(),
+                    localEcho.getTimestamp())) {
+                return removeLocalEcho(i);
+            }
+        }
+
+        return null;
+    }
+
+    private ChatMessage removeLocalEcho(int index) {
+        ChatMessage localEcho = localEchoes.remove(index);
+        sentLocalEchoPolls.remove(localEcho.getId());
+        return localEcho;
+    }
+
+    private boolean removeLocalEcho(String localEchoId) {
+        for (int i = 0; i < localEchoes.size(); i++) {
+            if (localEchoes.get(i).getId().equals(localEchoId)) {
+                removeLocalEcho(i);
+                if (adapter != null) {
+                    adapter.deleteById(localEchoId);
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+        Called after every poll that brought new messages. An echo whose message the outbox sent but
+        that still hasn't come back after a few of them won't be matched anymore (the server changed
+        the text beyond what takeLocalEcho knows about), so it is dropped instead of staying around
+        as a duplicate.
+     */
+    private void expireLocalEchoes() {
+        List<String> expiredLocalEchoIds = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : sentLocalEchoPolls.entrySet()) {
+            entry.setValue(entry.getValue() + 1);
+            if (entry.getValue() > MAX_UNCONFIRMED_POLLS) {
+                expiredLocalEchoIds.add(entry.getKey());
+            }
+        }
+
+        for (String localEchoId : expiredLocalEchoIds) {
+            Log.d(TAG, "Local echo " + localEchoId + " wasn't confirmed, dropping it");
+            removeLocalEcho(localEchoId);
+        }
+    }
+
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    public void onMessageEvent(OutgoingMessageEvent outgoingMessageEvent) {
+        if (outgoingMessageEvent.getInternalUserId() != conversationUser.getId() ||
+                !outgoingMessageEvent.getRoomToken().equals(roomToken)) {
+            return;
+        }
+
+        // the same id addLocalEcho gave the echo
+        String localEchoId = Integer.toString((int) -outgoingMessageEvent.getOutgoingMessageId());
+        if (outgoingMessageEvent.isSent()) {
+            for (ChatMessage localEcho : localEchoes) {
+                if (localEcho.getId().equals(localEchoId)) {
+                    sentLocalEchoPolls.put(localEchoId, 0);
+                    break;
+                }
+            }
+        } else if (removeLocalEcho(localEchoId) && getActivity() != null) {
+            Toast.makeText(getActivity(), R.string.nc_chat_message_not_sent, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    private void sendMessageDirectly(CharSequence message, int attempt) {
         if (attempt < 4) {
 
             ncApi.sendChatMessage(credentials, ApiUtils.getUrlForChat(baseUrl, roomToken), message, conversationUser
                     .getDisplayName())
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(new Observer<GenericOverall>() {
                         @Override
@@ -634,7 +873,7 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
                                 messagesListView.smoothScrollToPosition(0);
                             } else {
-                                sendMessage(message, attempt + 1);
+                                sendMessageDirectly(message, attempt + 1);
                             }
                         }
 
@@ -646,87 +885,237 @@ public class ChatController extends BaseController implements MessagesListAdapte
         }
     }
 
+    private void loadCachedMessages() {
+        if (credentials == null) {
+            // guests and users of modified base urls don't get a persistent history
+            pullChatMessages(0);
+            return;
+        }
+
+        chatMessageUtils.getCachedMessages(conversationUser.getId(), roomToken, CACHED_MESSAGES_LIMIT)
+                .doOnNext(this::prepareMessages)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Observer<List<ChatMessage>>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        disposableList.add(d);
+                    }
+
+                    @Override
+                    public void onNext(List<ChatMessage> chatMessageList) {
+                        if (chatMessageList.size() == 0 || adapter == null) {
+                            pullChatMessages(0);
+                        } else {
+                            if (isFirstMessagesProcessing) {
+                                NotificationUtils.cancelExistingNotifications(getApplicationContext(), conversationUser);
+                                isFirstMessagesProcessing = false;
+                            }
+
+                            if (loadingProgressBar != null) {
+                                loadingProgressBar.setVisibility(View.GONE);
+                            }
+
+                            if (emptyLayout != null) {
+                                emptyLayout.setVisibility(View.GONE);
+                            }
+
+                            if (messagesListView != null) {
+                                messagesListView.setVisibility(View.VISIBLE);
+                            }
+
+                            addHistoryMessages(chatMessageList);
+
+                            // only fetch what we've missed since the newest cached message
+                            pullChatMessages(1);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Failed to load cached messages");
+                        pullChatMessages(0);
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+                });
+    }
+
+    private void cacheMessages(List<ChatMessage> chatMessageList) {
+        if (credentials == null) {
+            return;
+        }
+
+        chatMessageUtils.storeMessages(conversationUser.getId(), roomToken, chatMessageList)
+                .subscribe(new CompletableObserver() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Failed to cache messages");
+                    }
+                });
+    }
+
+    private void addHistoryMessages(List<ChatMessage> chatMessageList) {
+        int countGroupedMessages = 0;
+
+        for (int i = 0; i < chatMessageList.size(); i++) {
+            if (chatMessageList.size() > i + 1) {
+                if (TextUtils.isEmpty(chatMessageList.get(i).getSystemMessage()) &&
+                        TextUtils.isEmpty(chatMessageList.get(i + 1).getSystemMessage()) &&
+                        chatMessageList.get(i + 1).getActorId().equals(chatMessageList.get(i).getActorId()) &&
+                        countGroupedMessages < 4 && DateFormatter.isSameDay(chatMessageList.get(i).getCreatedAt(),
+                        chatMessageList.get(i + 1).getCreatedAt())) {
+                    chatMessageList.get(i).setGrouped(true);
+                    countGroupedMessages++;
+                } else {
+                    countGroupedMessages = 0;
+                }
+            }
+            chatMessageList.get(i).setBaseUrl(conversationUser.getBaseUrl());
+            chatMessageList.get(i).setActiveUserId(conversationUser.getUserId());
+            if (globalLastKnownPastMessageId == -1 || chatMessageList.get(i).getJsonMessageId() <
+                    globalLastKnownPastMessageId) {
+                globalLastKnownPastMessageId = chatMessageList.get(i).getJsonMessageId();
+            }
+
+            if (globalLastKnownFutureMessageId == -1) {
+                if (chatMessageList.get(i).getJsonMessageId() > globalLastKnownFutureMessageId) {
+                    globalLastKnownFutureMessageId = chatMessageList.get(i).getJsonMessageId();
+                }
+            }
+        }
+
+        adapter.addToEnd(chatMessageList, false);
+        preloadAvatars(chatMessageList);
+    }
+
+    // a page of history mostly comes from a handful of people, fetch each of them once ahead of binding
+    private void preloadAvatars(List<ChatMessage> chatMessageList) {
+        Set<String> avatarUrls = new HashSet<>();
+        String avatarUrl;
+        for (ChatMessage chatMessage : chatMessageList) {
+            if ((avatarUrl = chatMessage.getUser().getAvatar()) != null && avatarUrls.add(avatarUrl)) {
+                AvatarPreloadModelProvider.getAvatarRequest(NextcloudTalkApplication.getSharedApplication()
+                        .getApplicationContext(), avatarUrl, getAvatarSize()).preload();
+            }
+        }
+    }
+
+    private int getAvatarSize() {
+        return Math.round(NextcloudTalkApplication.getSharedApplication().getResources()
+                .getDimension(R.dimen.avatar_size));
+    }
+
     private void pullChatMessages(int lookIntoFuture) {
         if (!inChat) {
             return;
         }
 
-        if (!lookingIntoFuture && lookIntoFuture == 1) {
-            lookingIntoFuture = true;
+        if (lookIntoFuture == 1) {
+            startChatPolling();
+            return;
         }
 
         Map<String, Integer> fieldMap = new HashMap<>();
         fieldMap.put("lookIntoFuture", lookIntoFuture);
         fieldMap.put("limit", 25);
 
-        int lastKnown;
-        if (lookIntoFuture == 1) {
-            lastKnown = globalLastKnownFutureMessageId;
-        } else {
-            lastKnown = globalLastKnownPastMessageId;
+        if (globalLastKnownPastMessageId != -1) {
+            fieldMap.put("lastKnownMessageId", globalLastKnownPastMessageId);
         }
 
-        if (lastKnown != -1) {
-            fieldMap.put("lastKnownMessageId", lastKnown);
-        }
+        ncApi.pullChatMessages(credentials,
+                ApiUtils.getUrlForChat(baseUrl, roomToken), fieldMap)
+                .subscribeOn(appSchedulers.network())
+                .doOnNext(this::prepareResponseMessages)
+                .observeOn(AndroidSchedulers.mainThread())
+                .retry(3, observable -> inChat)
+                .takeWhile(observable -> inChat)
+                .subscribe(new Observer<Response>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        disposableList.add(d);
+                    }
 
-        if (lookIntoFuture == 1) {
-            ncApi.pullChatMessages(credentials, ApiUtils.getUrlForChat(baseUrl, roomToken), fieldMap)
-                    .subscribeOn(Schedulers.newThread())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .takeWhile(observable -> inChat)
-                    .retry(3, observable -> inChat)
-                    .subscribe(new Observer<Response>() {
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            disposableList.add(d);
-                        }
+                    @Override
+                    public void onNext(Response response) {
+                        processMessages(response, false);
+                    }
 
-                        @Override
-                        public void onNext(Response response) {
-                            processMessages(response, true);
-                        }
+                    @Override
+                    public void onError(Throwable e) {
 
-                        @Override
-                        public void onError(Throwable e) {
+                    }
 
-                        }
+                    @Override
+                    public void onComplete() {
 
-                        @Override
-                        public void onComplete() {
-                            pullChatMessages(1);
-                        }
-                    });
+                    }
+                });
+    }
 
-        } else {
-            ncApi.pullChatMessages(credentials,
-                    ApiUtils.getUrlForChat(baseUrl, roomToken), fieldMap)
-                    .subscribeOn(Schedulers.newThread())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .retry(3, observable -> inChat)
-                    .takeWhile(observable -> inChat)
-                    .subscribe(new Observer<Response>() {
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            disposableList.add(d);
-                        }
+    private void startChatPolling() {
+        if (lookingIntoFuture) {
+            return;
+        }
 
-                        @Override
-                        public void onNext(Response response) {
-                            processMessages(response, false);
-                        }
+        lookingIntoFuture = true;
 
-                        @Override
-                        public void onError(Throwable e) {
+        showPendingMessages();
 
+        chatPollingEngine = new ChatPollingEngine(ncApi, appSchedulers, credentials,
+                ApiUtils.getUrlForChat(baseUrl, roomToken),
+                new ChatPollingEngine.ChatPollingListener() {
+                    @Override
+                    public void onPrepareMessages(Response<ChatOverall> response) {
+                        prepareResponseMessages(response);
+                    }
+
+                    @Override
+                    public void onMessagesReceived(Response<ChatOverall> response) {
+                        if (inChat) {
+                            processMessages(response, true);
                         }
+                    }
+                });
+        chatPollingEngine.start(globalLastKnownFutureMessageId);
+    }
 
-                        @Override
-                        public void onComplete() {
+    private void stopChatPolling() {
+        if (chatPollingEngine != null) {
+            chatPollingEngine.stop();
+            chatPollingEngine = null;
+        }
 
-                        }
-                    });
+        lookingIntoFuture = false;
+    }
+
+    private void prepareResponseMessages(Response response) {
+        if (response.code() == 200 && response.body() != null) {
+            prepareMessages(((ChatOverall) response.body()).getOcs().getData());
+        }
+    }
+
+    // builds the rendered text of new messages before they reach the adapter
+    private void prepareMessages(List<ChatMessage> chatMessageList) {
+        for (ChatMessage chatMessage : chatMessageList) {
+            chatMessage.setBaseUrl(conversationUser.getBaseUrl());
+            chatMessage.setActiveUserId(conversationUser.getUserId());
         }
+
+        PreparedMessageCache.getInstance().prepare(chatMessageList);
     }
 
     private void processMessages(Response response, boolean isFromTheFuture) {
@@ -771,38 +1160,10 @@ public class ChatController extends BaseController implements MessagesListAdapte
                 }
             }
 
-            int countGroupedMessages = 0;
-            if (!isFromTheFuture) {
-
-                for (int i = 0; i < chatMessageList.size(); i++) {
-                    if (chatMessageList.size() > i + 1) {
-                        if (TextUtils.isEmpty(chatMessageList.get(i).getSystemMessage()) &&
-                                TextUtils.isEmpty(chatMessageList.get(i + 1).getSystemMessage()) &&
-                                chatMessageList.get(i + 1).getActorId().equals(chatMessageList.get(i).getActorId()) &&
-                                countGroupedMessages < 4 && DateFormatter.isSameDay(chatMessageList.get(i).getCreatedAt(),
-                                chatMessageList.get(i + 1).getCreatedAt())) {
-                            chatMessageList.get(i).setGrouped(true);
-                            countGroupedMessages++;
-                        } else {
-                            countGroupedMessages = 0;
-                        }
-                    }
-                    chatMessageList.get(i).setBaseUrl(conversationUser.getBaseUrl());
-                    chatMessageList.get(i).setActiveUserId(conversationUser.getUserId());
-                    if (globalLastKnownPastMessageId == -1 || chatMessageList.get(i).getJsonMessageId() <
-                            globalLastKnownPastMessageId) {
-                        globalLastKnownPastMessageId = chatMessageList.get(i).getJsonMessageId();
-                    }
-
-                    if (globalLastKnownFutureMessageId == -1) {
-                        if (chatMessageList.get(i).getJsonMessageId() > globalLastKnownFutureMessageId) {
-                            globalLastKnownFutureMessageId = chatMessageList.get(i).getJsonMessageId();
-                        }
-                    }
-                }
-
-                adapter.addToEnd(chatMessageList, false);
+            cacheMessages(chatMessageList);
 
+            if (!isFromTheFuture) {
+                addHistoryMessages(chatMessageList);
             } else {
 
                 ChatMessage chatMessage;
@@ -812,6 +1173,14 @@ public class ChatController extends BaseController implements MessagesListAdapte
 
                     chatMessage.setBaseUrl(conversationUser.getBaseUrl());
                     chatMessageList.get(i).setActiveUserId(conversationUser.getUserId());
+
+                    ChatMessage localEcho = takeLocalEcho(chatMessage);
+                    if (localEcho != null) {
+                        chatMessage.setGrouped(localEcho.isGrouped());
+                        adapter.update(localEcho.getId(), chatMessage);
+                        continue;
+                    }
+
                     if (conversationUser.getUserId().equals("?") && myFirstMessage != null &&
                             !TextUtils.isEmpty(myFirstMessage.toString())) {
                         if (chatMessage.getActorType().equals("guests") &&
@@ -845,6 +1214,8 @@ public class ChatController extends BaseController implements MessagesListAdapte
                         ("X-Chat-Last-Given")))) {
                     globalLastKnownFutureMessageId = Integer.parseInt(xChatLastGivenHeader);
                 }
+
+                expireLocalEchoes();
             }
 
             if (!lookingIntoFuture && inChat) {
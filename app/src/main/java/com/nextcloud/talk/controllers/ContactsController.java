@@ -50,6 +50,7 @@ import com.bluelinelabs.conductor.changehandler.VerticalChangeHandler;
 import com.kennyc.bottomsheet.BottomSheet;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.activities.MagicCallActivity;
+import com.nextcloud.talk.adapters.items.ContactItemsIndex;
 import com.nextcloud.talk.adapters.items.ProgressItem;
 import com.nextcloud.talk.adapters.items.UserHeaderItem;
 import com.nextcloud.talk.adapters.items.UserItem;
@@ -68,6 +69,8 @@ import com.nextcloud.talk.models.json.sharees.ShareesOverall;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.glide.AvatarPreloadModelProvider;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
@@ -75,7 +78,6 @@ import org.greenrobot.eventbus.ThreadMode;
 import org.parceler.Parcels;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -98,7 +100,6 @@ import eu.davidea.flipview.FlipView;
 import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import retrofit2.HttpException;
 import retrofit2.Response;
 
@@ -130,12 +131,18 @@ public class ContactsController extends BaseController implements SearchView.OnQ
 
     @Inject
     NcApi ncApi;
+
+    @Inject
+    AppSchedulers appSchedulers;
+
     private String credentials;
     private UserEntity currentUser;
     private Disposable contactsQueryDisposable;
     private Disposable cacheQueryDisposable;
     private FlexibleAdapter adapter;
-    private List<AbstractFlexibleItem> contactItems = new ArrayList<>();
+    private ContactItemsIndex contactItemsIndex = new ContactItemsIndex();
+    // the adapter still shows contacts of an earlier fetch, so the next page has to replace them
+    private boolean contactItemsReset;
     private BottomSheet bottomSheet;
     private View view;
     private int currentPage;
@@ -150,8 +157,6 @@ public class ContactsController extends BaseController implements SearchView.OnQ
     private boolean isNewConversationView;
     private boolean isPublicCall;
 
-    private HashMap<String, UserHeaderItem> userHeaderItems = new HashMap<>();
-
     private boolean alreadyFetching = false;
     private boolean canFetchFurther = true;
     private boolean canFetchSearchFurther = true;
@@ -212,7 +217,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
         }
 
         if (adapter == null) {
-            adapter = new FlexibleAdapter<>(contactItems, getActivity(), false);
+            adapter = new FlexibleAdapter<>(new ArrayList<>(contactItemsIndex.getItems()), getActivity(), false);
 
             if (currentUser != null) {
                 fetchData(true);
@@ -252,7 +257,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
                     ((UserItem) adapter.getItem(adapter.getSelectedPositions().get(0))).getModel().getUserId(), null);
             ncApi.createRoom(credentials,
                     retrofitBucket.getUrl(), retrofitBucket.getQueryMap())
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(new Observer<RoomOverall>() {
                         @Override
@@ -360,7 +365,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
                             if (finalBottomNavigationView != null) {
                                 finalBottomNavigationView.setVisibility(View.VISIBLE);
                             }
-                            searchItem.setVisible(contactItems.size() > 0);
+                            searchItem.setVisible(contactItemsIndex.size() > 0);
                         }, 500);
                     }
 
@@ -400,7 +405,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
     @Override
     public void onPrepareOptionsMenu(Menu menu) {
         super.onPrepareOptionsMenu(menu);
-        searchItem.setVisible(contactItems.size() > 0);
+        searchItem.setVisible(contactItemsIndex.size() > 0);
         if (adapter.hasFilter()) {
             searchItem.expandActionView();
             searchView.setQuery((CharSequence) adapter.getFilter(String.class), false);
@@ -414,14 +419,12 @@ public class ContactsController extends BaseController implements SearchView.OnQ
         alreadyFetching = true;
         Set<Sharee> shareeHashSet = new HashSet<>();
 
-        userHeaderItems = new HashMap<>();
-
-
         String query = "";
         if (searchView != null && !TextUtils.isEmpty(searchView.getQuery())) {
             query = searchView.getQuery().toString();
         } else if (startFromScratch) {
-            contactItems = new ArrayList<>();
+            contactItemsIndex = new ContactItemsIndex();
+            contactItemsReset = true;
         }
 
         RetrofitBucket retrofitBucket = ApiUtils.getRetrofitBucketForContactsSearch(currentUser.getBaseUrl(),
@@ -442,7 +445,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
         ncApi.getContactsWithSearchParam(
                 credentials,
                 retrofitBucket.getUrl(), modifiedQueryMap)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .retry(3)
                 .subscribe(new Observer<Response>() {
@@ -476,73 +479,39 @@ public class ContactsController extends BaseController implements SearchView.OnQ
 
 
                             Participant participant;
+                            UserItem newContactItem;
 
-                            List<AbstractFlexibleItem> newUserItemList = new ArrayList<>();
-                            newUserItemList.addAll(contactItems);
+                            List<UserItem> newContactItems = new ArrayList<>();
                             for (Sharee sharee : shareeHashSet) {
                                 if (!sharee.getValue().getShareWith().equals(currentUser.getUsername())) {
                                     participant = new Participant();
                                     participant.setName(sharee.getLabel());
-                                    String headerTitle;
-
-                                    headerTitle = sharee.getLabel().substring(0, 1).toUpperCase();
-
-                                    UserHeaderItem userHeaderItem;
-                                    if (!userHeaderItems.containsKey(headerTitle)) {
-                                        userHeaderItem = new UserHeaderItem(headerTitle);
-                                        userHeaderItems.put(headerTitle, userHeaderItem);
-                                    }
-
                                     participant.setUserId(sharee.getValue().getShareWith());
 
-                                    UserItem newContactItem = new UserItem(participant, currentUser,
-                                            userHeaderItems.get(headerTitle));
-
-                                    if (!contactItems.contains(newContactItem)) {
-                                        newUserItemList.add(newContactItem);
+                                    if ((newContactItem = contactItemsIndex.add(participant, currentUser)) != null) {
+                                        newContactItems.add(newContactItem);
                                     }
-
                                 }
-
-                            }
-
-
-                            boolean shouldFilterManually = false;
-                            if (newUserItemList.size() == contactItems.size()) {
-                                shouldFilterManually = true;
                             }
 
-                            contactItems = newUserItemList;
-                            userHeaderItems = new HashMap<>();
-
-                            Collections.sort(newUserItemList, (o1, o2) -> {
-                                String firstName;
-                                String secondName;
-
-                                if (o1 instanceof UserItem) {
-                                    firstName = ((UserItem) o1).getModel().getName();
-                                } else {
-                                    firstName = ((UserHeaderItem) o1).getModel();
-                                }
-
-                                if (o2 instanceof UserItem) {
-                                    secondName = ((UserItem) o2).getModel().getName();
-                                } else {
-                                    secondName = ((UserHeaderItem) o2).getModel();
-                                }
-
-                                return firstName.compareToIgnoreCase(secondName);
-                            });
-
-
-                            if (!shouldFilterManually) {
-                                adapter.updateDataSet(newUserItemList, false);
-                            } else {
+                            boolean sectionsAdded = contactItemsIndex.takeSectionsAdded();
+                            if (newContactItems.size() == 0 && !contactItemsReset) {
                                 adapter.filterItems();
                                 adapter.onLoadMoreComplete(null);
+                            } else if (contactItemsReset || sectionsAdded || adapter.hasFilter()) {
+                                // new headers and filtered lists don't map onto our positions
+                                contactItemsReset = false;
+                                adapter.updateDataSet(new ArrayList<>(contactItemsIndex.getItems()), false);
+                            } else {
+                                // inserting in ascending order puts every item straight at its final position
+                                contactItemsIndex.sortByPosition(newContactItems);
+                                for (UserItem userItem : newContactItems) {
+                                    adapter.addItem(contactItemsIndex.getAdapterPosition(userItem), userItem);
+                                }
+                                adapter.onLoadMoreComplete(null);
                             }
 
-                            searchItem.setVisible(newUserItemList.size() > 0);
+                            searchItem.setVisible(contactItemsIndex.size() > 0);
                             if (swipeRefreshLayout != null) {
                                 swipeRefreshLayout.setRefreshing(false);
                             }
@@ -604,6 +573,8 @@ public class ContactsController extends BaseController implements SearchView.OnQ
         recyclerView.setLayoutManager(layoutManager);
         recyclerView.setHasFixedSize(true);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(AvatarPreloadModelProvider.getPreloader(getActivity(), adapter,
+                Math.round(getResources().getDimension(R.dimen.avatar_size))));
 
         swipeRefreshLayout.setOnRefreshListener(() -> fetchData(true));
         swipeRefreshLayout.setColorSchemeResources(R.color.colorPrimary);
@@ -784,7 +755,7 @@ public class ContactsController extends BaseController implements SearchView.OnQ
                         userItem.getModel().getUserId(), null);
                 ncApi.createRoom(credentials,
                         retrofitBucket.getUrl(), retrofitBucket.getQueryMap())
-                        .subscribeOn(Schedulers.newThread())
+                        .subscribeOn(appSchedulers.network())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe(new Observer<RoomOverall>() {
                             @Override
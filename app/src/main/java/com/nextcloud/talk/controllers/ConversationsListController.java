@@ -35,6 +35,7 @@ import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.SearchView;
 import android.text.InputType;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -55,6 +56,7 @@ import com.nextcloud.talk.R;
 import com.nextcloud.talk.activities.MagicCallActivity;
 import com.nextcloud.talk.adapters.items.CallItem;
 import com.nextcloud.talk.adapters.items.ConversationItem;
+import com.nextcloud.talk.adapters.items.ConversationItemsDiff;
 import com.nextcloud.talk.api.NcApi;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.controllers.base.BaseController;
@@ -68,9 +70,12 @@ import com.nextcloud.talk.models.json.rooms.Conversation;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.KeyboardUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
+import com.nextcloud.talk.utils.database.conversations.ConversationListUtils;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.glide.AvatarPreloadModelProvider;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+import com.nextcloud.talk.utils.singletons.ApplicationWideStartupMetricsHolder;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
@@ -88,9 +93,9 @@ import eu.davidea.fastscroller.FastScroller;
 import eu.davidea.flexibleadapter.FlexibleAdapter;
 import eu.davidea.flexibleadapter.common.SmoothScrollLinearLayoutManager;
 import eu.davidea.flexibleadapter.items.AbstractFlexibleItem;
+import io.reactivex.CompletableObserver;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import retrofit2.HttpException;
 
 @AutoInjector(NextcloudTalkApplication.class)
@@ -111,6 +116,12 @@ public class ConversationsListController extends BaseController implements Searc
     @Inject
     NcApi ncApi;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
+    @Inject
+    ConversationListUtils conversationListUtils;
+
     @BindView(R.id.recycler_view)
     RecyclerView recyclerView;
 
@@ -142,6 +153,7 @@ public class ConversationsListController extends BaseController implements Searc
     private String credentials;
 
     private boolean adapterWasNull = true;
+    private boolean cachedConversationsLoaded;
 
     public ConversationsListController() {
         super();
@@ -163,7 +175,7 @@ public class ConversationsListController extends BaseController implements Searc
         }
 
         if (adapter == null) {
-            adapter = new FlexibleAdapter<>(callItems, getActivity(), false);
+            adapter = new FlexibleAdapter<>(new ArrayList<>(callItems), getActivity(), false);
         } else {
             progressBarView.setVisibility(View.GONE);
         }
@@ -280,22 +292,88 @@ public class ConversationsListController extends BaseController implements Searc
         }
     }
 
+    private void loadCachedConversations(boolean fromBottomSheet) {
+        cachedConversationsLoaded = true;
+
+        roomsQueryDisposable = conversationListUtils.getCachedConversations(currentUser.getId())
+                .observeOn(appSchedulers.computation())
+                .map(this::getSortedItems)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(items -> {
+                    if (items.size() > 0) {
+                        if (adapterWasNull) {
+                            adapterWasNull = false;
+                            progressBarView.setVisibility(View.GONE);
+                        }
+
+                        if (emptyLayoutView.getVisibility() != View.GONE) {
+                            emptyLayoutView.setVisibility(View.GONE);
+                        }
+
+                        if (swipeRefreshLayout.getVisibility() != View.VISIBLE) {
+                            swipeRefreshLayout.setVisibility(View.VISIBLE);
+                        }
+
+                        callItems = items;
+                        adapter.updateDataSet(new ArrayList<>(callItems), false);
+
+                        if (searchItem != null) {
+                            searchItem.setVisible(true);
+                        }
+
+                        ApplicationWideStartupMetricsHolder.getInstance().markFirstListShown(true);
+                    }
+
+                    fetchData(fromBottomSheet);
+                }, throwable -> fetchData(fromBottomSheet), () -> fetchData(fromBottomSheet));
+    }
+
+    private void cacheConversations(List<Conversation> conversations) {
+        conversationListUtils.storeConversations(currentUser.getId(), conversations)
+                .subscribe(new CompletableObserver() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Failed to cache conversations");
+                    }
+                });
+    }
+
     private void fetchData(boolean fromBottomSheet) {
         dispose(null);
 
-        callItems = new ArrayList<>();
+        // show what we had last time right away, the network response is reconciled against it
+        if (!cachedConversationsLoaded && callItems.size() == 0) {
+            loadCachedConversations(fromBottomSheet);
+            return;
+        }
+
+        List<AbstractFlexibleItem> previousItems = callItems;
 
         roomsQueryDisposable = ncApi.getRooms(credentials, ApiUtils.getUrlForGetRooms(currentUser.getBaseUrl()))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
+                .observeOn(appSchedulers.computation())
+                .doOnNext(roomsOverall -> cacheConversations(roomsOverall.getOcs().getData()))
+                .map(roomsOverall -> ConversationItemsDiff.calculate(previousItems,
+                        getSortedItems(roomsOverall.getOcs().getData())))
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(roomsOverall -> {
+                .subscribe(conversationItemsDiff -> {
 
                     if (adapterWasNull) {
                         adapterWasNull = false;
                         progressBarView.setVisibility(View.GONE);
                     }
 
-                    if (roomsOverall.getOcs().getData().size() > 0) {
+                    if (conversationItemsDiff.getItems().size() > 0) {
                         if (emptyLayoutView.getVisibility() != View.GONE) {
                             emptyLayoutView.setVisibility(View.GONE);
                         }
@@ -313,33 +391,15 @@ public class ConversationsListController extends BaseController implements Searc
                         }
                     }
 
-                    for (int i = 0; i < roomsOverall.getOcs().getData().size(); i++) {
-                        if (shouldUseLastMessageLayout) {
-                            callItems.add(new ConversationItem(roomsOverall.getOcs().getData().get(i),
-                                    currentUser));
-                        } else {
-                            callItems.add(new CallItem(roomsOverall.getOcs().getData().get(i), currentUser));
-                        }
-                    }
-
+                    callItems = conversationItemsDiff.getItems();
 
-                    if (currentUser.hasSpreedCapabilityWithName("last-room-activity")) {
-                        Collections.sort(callItems, (o1, o2) -> {
-                            Conversation conversation1 = ((ConversationItem) o1).getModel();
-                            Conversation conversation2 = ((ConversationItem) o2).getModel();
-                            return new CompareToBuilder()
-                                    .append(conversation2.isFavorite(), conversation1.isFavorite())
-                                    .append(conversation2.getLastActivity(), conversation1.getLastActivity())
-                                    .toComparison();
-                        });
-                    } else {
-                        Collections.sort(callItems, (callItem, t1) ->
-                                Long.compare(((CallItem) t1).getModel().getLastPing(),
-                                        ((CallItem) callItem).getModel().getLastPing()));
+                    if (previousItems.size() == 0 || adapter.hasFilter() ||
+                            adapter.getItemCount() != previousItems.size()) {
+                        adapter.updateDataSet(new ArrayList<>(callItems), false);
+                    } else if (conversationItemsDiff.hasChanges()) {
+                        conversationItemsDiff.dispatchTo(adapter);
                     }
 
-                    adapter.updateDataSet(callItems, true);
-
                     if (searchItem != null) {
                         searchItem.setVisible(callItems.size() > 0);
                     }
@@ -348,6 +408,8 @@ public class ConversationsListController extends BaseController implements Searc
                         swipeRefreshLayout.setRefreshing(false);
                     }
 
+                    ApplicationWideStartupMetricsHolder.getInstance().markFirstListShown(false);
+
                 }, throwable -> {
                     if (searchItem != null) {
                         searchItem.setVisible(false);
@@ -393,6 +455,35 @@ public class ConversationsListController extends BaseController implements Searc
 
     }
 
+    private List<AbstractFlexibleItem> getSortedItems(List<Conversation> conversations) {
+        List<AbstractFlexibleItem> items = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            if (shouldUseLastMessageLayout) {
+                items.add(new ConversationItem(conversation, currentUser));
+            } else {
+                items.add(new CallItem(conversation, currentUser));
+            }
+        }
+
+        if (shouldUseLastMessageLayout) {
+            Collections.sort(items, (o1, o2) -> {
+                Conversation conversation1 = ((ConversationItem) o1).getModel();
+                Conversation conversation2 = ((ConversationItem) o2).getModel();
+                if (conversation1.isFavorite() != conversation2.isFavorite()) {
+                    return conversation1.isFavorite() ? -1 : 1;
+                }
+
+                return Long.compare(conversation2.getLastActivity(), conversation1.getLastActivity());
+            });
+        } else {
+            Collections.sort(items, (callItem, t1) ->
+                    Long.compare(((CallItem) t1).getModel().getLastPing(),
+                            ((CallItem) callItem).getModel().getLastPing()));
+        }
+
+        return items;
+    }
+
     private void prepareViews() {
         SmoothScrollLinearLayoutManager layoutManager =
                 new SmoothScrollLinearLayoutManager(getActivity());
@@ -400,6 +491,8 @@ public class ConversationsListController extends BaseController implements Searc
         recyclerView.setHasFixedSize(true);
 
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(AvatarPreloadModelProvider.getPreloader(getActivity(), adapter,
+                Math.round(getResources().getDimension(R.dimen.avatar_size))));
 
         recyclerView.addItemDecoration(new DividerItemDecoration(
                 recyclerView.getContext(),
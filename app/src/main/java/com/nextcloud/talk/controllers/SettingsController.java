@@ -41,7 +41,6 @@ import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
 import com.bluelinelabs.conductor.changehandler.VerticalChangeHandler;
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.load.model.LazyHeaders;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.BuildConfig;
@@ -59,6 +58,7 @@ import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.nextcloud.talk.utils.glide.GlideApp;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
 import com.nextcloud.talk.utils.preferences.MagicUserInputModule;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideMessageHolder;
 import com.yarolegovich.mp.MaterialChoicePreference;
 import com.yarolegovich.mp.MaterialEditTextPreference;
@@ -87,7 +87,6 @@ import autodagger.AutoInjector;
 import butterknife.BindView;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class SettingsController extends BaseController {
@@ -166,6 +165,9 @@ public class SettingsController extends BaseController {
     @Inject
     UserUtils userUtils;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     private UserEntity currentUser;
     private String credentials;
 
@@ -381,7 +383,7 @@ public class SettingsController extends BaseController {
 
             profileQueryDisposable = ncApi.getUserProfile(credentials,
                     ApiUtils.getUrlForUserProfile(currentUser.getBaseUrl()))
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(appSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(userProfileOverall -> {
 
@@ -403,7 +405,7 @@ public class SettingsController extends BaseController {
                                     null,
                                     null, displayName, null, null,
                                     null, currentUser.getId(), null, null)
-                                    .subscribeOn(Schedulers.newThread())
+                                    .subscribeOn(appSchedulers.database())
                                     .observeOn(AndroidSchedulers.mainThread())
                                     .subscribe(userEntityResult -> {
                                                 displayNameTextView.setText(userEntityResult.getDisplayName());
@@ -511,11 +513,8 @@ public class SettingsController extends BaseController {
             avatarId = currentUser.getUsername();
         }
 
-        GlideUrl glideUrl = new GlideUrl(ApiUtils.getUrlForAvatarWithName(currentUser.getBaseUrl(),
-                avatarId, R.dimen.avatar_size_big), new LazyHeaders.Builder()
-                .setHeader("Accept", "image/*")
-                .setHeader("User-Agent", ApiUtils.getUserAgent())
-                .build());
+        GlideUrl glideUrl = ApiUtils.getGlideUrlForAvatarWithName(currentUser.getBaseUrl(),
+                avatarId, R.dimen.avatar_size_big);
 
         GlideApp.with(NextcloudTalkApplication.getSharedApplication().getApplicationContext())
                 .load(glideUrl)
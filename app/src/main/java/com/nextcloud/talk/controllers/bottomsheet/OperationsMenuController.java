@@ -59,6 +59,7 @@ import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.DisplayUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.ApplicationWideMessageHolder;
 
 import org.greenrobot.eventbus.EventBus;
@@ -74,7 +75,6 @@ import butterknife.BindView;
 import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import retrofit2.HttpException;
 
 @AutoInjector(NextcloudTalkApplication.class)
@@ -104,6 +104,9 @@ public class OperationsMenuController extends BaseController {
     @Inject
     EventBus eventBus;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     private int operationCode;
     private Conversation conversation;
 
@@ -183,7 +186,7 @@ public class OperationsMenuController extends BaseController {
                 case 1:
                     ncApi.removeSelfFromRoom(credentials, ApiUtils.getUrlForRemoveSelfFromRoom(currentUser.getBaseUrl
                             (), conversation.getToken()))
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
@@ -191,7 +194,7 @@ public class OperationsMenuController extends BaseController {
                 case 2:
                     ncApi.renameRoom(credentials, ApiUtils.getRoom(currentUser.getBaseUrl(), conversation.getToken()),
                             conversation.getName())
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
@@ -199,7 +202,7 @@ public class OperationsMenuController extends BaseController {
                 case 3:
                     ncApi.makeRoomPublic(credentials, ApiUtils.getUrlForRoomVisibility(currentUser.getBaseUrl(), conversation
                             .getToken()))
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
@@ -213,7 +216,7 @@ public class OperationsMenuController extends BaseController {
                     }
                     ncApi.setPassword(credentials, ApiUtils.getUrlForPassword(currentUser.getBaseUrl(),
                             conversation.getToken()), pass)
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
@@ -224,21 +227,21 @@ public class OperationsMenuController extends BaseController {
                 case 8:
                     ncApi.makeRoomPrivate(credentials, ApiUtils.getUrlForRoomVisibility(currentUser.getBaseUrl(), conversation
                             .getToken()))
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
                     break;
                 case 9:
                     ncApi.deleteRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(currentUser.getBaseUrl(), conversation.getToken()))
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
                     break;
                 case 10:
                     ncApi.getRoom(credentials, ApiUtils.getRoom(baseUrl, conversationToken))
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(new Observer<RoomOverall>() {
@@ -284,7 +287,7 @@ public class OperationsMenuController extends BaseController {
 
                     final boolean isGroupCallWorkaroundFinal = isGroupCallWorkaround;
                     ncApi.createRoom(credentials, retrofitBucket.getUrl(), retrofitBucket.getQueryMap())
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(new Observer<RoomOverall>() {
@@ -321,14 +324,14 @@ public class OperationsMenuController extends BaseController {
                     if (operationCode == 97) {
                         ncApi.removeConversationFromFavorites(credentials, ApiUtils.getUrlForConversationFavorites(currentUser.getBaseUrl(),
                                 conversation.getToken()))
-                                .subscribeOn(Schedulers.newThread())
+                                .subscribeOn(appSchedulers.network())
                                 .observeOn(AndroidSchedulers.mainThread())
                                 .retry(1)
                                 .subscribe(operationsObserver);
                     } else {
                         ncApi.addConversationToFavorites(credentials, ApiUtils.getUrlForConversationFavorites(currentUser.getBaseUrl(),
                                 conversation.getToken()))
-                                .subscribeOn(Schedulers.newThread())
+                                .subscribeOn(appSchedulers.network())
                                 .observeOn(AndroidSchedulers.mainThread())
                                 .retry(1)
                                 .subscribe(operationsObserver);
@@ -337,7 +340,7 @@ public class OperationsMenuController extends BaseController {
                 case 99:
                     ncApi.joinRoom(credentials, ApiUtils.getUrlForSettingMyselfAsActiveParticipant(baseUrl, conversationToken),
                             callPassword)
-                            .subscribeOn(Schedulers.newThread())
+                            .subscribeOn(appSchedulers.network())
                             .observeOn(AndroidSchedulers.mainThread())
                             .retry(1)
                             .subscribe(operationsObserver);
@@ -350,7 +353,7 @@ public class OperationsMenuController extends BaseController {
 
     private void performGroupCallWorkaround(String credentials) {
         ncApi.makeRoomPrivate(credentials, ApiUtils.getUrlForRoomVisibility(currentUser.getBaseUrl(), conversation.getToken()))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .retry(1)
                 .subscribe(new Observer<GenericOverall>() {
@@ -438,7 +441,7 @@ public class OperationsMenuController extends BaseController {
 
     private void fetchCapabilities(String credentials) {
         ncApi.getCapabilities(credentials, ApiUtils.getUrlForCapabilities(baseUrl))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(appSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<CapabilitiesOverall>() {
                     @Override
@@ -508,7 +511,7 @@ public class OperationsMenuController extends BaseController {
                         userId);
 
                 ncApi.addParticipant(credentials, retrofitBucket.getUrl(), retrofitBucket.getQueryMap())
-                        .subscribeOn(Schedulers.newThread())
+                        .subscribeOn(appSchedulers.network())
                         .observeOn(AndroidSchedulers.mainThread())
                         .retry(1)
                         .subscribe(new Observer<AddParticipantOverall>() {
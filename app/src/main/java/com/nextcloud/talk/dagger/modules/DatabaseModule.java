@@ -25,9 +25,12 @@ import android.support.annotation.NonNull;
 
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.models.database.Models;
+import com.nextcloud.talk.utils.database.chat.ChatMessageSearchIndex;
+import com.nextcloud.talk.utils.database.chat.ChatMessageUtils;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
 
 import net.orange_box.storebox.StoreBox;
+import net.sqlcipher.database.SQLiteDatabase;
 
 import javax.inject.Singleton;
 
@@ -49,7 +52,20 @@ public class DatabaseModule {
         return new SqlCipherDatabaseSource(context, Models.DEFAULT,
                 context.getResources().getString(R.string.nc_app_name).toLowerCase()
                         .replace(" ", "_").trim() + ".sqlite",
-                context.getString(R.string.nc_talk_database_encryption_key), 4);
+                context.getString(R.string.nc_talk_database_encryption_key), 10) {
+            @Override
+            public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                super.onUpgrade(db, oldVersion, newVersion);
+                ChatMessageUtils.upgradeDatabase(db, oldVersion);
+                ChatMessageSearchIndex.upgradeDatabase(db, oldVersion);
+            }
+
+            @Override
+            public void onOpen(SQLiteDatabase db) {
+                super.onOpen(db);
+                ChatMessageSearchIndex.openDatabase(db);
+            }
+        };
     }
 
     @Provides
@@ -59,6 +75,13 @@ public class DatabaseModule {
         return ReactiveSupport.toReactiveStore(new EntityDataStore<Persistable>(configuration));
     }
 
+    @Provides
+    @Singleton
+    public ChatMessageSearchIndex provideChatMessageSearchIndex(@NonNull final SqlCipherDatabaseSource
+                                                                        sqlCipherDatabaseSource) {
+        return new ChatMessageSearchIndex(sqlCipherDatabaseSource);
+    }
+
     @Provides
     @Singleton
     public AppPreferences providePreferences(@NonNull final Context poContext) {
@@ -27,11 +27,17 @@ import android.util.Log;
 
 import com.github.aurae.retrofit2.LoganSquareConverterFactory;
 import com.nextcloud.talk.BuildConfig;
+import com.nextcloud.talk.api.AvatarCache;
+import com.nextcloud.talk.api.AvatarInterceptor;
 import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
+import com.nextcloud.talk.api.RevalidationInterceptor;
+import com.nextcloud.talk.api.RevalidationStore;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.nextcloud.talk.utils.singletons.AvatarStatusCodeHolder;
 import com.nextcloud.talk.utils.ssl.MagicKeyManager;
 import com.nextcloud.talk.utils.ssl.MagicTrustManager;
@@ -54,7 +60,6 @@ import javax.net.ssl.X509KeyManager;
 
 import dagger.Module;
 import dagger.Provides;
-import io.reactivex.schedulers.Schedulers;
 import okhttp3.Authenticator;
 import okhttp3.Cache;
 import okhttp3.Credentials;
@@ -81,6 +86,12 @@ public class RestModule {
         return retrofit.create(NcApi.class);
     }
 
+    @Singleton
+    @Provides
+    NcApiProvider provideNcApiProvider(Retrofit retrofit, OkHttpClient okHttpClient) {
+        return new NcApiProvider(retrofit, okHttpClient);
+    }
+
     @Singleton
     @Provides
     Proxy provideProxy(AppPreferences appPreferences) {
@@ -103,11 +114,11 @@ public class RestModule {
 
     @Singleton
     @Provides
-    Retrofit provideRetrofit(OkHttpClient httpClient) {
+    Retrofit provideRetrofit(OkHttpClient httpClient, AppSchedulers appSchedulers) {
         Retrofit.Builder retrofitBuilder = new Retrofit.Builder()
                 .client(httpClient)
                 .baseUrl("https://nextcloud.com")
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.createWithScheduler(Schedulers.io()))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.createWithScheduler(appSchedulers.network()))
                 .addConverterFactory(LoganSquareConverterFactory.create());
 
         return retrofitBuilder.build();
@@ -166,6 +177,18 @@ public class RestModule {
         return new Cache(NextcloudTalkApplication.getSharedApplication().getCacheDir(), cacheSize);
     }
 
+    @Singleton
+    @Provides
+    RevalidationStore provideRevalidationStore() {
+        return new RevalidationStore();
+    }
+
+    @Singleton
+    @Provides
+    AvatarCache provideAvatarCache() {
+        return new AvatarCache();
+    }
+
     @Singleton
     @Provides
     Dispatcher provideDispatcher() {
@@ -180,7 +203,8 @@ public class RestModule {
     OkHttpClient provideHttpClient(Proxy proxy, AppPreferences appPreferences,
                                    MagicTrustManager magicTrustManager,
                                    SSLSocketFactoryCompat sslSocketFactoryCompat, Cache cache,
-                                   CookieManager cookieManager, Dispatcher dispatcher) {
+                                   CookieManager cookieManager, Dispatcher dispatcher,
+                                   RevalidationStore revalidationStore, AvatarCache avatarCache) {
         OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
 
         httpClient.connectTimeout(45, TimeUnit.SECONDS);
@@ -215,8 +239,15 @@ public class RestModule {
         }
 
         httpClient.addInterceptor(new HeadersInterceptor());
+        httpClient.addInterceptor(new RevalidationInterceptor(revalidationStore));
+
+        AvatarInterceptor avatarInterceptor = new AvatarInterceptor(avatarCache);
+        httpClient.addInterceptor(avatarInterceptor);
+
+        OkHttpClient okHttpClient = httpClient.build();
+        avatarInterceptor.setHttpClient(okHttpClient);
 
-        return httpClient.build();
+        return okHttpClient;
     }
 
     private class ProxyAuthenticator implements Authenticator {
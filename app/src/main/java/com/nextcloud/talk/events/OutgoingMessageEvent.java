@@ -0,0 +1,42 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.events;
+
+import lombok.Data;
+
+/*
+    Posted by SendMessagesWorker once a queued message left the outbox, either because the server
+    took it or because it was dropped for good.
+ */
+@Data
+public class OutgoingMessageEvent {
+    private long internalUserId;
+    private String roomToken;
+    private long outgoingMessageId;
+    private boolean sent;
+
+    public OutgoingMessageEvent(long internalUserId, String roomToken, long outgoingMessageId, boolean sent) {
+        this.internalUserId = internalUserId;
+        this.roomToken = roomToken;
+        this.outgoingMessageId = outgoingMessageId;
+        this.sent = sent;
+    }
+}
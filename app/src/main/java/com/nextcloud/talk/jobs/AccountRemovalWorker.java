@@ -30,16 +30,18 @@ import android.util.Log;
 
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.nextcloud.talk.R;
+import com.nextcloud.talk.api.AvatarCache;
 import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.database.UserEntity;
 import com.nextcloud.talk.models.json.generic.GenericOverall;
 import com.nextcloud.talk.models.json.push.PushConfigurationState;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePushKeysHolder;
 
 import java.io.IOException;
-import java.net.CookieManager;
 import java.util.HashMap;
 import java.util.zip.CRC32;
 
@@ -50,9 +52,6 @@ import autodagger.AutoInjector;
 import io.reactivex.CompletableObserver;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import okhttp3.JavaNetCookieJar;
-import okhttp3.OkHttpClient;
-import retrofit2.Retrofit;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class AccountRemovalWorker extends Worker {
@@ -62,10 +61,10 @@ public class AccountRemovalWorker extends Worker {
     UserUtils userUtils;
 
     @Inject
-    Retrofit retrofit;
+    NcApiProvider ncApiProvider;
 
     @Inject
-    OkHttpClient okHttpClient;
+    AvatarCache avatarCache;
 
     NcApi ncApi;
 
@@ -76,8 +75,11 @@ public class AccountRemovalWorker extends Worker {
 
         PushConfigurationState pushConfigurationState;
         String credentials;
+        boolean removedUsers = false;
         for (Object userEntityObject : userUtils.getUsersScheduledForDeletion()) {
             UserEntity userEntity = (UserEntity) userEntityObject;
+            removedUsers = true;
+            ApplicationWidePushKeysHolder.getInstance().invalidateUser(userEntity.getId());
             try {
                 if (!TextUtils.isEmpty(userEntity.getPushConfigurationState())) {
                     pushConfigurationState = LoganSquare.parse(userEntity.getPushConfigurationState(),
@@ -86,8 +88,7 @@ public class AccountRemovalWorker extends Worker {
 
                     credentials = ApiUtils.getCredentials(userEntity.getUsername(), userEntity.getToken());
 
-                    ncApi = retrofit.newBuilder().client(okHttpClient.newBuilder().cookieJar(new
-                            JavaNetCookieJar(new CookieManager())).build()).build().create(NcApi.class);
+                    ncApi = ncApiProvider.getNcApi(userEntity);
 
                     String finalCredentials = credentials;
                     ncApi.unregisterDeviceForNotificationsWithNextcloud(credentials, ApiUtils.getUrlNextcloudPush(userEntity
@@ -215,6 +216,13 @@ public class AccountRemovalWorker extends Worker {
                             }
                         });
             }
+
+            ncApiProvider.evict(userEntity.getId());
+        }
+
+        // avatars are cached by URL, not by account, so this can't be limited to the removed ones
+        if (removedUsers) {
+            avatarCache.clear();
         }
 
         return Result.SUCCESS;
@@ -25,6 +25,7 @@ import android.util.Log;
 
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.events.EventStatus;
 import com.nextcloud.talk.models.database.UserEntity;
@@ -32,11 +33,11 @@ import com.nextcloud.talk.models.json.capabilities.CapabilitiesOverall;
 import com.nextcloud.talk.utils.ApiUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.singletons.ApplicationWideCapabilitiesHolder;
 
 import org.greenrobot.eventbus.EventBus;
 
 import java.io.IOException;
-import java.net.CookieManager;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,9 +48,6 @@ import androidx.work.Worker;
 import autodagger.AutoInjector;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import okhttp3.JavaNetCookieJar;
-import okhttp3.OkHttpClient;
-import retrofit2.Retrofit;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class CapabilitiesWorker extends Worker {
@@ -59,14 +57,11 @@ public class CapabilitiesWorker extends Worker {
     UserUtils userUtils;
 
     @Inject
-    Retrofit retrofit;
+    NcApiProvider ncApiProvider;
 
     @Inject
     EventBus eventBus;
 
-    @Inject
-    OkHttpClient okHttpClient;
-
     NcApi ncApi;
 
     private void updateUser(CapabilitiesOverall capabilitiesOverall, UserEntity internalUserEntity) {
@@ -83,6 +78,7 @@ public class CapabilitiesWorker extends Worker {
 
                         @Override
                         public void onNext(UserEntity userEntity) {
+                            ApplicationWideCapabilitiesHolder.getInstance().invalidate(userEntity.getId());
                             eventBus.post(new EventStatus(userEntity.getId(),
                                     EventStatus.EventType.CAPABILITIES_FETCH, true));
                         }
@@ -125,8 +121,7 @@ public class CapabilitiesWorker extends Worker {
         for (Object userEntityObject : userEntityObjectList) {
             UserEntity internalUserEntity = (UserEntity) userEntityObject;
 
-            ncApi = retrofit.newBuilder().client(okHttpClient.newBuilder().cookieJar(new
-                    JavaNetCookieJar(new CookieManager())).build()).build().create(NcApi.class);
+            ncApi = ncApiProvider.getNcApi(internalUserEntity);
 
             ncApi.getCapabilities(ApiUtils.getCredentials(internalUserEntity.getUsername(),
                     internalUserEntity.getToken()), ApiUtils.getUrlForCapabilities(internalUserEntity.getBaseUrl()))
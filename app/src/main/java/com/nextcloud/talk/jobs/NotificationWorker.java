@@ -34,16 +34,19 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
+import android.service.notification.StatusBarNotification;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.util.Base64;
 import android.util.Log;
+import android.util.SparseArray;
 
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.activities.MagicCallActivity;
 import com.nextcloud.talk.activities.MainActivity;
 import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.RingtoneSettings;
 import com.nextcloud.talk.models.SignatureVerification;
@@ -60,44 +63,48 @@ import com.nextcloud.talk.utils.PushUtils;
 import com.nextcloud.talk.utils.bundle.BundleKeys;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
 import com.nextcloud.talk.utils.singletons.ApplicationWideCurrentRoomHolder;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePendingNotificationsHolder;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePushKeysHolder;
 import com.nextcloud.talk.utils.singletons.ApplicationWideStateHolder;
 
 import org.parceler.Parcels;
 
 import java.io.IOException;
-import java.net.CookieManager;
 import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 
 import javax.crypto.Cipher;
-import javax.crypto.NoSuchPaddingException;
 import javax.inject.Inject;
 
 import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
 import androidx.work.Worker;
 import autodagger.AutoInjector;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import okhttp3.JavaNetCookieJar;
-import okhttp3.OkHttpClient;
-import retrofit2.Retrofit;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class NotificationWorker extends Worker {
     public static final String TAG = "NotificationWorker";
 
-    @Inject
-    AppPreferences appPreferences;
+    // pushes for the same conversation arriving within this window are rendered together
+    private static final long COALESCING_WINDOW_MS = 1500;
+
+    private static final SparseArray<Bitmap> largeIcons = new SparseArray<>();
 
     @Inject
-    Retrofit retrofit;
+    AppPreferences appPreferences;
 
     @Inject
-    OkHttpClient okHttpClient;
+    NcApiProvider ncApiProvider;
 
     NcApi ncApi;
 
@@ -108,6 +115,23 @@ public class NotificationWorker extends Worker {
 
     private String credentials;
 
+    private String conversationKey;
+    private List<DecryptedPushMessage> coalescedPushMessages;
+
+    private Bitmap getLargeIcon(int drawableId) {
+        synchronized (largeIcons) {
+            Bitmap largeIcon = largeIcons.get(drawableId);
+            if (largeIcon == null) {
+                largeIcon = BitmapFactory.decodeResource(context.getResources(), drawableId);
+                if (largeIcon != null) {
+                    largeIcons.put(drawableId, largeIcon);
+                }
+            }
+
+            return largeIcon;
+        }
+    }
+
     private void showNotificationForCallWithNoPing(Intent intent) {
         UserEntity userEntity = signatureVerification.getUserEntity();
         ncApi.getRoom(credentials, ApiUtils.getRoom(userEntity.getBaseUrl(),
@@ -221,22 +245,22 @@ public class NotificationWorker extends Worker {
         switch (conversationType) {
             case "one2one":
                 if (decryptedPushMessage.getType().equals("chat")) {
-                    largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_chat_black_24dp);
+                    largeIcon = getLargeIcon(R.drawable.ic_chat_black_24dp);
                 } else {
-                    largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_call_black_24dp);
+                    largeIcon = getLargeIcon(R.drawable.ic_call_black_24dp);
                 }
                 break;
             case "group":
-                largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_people_group_black_24px);
+                largeIcon = getLargeIcon(R.drawable.ic_people_group_black_24px);
                 break;
             case "public":
-                largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_link_black_24px);
+                largeIcon = getLargeIcon(R.drawable.ic_link_black_24px);
                 break;
             default:
                 if (decryptedPushMessage.getType().equals("chat")) {
-                    largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_chat_black_24dp);
+                    largeIcon = getLargeIcon(R.drawable.ic_chat_black_24dp);
                 } else {
-                    largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.ic_call_black_24dp);
+                    largeIcon = getLargeIcon(R.drawable.ic_call_black_24dp);
                 }
         }
 
@@ -307,13 +331,23 @@ public class NotificationWorker extends Worker {
 
         notificationBuilder.setContentIntent(pendingIntent);
 
-        String stringForCrc = decryptedPushMessage.getSubject() + " " + signatureVerification
-                .getUserEntity().getDisplayName() + " " + signatureVerification.getUserEntity
-                ().getBaseUrl() + System.currentTimeMillis();
+        String stringForCrc;
+        if (conversationKey != null) {
+            // one notification per conversation, updated as new messages come in
+            stringForCrc = conversationKey + " " + signatureVerification.getUserEntity().getBaseUrl();
+        } else {
+            stringForCrc = decryptedPushMessage.getSubject() + " " + signatureVerification
+                    .getUserEntity().getDisplayName() + " " + signatureVerification.getUserEntity
+                    ().getBaseUrl() + System.currentTimeMillis();
+        }
 
         crc32 = new CRC32();
         crc32.update(stringForCrc.getBytes());
 
+        if (conversationKey != null && coalescedPushMessages != null) {
+            applyConversationStyle(notificationBuilder, notificationManager, (int) crc32.getValue());
+        }
+
         String ringtonePreferencesString;
         ringtonePreferencesString = appPreferences.getMessageRingtoneUri();
         if (TextUtils.isEmpty(ringtonePreferencesString)) {
@@ -375,6 +409,93 @@ public class NotificationWorker extends Worker {
         }
     }
 
+    private void applyConversationStyle(Notification.Builder notificationBuilder,
+                                        NotificationManager notificationManager, int notificationId) {
+        ApplicationWidePendingNotificationsHolder pendingNotificationsHolder =
+                ApplicationWidePendingNotificationsHolder.getInstance();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && notificationManager != null) {
+            boolean isStillShown = false;
+            for (StatusBarNotification statusBarNotification : notificationManager.getActiveNotifications()) {
+                if (statusBarNotification.getId() == notificationId) {
+                    isStillShown = true;
+                    break;
+                }
+            }
+
+            if (!isStillShown) {
+                pendingNotificationsHolder.clearShownLines(conversationKey);
+            }
+        }
+
+        List<CharSequence> newLines = new ArrayList<>(coalescedPushMessages.size());
+        for (DecryptedPushMessage coalescedPushMessage : coalescedPushMessages) {
+            newLines.add(!TextUtils.isEmpty(coalescedPushMessage.getText()) ?
+                    coalescedPushMessage.getText() : coalescedPushMessage.getSubject());
+        }
+        List<CharSequence> lines = pendingNotificationsHolder.addShownLines(conversationKey, newLines);
+        int messagesCount = pendingNotificationsHolder.getShownMessagesCount(conversationKey);
+
+        if (messagesCount > 1) {
+            Notification.InboxStyle inboxStyle = new Notification.InboxStyle()
+                    .setBigContentTitle(decryptedPushMessage.getSubject());
+            for (CharSequence shownLine : lines) {
+                inboxStyle.addLine(shownLine);
+            }
+
+            notificationBuilder.setStyle(inboxStyle);
+            notificationBuilder.setNumber(messagesCount);
+        }
+    }
+
+    /*
+        First pass over a chat push: remembers it for its conversation and, if it opened a new burst,
+        schedules the pass that renders the whole burst once the coalescing window has passed.
+     */
+    private void scheduleCoalescedNotification(Data data) {
+        ApplicationWidePendingNotificationsHolder pendingNotificationsHolder =
+                ApplicationWidePendingNotificationsHolder.getInstance();
+        String pendingConversationKey = ApplicationWidePendingNotificationsHolder.getConversationKey(
+                signatureVerification.getUserEntity().getId(), decryptedPushMessage.getId());
+
+        if (!pendingNotificationsHolder.enqueue(pendingConversationKey, decryptedPushMessage)) {
+            return;
+        }
+
+        Data coalescedData = new Data.Builder()
+                .putString(BundleKeys.KEY_NOTIFICATION_SUBJECT, data.getString(BundleKeys.KEY_NOTIFICATION_SUBJECT))
+                .putString(BundleKeys.KEY_NOTIFICATION_SIGNATURE,
+                        data.getString(BundleKeys.KEY_NOTIFICATION_SIGNATURE))
+                .putBoolean(BundleKeys.KEY_NOTIFICATION_COALESCED, true)
+                .build();
+
+        OneTimeWorkRequest coalescedNotificationWork = new OneTimeWorkRequest.Builder(NotificationWorker.class)
+                .setInputData(coalescedData)
+                .setInitialDelay(COALESCING_WINDOW_MS, TimeUnit.MILLISECONDS)
+                .build();
+
+        // appending keeps the bursts of a conversation in order while the previous one is still rendered
+        WorkManager.getInstance().beginUniqueWork(TAG + pendingConversationKey, ExistingWorkPolicy.APPEND,
+                coalescedNotificationWork).enqueue();
+    }
+
+    /*
+        Second pass: takes every push that arrived for the conversation in the meantime and continues
+        with the newest one, so only that one is fetched. If the process was restarted in between, the
+        push this worker was scheduled with is all that's left.
+     */
+    private void drainCoalescedPushMessages() {
+        conversationKey = ApplicationWidePendingNotificationsHolder.getConversationKey(
+                signatureVerification.getUserEntity().getId(), decryptedPushMessage.getId());
+
+        coalescedPushMessages = ApplicationWidePendingNotificationsHolder.getInstance().drain(conversationKey);
+        if (coalescedPushMessages.size() > 0) {
+            decryptedPushMessage = coalescedPushMessages.get(coalescedPushMessages.size() - 1);
+        } else {
+            coalescedPushMessages.add(decryptedPushMessage);
+        }
+    }
+
     @NonNull
     @Override
     public Result doWork() {
@@ -389,14 +510,15 @@ public class NotificationWorker extends Worker {
             byte[] base64DecodedSubject = Base64.decode(subject, Base64.DEFAULT);
             byte[] base64DecodedSignature = Base64.decode(signature, Base64.DEFAULT);
             PushUtils pushUtils = new PushUtils();
-            PrivateKey privateKey = (PrivateKey) pushUtils.readKeyFromFile(false);
 
             try {
                 signatureVerification = pushUtils.verifySignature(base64DecodedSignature,
                         base64DecodedSubject);
 
-                if (signatureVerification.isSignatureValid()) {
-                    Cipher cipher = Cipher.getInstance("RSA/None/PKCS1Padding");
+                PrivateKey privateKey;
+                Cipher cipher = ApplicationWidePushKeysHolder.getInstance().getCipher();
+                if (signatureVerification.isSignatureValid() && cipher != null &&
+                        (privateKey = (PrivateKey) pushUtils.readKeyFromFile(false)) != null) {
                     cipher.init(Cipher.DECRYPT_MODE, privateKey);
                     byte[] decryptedSubject = cipher.doFinal(base64DecodedSubject);
                     decryptedPushMessage = LoganSquare.parse(new String(decryptedSubject),
@@ -405,8 +527,7 @@ public class NotificationWorker extends Worker {
                     credentials = ApiUtils.getCredentials(signatureVerification.getUserEntity().getUsername(),
                             signatureVerification.getUserEntity().getToken());
 
-                    ncApi = retrofit.newBuilder().client(okHttpClient.newBuilder().cookieJar(new
-                            JavaNetCookieJar(new CookieManager())).build()).build().create(NcApi.class);
+                    ncApi = ncApiProvider.getNcApi(signatureVerification.getUserEntity());
 
                     boolean hasChatSupport = signatureVerification.getUserEntity().
                             hasSpreedCapabilityWithName("chat-v2");
@@ -466,6 +587,13 @@ public class NotificationWorker extends Worker {
                                 // do absolutely nothing, we won't even come to this point
                                 break;
                             case "chat":
+                                if (!data.getBoolean(BundleKeys.KEY_NOTIFICATION_COALESCED, false)) {
+                                    scheduleCoalescedNotification(data);
+                                    break;
+                                }
+
+                                drainCoalescedPushMessages();
+
                                 if (decryptedPushMessage.getNotificationId() != Long.MIN_VALUE) {
                                     showMessageNotificationWithObjectData(intent);
                                 } else {
@@ -478,10 +606,6 @@ public class NotificationWorker extends Worker {
 
                     }
                 }
-            } catch (NoSuchAlgorithmException e1) {
-                Log.d(TAG, "No proper algorithm to decrypt the message " + e1.getLocalizedMessage());
-            } catch (NoSuchPaddingException e1) {
-                Log.d(TAG, "No proper padding to decrypt the message " + e1.getLocalizedMessage());
             } catch (InvalidKeyException e1) {
                 Log.d(TAG, "Invalid private key " + e1.getLocalizedMessage());
             }
@@ -23,6 +23,7 @@ package com.nextcloud.talk.jobs;
 import android.support.annotation.NonNull;
 
 import com.nextcloud.talk.utils.PushUtils;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePushKeysHolder;
 
 import androidx.work.Worker;
 
@@ -33,7 +34,9 @@ public class PushRegistrationWorker extends Worker {
     @Override
     public Result doWork() {
         PushUtils pushUtils = new PushUtils();
-        pushUtils.generateRsa2048KeyPair();
+        if (pushUtils.generateRsa2048KeyPair() == 0) {
+            ApplicationWidePushKeysHolder.getInstance().invalidateDeviceKeys();
+        }
         pushUtils.pushRegistrationToServer();
 
         return Result.SUCCESS;
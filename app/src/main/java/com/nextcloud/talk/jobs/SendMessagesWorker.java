@@ -0,0 +1,189 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.jobs;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
+import com.nextcloud.talk.application.NextcloudTalkApplication;
+import com.nextcloud.talk.events.OutgoingMessageEvent;
+import com.nextcloud.talk.models.database.OutgoingMessage;
+import com.nextcloud.talk.models.database.UserEntity;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+import com.nextcloud.talk.models.json.chat.ChatOverall;
+import com.nextcloud.talk.models.json.chat.ChatUtils;
+import com.nextcloud.talk.utils.ApiUtils;
+import com.nextcloud.talk.utils.bundle.BundleKeys;
+import com.nextcloud.talk.utils.database.outbox.OutboxUtils;
+import com.nextcloud.talk.utils.database.user.UserUtils;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import androidx.work.Worker;
+import autodagger.AutoInjector;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/*
+    Drains the outbox of a user. Messages go out oldest first; once a message of a room fails, the
+    rest of that room waits for the next run so nothing arrives out of order. Other rooms carry on.
+    A message that was attempted before may have reached the server with only the response lost, so
+    the newest messages of its room are checked for it before it is sent again.
+ */
+@AutoInjector(NextcloudTalkApplication.class)
+public class SendMessagesWorker extends Worker {
+    public static final String TAG = "SendMessagesWorker";
+
+    // newest messages of a room looked through for a message that may have arrived already
+    private static final int RECENT_MESSAGES_LIMIT = 100;
+
+    @Inject
+    UserUtils userUtils;
+
+    @Inject
+    OutboxUtils outboxUtils;
+
+    @Inject
+    NcApiProvider ncApiProvider;
+
+    @Inject
+    EventBus eventBus;
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        NextcloudTalkApplication.getSharedApplication().getComponentApplication().inject(this);
+
+        long internalUserId = getInputData().getLong(BundleKeys.KEY_INTERNAL_USER_ID, -1);
+
+        UserEntity userEntity;
+        if (internalUserId == -1 || (userEntity = userUtils.getUserWithInternalId(internalUserId)) == null) {
+            // outgoing messages are removed together with their user
+            return Result.SUCCESS;
+        }
+
+        // one client for the whole batch, so every message reuses the same connection
+        NcApi ncApi = ncApiProvider.getNcApi(userEntity);
+        String credentials = ApiUtils.getCredentials(userEntity.getUsername(), userEntity.getToken());
+
+        Set<String> postponedRooms = new HashSet<>();
+        Map<String, List<ChatMessage>> recentMessagesByRoom = new HashMap<>();
+        for (OutgoingMessage outgoingMessage : outboxUtils.getPendingMessages(internalUserId)) {
+            if (postponedRooms.contains(outgoingMessage.getRoomToken())) {
+                continue;
+            }
+
+            try {
+                if (outgoingMessage.getAttempts() > 0 && takeRecentMessage(getRecentMessages(ncApi, credentials,
+                        userEntity.getBaseUrl(), outgoingMessage.getRoomToken(), recentMessagesByRoom),
+                        userEntity.getUserId(), outgoingMessage)) {
+                    Log.d(TAG, "Message " + outgoingMessage.getId() + " arrived with an earlier attempt");
+                    outboxUtils.removeMessage(outgoingMessage);
+                    eventBus.post(new OutgoingMessageEvent(internalUserId, outgoingMessage.getRoomToken(),
+                            outgoingMessage.getId(), true));
+                    continue;
+                }
+
+                outboxUtils.markAttempted(outgoingMessage);
+                ncApi.sendChatMessage(credentials, ApiUtils.getUrlForChat(userEntity.getBaseUrl(),
+                        outgoingMessage.getRoomToken()), outgoingMessage.getMessage(),
+                        outgoingMessage.getActorDisplayName()).blockingFirst();
+                outboxUtils.removeMessage(outgoingMessage);
+                eventBus.post(new OutgoingMessageEvent(internalUserId, outgoingMessage.getRoomToken(),
+                        outgoingMessage.getId(), true));
+            } catch (HttpException e) {
+                if (isPermanentFailure(e.code())) {
+                    // the room is gone or the message was rejected, retrying won't help
+                    Log.e(TAG, "Dropping message " + outgoingMessage.getId() + ", server replied " + e.code());
+                    outboxUtils.removeMessage(outgoingMessage);
+                    eventBus.post(new OutgoingMessageEvent(internalUserId, outgoingMessage.getRoomToken(),
+                            outgoingMessage.getId(), false));
+                } else {
+                    postponedRooms.add(outgoingMessage.getRoomToken());
+                }
+            } catch (RuntimeException e) {
+                postponedRooms.add(outgoingMessage.getRoomToken());
+            }
+        }
+
+        return postponedRooms.isEmpty() ? Result.SUCCESS : Result.RETRY;
+    }
+
+    // fetched once per room and run, messages matched to the outbox are taken out
+    private List<ChatMessage> getRecentMessages(NcApi ncApi, String credentials, String baseUrl, String roomToken,
+                                                Map<String, List<ChatMessage>> recentMessagesByRoom) {
+        List<ChatMessage> recentMessages = recentMessagesByRoom.get(roomToken);
+        if (recentMessages == null) {
+            Map<String, Integer> fieldMap = new HashMap<>();
+            fieldMap.put("lookIntoFuture", 0);
+            fieldMap.put("limit", RECENT_MESSAGES_LIMIT);
+
+            Response<ChatOverall> response = ncApi.pullChatMessages(credentials,
+                    ApiUtils.getUrlForChat(baseUrl, roomToken), fieldMap).blockingFirst();
+            // 304 is an empty room
+            if (!response.isSuccessful() && response.code() != 304) {
+                throw new HttpException(response);
+            }
+
+            recentMessages = new ArrayList<>();
+            if (response.body() != null && response.body().getOcs().getData() != null) {
+                recentMessages.addAll(response.body().getOcs().getData());
+            }
+            recentMessagesByRoom.put(roomToken, recentMessages);
+        }
+
+        return recentMessages;
+    }
+
+    private boolean takeRecentMessage(List<ChatMessage> recentMessages, String userId,
+                                      OutgoingMessage outgoingMessage) {
+        Iterator<ChatMessage> iterator = recentMessages.iterator();
+        while (iterator.hasNext()) {
+            if (ChatUtils.isSentMessage(iterator.next(), userId, outgoingMessage.getMessage(),
+                    outgoingMessage.getTimestamp())) {
+                // two outgoing messages with the same text need two messages in the room
+                iterator.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+        Auth failures aren't permanent: the message waits in the outbox until the account works again
+        (new app password, permissions back) or is removed together with its messages.
+     */
+    private boolean isPermanentFailure(int code) {
+        return code >= 400 && code < 500 && code != 401 && code != 403 && code != 408 && code != 429;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.models;
+
+import com.bluelinelabs.logansquare.annotation.JsonField;
+import com.bluelinelabs.logansquare.annotation.JsonObject;
+
+import lombok.Data;
+
+/*
+    One sample of a peer connection's stats. Rates and loss are computed against the previous sample of
+    the same peer, counters are the totals since the connection started; -1 means not reported.
+ */
+@JsonObject
+@Data
+public class CallStatsSample {
+    @JsonField(name = "sessionId")
+    String sessionId;
+    @JsonField(name = "timestamp")
+    long timestamp;
+    @JsonField(name = "roundTripTimeMs")
+    long roundTripTimeMs = -1;
+    @JsonField(name = "audioJitterMs")
+    double audioJitterMs = -1;
+    @JsonField(name = "videoJitterMs")
+    double videoJitterMs = -1;
+    @JsonField(name = "packetsReceived")
+    long packetsReceived;
+    @JsonField(name = "packetsLost")
+    long packetsLost;
+    @JsonField(name = "packetLossPercent")
+    double packetLossPercent;
+    @JsonField(name = "inboundBitrate")
+    long inboundBitrate;
+    @JsonField(name = "outboundBitrate")
+    long outboundBitrate;
+    @JsonField(name = "availableOutgoingBitrate")
+    long availableOutgoingBitrate = -1;
+    @JsonField(name = "framesDecoded")
+    long framesDecoded = -1;
+    @JsonField(name = "framesDropped")
+    long framesDropped = -1;
+    @JsonField(name = "selectedCandidatePair")
+    String selectedCandidatePair;
+
+    // running totals the rates are derived from, not part of the dump
+    long bytesReceived;
+    long bytesSent;
+}
@@ -0,0 +1,51 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.models.database;
+
+import java.io.Serializable;
+
+import io.requery.Entity;
+import io.requery.Generated;
+import io.requery.Index;
+import io.requery.Key;
+import io.requery.Persistable;
+import io.requery.Table;
+
+@Entity
+@Table(uniqueIndexes = "cached_chat_message_room_index")
+public interface CachedChatMessage extends Persistable, Serializable {
+
+    @Key
+    @Generated
+    long getId();
+
+    // internal id of the user entity the message was fetched with
+    @Index("cached_chat_message_room_index")
+    long getInternalUserId();
+
+    @Index("cached_chat_message_room_index")
+    String getRoomToken();
+
+    @Index("cached_chat_message_room_index")
+    int getJsonMessageId();
+
+    // ChatMessage as serialized by LoganSquare
+    String getMessageJson();
+}
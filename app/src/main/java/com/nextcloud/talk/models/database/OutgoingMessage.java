@@ -0,0 +1,52 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.models.database;
+
+import java.io.Serializable;
+
+import io.requery.Entity;
+import io.requery.Generated;
+import io.requery.Index;
+import io.requery.Key;
+import io.requery.Persistable;
+
+@Entity
+public interface OutgoingMessage extends Persistable, Serializable {
+
+    // generated ids keep the order messages were written in
+    @Key
+    @Generated
+    long getId();
+
+    // internal id of the user entity the message is sent as
+    @Index("outgoing_message_user_index")
+    long getInternalUserId();
+
+    String getRoomToken();
+
+    String getMessage();
+
+    String getActorDisplayName();
+
+    // in seconds, like the timestamps the server hands out
+    long getTimestamp();
+
+    int getAttempts();
+}
@@ -20,12 +20,9 @@
 package com.nextcloud.talk.models.database;
 
 import android.os.Parcelable;
-import android.util.Log;
 
-import com.bluelinelabs.logansquare.LoganSquare;
-import com.nextcloud.talk.models.json.capabilities.Capabilities;
+import com.nextcloud.talk.utils.singletons.ApplicationWideCapabilitiesHolder;
 
-import java.io.IOException;
 import java.io.Serializable;
 
 import io.requery.Entity;
@@ -62,31 +59,12 @@ public interface User extends Parcelable, Persistable, Serializable {
     boolean getScheduledForDeletion();
 
     default boolean hasNotificationsCapability(String capabilityName) {
-        if (getCapabilities() != null) {
-            try {
-                Capabilities capabilities = LoganSquare.parse(getCapabilities(), Capabilities.class);
-                if (capabilities.getNotificationsCapability() != null && capabilities.getNotificationsCapability().getFeatures() != null) {
-                    return capabilities.getSpreedCapability().getFeatures().contains(capabilityName);
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to get capabilities for the user");
-            }
-        }
-        return false;
+        return ApplicationWideCapabilitiesHolder.getInstance().hasNotificationsCapability(getId(),
+                getCapabilities(), capabilityName);
     }
 
     default boolean hasSpreedCapabilityWithName(String capabilityName) {
-        if (getCapabilities() != null) {
-            try {
-                Capabilities capabilities = LoganSquare.parse(getCapabilities(), Capabilities.class);
-                if (capabilities != null && capabilities.getSpreedCapability() != null &&
-                        capabilities.getSpreedCapability().getFeatures() != null) {
-                    return capabilities.getSpreedCapability().getFeatures().contains(capabilityName);
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to get capabilities for the user");
-            }
-        }
-        return false;
+        return ApplicationWideCapabilitiesHolder.getInstance().hasSpreedCapability(getId(),
+                getCapabilities(), capabilityName);
     }
 }
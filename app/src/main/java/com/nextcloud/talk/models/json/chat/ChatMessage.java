@@ -88,6 +88,9 @@ public class ChatMessage implements IMessage, MessageContentType {
     boolean isGrouped;
     @JsonIgnore
     String activeUserId;
+    // rendered lazily from message and messageParameters, see getParsedMessage()
+    @JsonIgnore
+    transient ParsedMessage parsedMessage;
 
 
     public String getBaseUrl() {
@@ -103,9 +106,27 @@ public class ChatMessage implements IMessage, MessageContentType {
         return Integer.toString(jsonMessageId);
     }
 
+    public void setMessage(String message) {
+        this.message = message;
+        this.parsedMessage = null;
+    }
+
+    public void setMessageParameters(HashMap<String, HashMap<String, String>> messageParameters) {
+        this.messageParameters = messageParameters;
+        this.parsedMessage = null;
+    }
+
+    public ParsedMessage getParsedMessage() {
+        if (parsedMessage == null) {
+            parsedMessage = ChatUtils.parseMessage(getMessage(), getMessageParameters());
+        }
+
+        return parsedMessage;
+    }
+
     @Override
     public String getText() {
-        return ChatUtils.getParsedMessage(getMessage(), getMessageParameters());
+        return getParsedMessage().getText();
     }
 
     @Override
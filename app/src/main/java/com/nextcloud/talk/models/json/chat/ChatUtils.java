@@ -20,24 +20,120 @@
 
 package com.nextcloud.talk.models.json.chat;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 public class ChatUtils {
+    // how far the server clock may be behind the device when matching sent messages
+    private static final long SENT_MESSAGE_CLOCK_SKEW_SECONDS = 300;
 
     public static String getParsedMessage(String message, HashMap<String, HashMap<String, String>> messageParameters) {
-        if (messageParameters != null && messageParameters.size() > 0) {
-            for (String key : messageParameters.keySet()) {
-                HashMap<String, String> individualHashMap = messageParameters.get(key);
-                if (individualHashMap.get("type").equals("user") || individualHashMap.get("type").equals("guest")) {
-                    message = message.replaceAll("\\{" + key + "\\}", "@" +
-                            messageParameters.get(key).get("name"));
-                } else if (individualHashMap.get("type").equals("file")) {
-                    message = message.replaceAll("\\{" + key + "\\}", messageParameters.get(key).get("name"));
+        return parseMessage(message, messageParameters).getText();
+    }
+
+    /*
+        Replaces {key} placeholders of user, guest and file parameters in a single pass over the message,
+        keeping track of where each replacement ended up. Unknown placeholders are left as they are.
+     */
+    public static ParsedMessage parseMessage(String message,
+                                             HashMap<String, HashMap<String, String>> messageParameters) {
+        if (message == null || messageParameters == null || messageParameters.size() == 0
+                || message.indexOf('{') == -1) {
+            return new ParsedMessage(message, Collections.emptyList());
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(message.length() + 16);
+        List<ParsedMessage.Span> spans = new ArrayList<>();
+
+        int length = message.length();
+        int position = 0;
+        int openingBrace;
+        int closingBrace;
+        HashMap<String, String> individualHashMap;
+        String type;
+        String name;
+
+        while (position < length) {
+            openingBrace = message.indexOf('{', position);
+            if (openingBrace == -1) {
+                break;
+            }
+
+            closingBrace = message.indexOf('}', openingBrace + 1);
+            if (closingBrace == -1) {
+                break;
+            }
+
+            individualHashMap = messageParameters.get(message.substring(openingBrace + 1, closingBrace));
+            type = individualHashMap != null ? individualHashMap.get("type") : null;
+
+            if ("user".equals(type) || "guest".equals(type) || "file".equals(type)) {
+                stringBuilder.append(message, position, openingBrace);
+                int start = stringBuilder.length();
+
+                if (!"file".equals(type)) {
+                    stringBuilder.append('@');
+                }
+
+                if ((name = individualHashMap.get("name")) != null) {
+                    stringBuilder.append(name);
                 }
+
+                spans.add(new ParsedMessage.Span(start, stringBuilder.length(), type, individualHashMap));
+                position = closingBrace + 1;
+            } else {
+                // not a parameter we render, keep the brace and look for the next one
+                stringBuilder.append(message, position, openingBrace + 1);
+                position = openingBrace + 1;
             }
         }
 
+        stringBuilder.append(message, position, length);
+
+        return new ParsedMessage(stringBuilder.toString(), spans);
+    }
+
+    /*
+        The send call doesn't tell us the id the message got, so a message we sent is recognized as one
+        of ours with the same rendered text that wasn't posted before we sent it. Mentions come back as
+        placeholders rendered with the display name, so the "@id" form that was typed counts as the same text.
+     */
+    public static boolean isSentMessage(ChatMessage chatMessage, String userId, String sentText, long sentAt) {
+        if (!"users".equals(chatMessage.getActorType()) || !userId.equals(chatMessage.getActorId()) ||
+                chatMessage.getTimestamp() < sentAt - SENT_MESSAGE_CLOCK_SKEW_SECONDS) {
+            return false;
+        }
+
+        String text = chatMessage.getText();
+        if (text == null || text.length() == 0) {
+            return false;
+        }
+
+        String trimmedSentText = sentText.trim();
+        return trimmedSentText.equals(text.trim()) || trimmedSentText.equals(getTextWithMentionIds(chatMessage).trim());
+    }
+
+    private static String getTextWithMentionIds(ChatMessage chatMessage) {
+        ParsedMessage parsedMessage = chatMessage.getParsedMessage();
+        String text = parsedMessage.getText();
+        if (!parsedMessage.hasSpans()) {
+            return text;
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(text.length());
+        int position = 0;
+        for (ParsedMessage.Span span : parsedMessage.getSpans()) {
+            stringBuilder.append(text, position, span.getStart());
+            if (span.isMention()) {
+                stringBuilder.append('@').append(span.getId());
+            } else {
+                stringBuilder.append(text, span.getStart(), span.getEnd());
+            }
+            position = span.getEnd();
+        }
 
-        return message;
+        return stringBuilder.append(text, position, text.length()).toString();
     }
 }
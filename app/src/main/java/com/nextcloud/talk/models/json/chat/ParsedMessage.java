@@ -0,0 +1,98 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.models.json.chat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Result of rendering a rich message: the plain text and the ranges in it that
+    were produced from message parameters (mentions, guests and files).
+ */
+public class ParsedMessage {
+    private final String text;
+    private final List<Span> spans;
+
+    ParsedMessage(String text, List<Span> spans) {
+        this.text = text;
+        this.spans = Collections.unmodifiableList(spans);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    public boolean hasSpans() {
+        return spans.size() > 0;
+    }
+
+    public static class Span {
+        private final int start;
+        private final int end;
+        private final String type;
+        private final Map<String, String> parameter;
+
+        Span(int start, int end, String type, Map<String, String> parameter) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.parameter = parameter;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        // user, guest or file
+        public String getType() {
+            return type;
+        }
+
+        public boolean isMention() {
+            return "user".equals(type) || "guest".equals(type);
+        }
+
+        public boolean isFile() {
+            return "file".equals(type);
+        }
+
+        public String getId() {
+            return parameter.get("id");
+        }
+
+        public String getName() {
+            return parameter.get("name");
+        }
+
+        public String getLink() {
+            return parameter.get("link");
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.models.json.converters;
+
+import com.bluelinelabs.logansquare.typeconverters.TypeConverter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/*
+    Older servers report inCall as a boolean, newer ones as a number.
+ */
+public class InCallTypeConverter implements TypeConverter<Boolean> {
+    @Override
+    public Boolean parse(JsonParser jsonParser) throws IOException {
+        JsonToken jsonToken = jsonParser.getCurrentToken();
+        if (jsonToken == JsonToken.VALUE_TRUE || jsonToken == JsonToken.VALUE_FALSE) {
+            return jsonParser.getValueAsBoolean();
+        } else if (jsonToken == JsonToken.VALUE_NUMBER_INT) {
+            return jsonParser.getValueAsLong() != 0;
+        } else {
+            jsonParser.skipChildren();
+            return false;
+        }
+    }
+
+    @Override
+    public void serialize(Boolean object, String fieldName, boolean writeFieldNameForObject,
+                          JsonGenerator jsonGenerator) throws IOException {
+        if (fieldName != null) {
+            jsonGenerator.writeBooleanField(fieldName, object != null && object);
+        } else {
+            jsonGenerator.writeBoolean(object != null && object);
+        }
+    }
+}
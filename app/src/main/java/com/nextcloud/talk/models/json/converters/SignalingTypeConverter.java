@@ -0,0 +1,124 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.models.json.converters;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.bluelinelabs.logansquare.typeconverters.TypeConverter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.Signaling;
+import com.nextcloud.talk.models.json.signaling.SignalingUser;
+
+import java.io.IOException;
+
+/*
+    Decodes a signaling envelope in one pass. The shape of "data" tells what it holds, so it doesn't
+    matter whether "type" comes first: "usersInRoom" sends an array of users, "message" the signaling
+    message as a JSON encoded string, which is decoded right away instead of going through a generic map.
+ */
+public class SignalingTypeConverter implements TypeConverter<Signaling> {
+    @Override
+    public Signaling parse(JsonParser jsonParser) throws IOException {
+        if (jsonParser.getCurrentToken() == null) {
+            jsonParser.nextToken();
+        }
+
+        if (jsonParser.getCurrentToken() != JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+            return null;
+        }
+
+        Signaling signaling = new Signaling();
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+
+            if ("type".equals(fieldName)) {
+                signaling.setType(jsonParser.getValueAsString());
+            } else if ("data".equals(fieldName)) {
+                parseData(signaling, jsonParser);
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+
+        return signaling;
+    }
+
+    @Override
+    public void serialize(Signaling object, String fieldName, boolean writeFieldNameForObject,
+                          JsonGenerator jsonGenerator) throws IOException {
+        if (writeFieldNameForObject) {
+            jsonGenerator.writeFieldName(fieldName);
+        }
+
+        if (object == null) {
+            jsonGenerator.writeNull();
+            return;
+        }
+
+        jsonGenerator.writeStartObject();
+        if (object.getType() != null) {
+            jsonGenerator.writeStringField("type", object.getType());
+        }
+
+        if (object.getNcSignalingMessage() != null) {
+            jsonGenerator.writeStringField("data", LoganSquare.serialize(object.getNcSignalingMessage()));
+        } else if (object.getUsersInRoom() != null) {
+            jsonGenerator.writeFieldName("data");
+            LoganSquare.mapperFor(SignalingUser.class).serialize(object.getUsersInRoom(), jsonGenerator);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    private void parseData(Signaling signaling, JsonParser jsonParser) throws IOException {
+        switch (jsonParser.getCurrentToken()) {
+            case START_ARRAY:
+                signaling.setUsersInRoom(LoganSquare.mapperFor(SignalingUser.class).parseList(jsonParser));
+                break;
+            case VALUE_STRING:
+                signaling.setNcSignalingMessage(parseMessageString(jsonParser));
+                break;
+            case START_OBJECT:
+                signaling.setNcSignalingMessage(LoganSquare.mapperFor(NCSignalingMessage.class).parse(jsonParser));
+                break;
+            default:
+                jsonParser.skipChildren();
+                break;
+        }
+    }
+
+    /*
+        The message is JSON encoded into a string, so it has to be parsed once more. That happens right
+        on the unescaped characters in the parser's buffer instead of on a String copied out of them.
+     */
+    private NCSignalingMessage parseMessageString(JsonParser jsonParser) throws IOException {
+        JsonParser messageParser = LoganSquare.JSON_FACTORY.createParser(jsonParser.getTextCharacters(),
+                jsonParser.getTextOffset(), jsonParser.getTextLength());
+        try {
+            return LoganSquare.mapperFor(NCSignalingMessage.class).parse(messageParser);
+        } finally {
+            messageParser.close();
+        }
+    }
+}
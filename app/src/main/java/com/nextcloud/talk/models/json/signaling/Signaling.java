@@ -20,21 +20,22 @@
 
 package com.nextcloud.talk.models.json.signaling;
 
-import com.bluelinelabs.logansquare.annotation.JsonField;
-import com.bluelinelabs.logansquare.annotation.JsonObject;
+import java.util.List;
 
 import lombok.Data;
 
 /**
  * Created by mdjanic on 30/10/2017.
+ *
+ * Parsed by SignalingTypeConverter, which decodes "data" straight into the typed payload.
  */
-
 @Data
-@JsonObject
 public class Signaling {
-    @JsonField(name = "type")
     String type;
-    //can be NCMessageWrapper or List<HashMap<String,String>>
-    @JsonField(name = "data")
-    Object messageWrapper;
+
+    // set for "message"
+    NCSignalingMessage ncSignalingMessage;
+
+    // set for "usersInRoom"
+    List<SignalingUser> usersInRoom;
 }
@@ -31,9 +31,9 @@ import com.nextcloud.talk.api.NcApi;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.models.database.UserEntity;
 import com.nextcloud.talk.models.json.mention.Mention;
-import com.nextcloud.talk.models.json.mention.MentionOverall;
-import com.nextcloud.talk.utils.ApiUtils;
+import com.nextcloud.talk.utils.chat.MentionSuggestionEngine;
 import com.nextcloud.talk.utils.database.user.UserUtils;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 import com.otaliastudios.autocomplete.RecyclerViewPresenter;
 
 import java.util.ArrayList;
@@ -45,9 +45,7 @@ import autodagger.AutoInjector;
 import eu.davidea.flexibleadapter.FlexibleAdapter;
 import eu.davidea.flexibleadapter.items.AbstractFlexibleItem;
 import io.reactivex.Observer;
-import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class MentionAutocompletePresenter extends RecyclerViewPresenter<Mention> implements FlexibleAdapter.OnItemClickListener {
@@ -59,6 +57,9 @@ public class MentionAutocompletePresenter extends RecyclerViewPresenter<Mention>
     @Inject
     UserUtils userUtils;
 
+    @Inject
+    AppSchedulers appSchedulers;
+
     private FlexibleAdapter<AbstractFlexibleItem> adapter;
     private Context context;
 
@@ -66,11 +67,14 @@ public class MentionAutocompletePresenter extends RecyclerViewPresenter<Mention>
 
     private List<AbstractFlexibleItem> abstractFlexibleItemList = new ArrayList<>();
 
+    private MentionSuggestionEngine mentionSuggestionEngine;
+
     public MentionAutocompletePresenter(Context context) {
         super(context);
         this.context = context;
         NextcloudTalkApplication.getSharedApplication().getComponentApplication().inject(this);
         currentUser = userUtils.getCurrentUser();
+        mentionSuggestionEngine = new MentionSuggestionEngine(ncApi, appSchedulers, currentUser, roomToken);
     }
 
     public MentionAutocompletePresenter(Context context, String roomToken) {
@@ -79,66 +83,63 @@ public class MentionAutocompletePresenter extends RecyclerViewPresenter<Mention>
         this.context = context;
         NextcloudTalkApplication.getSharedApplication().getComponentApplication().inject(this);
         currentUser = userUtils.getCurrentUser();
+        mentionSuggestionEngine = new MentionSuggestionEngine(ncApi, appSchedulers, currentUser, roomToken);
+        mentionSuggestionEngine.prefetchParticipants();
     }
 
     @Override
     protected RecyclerView.Adapter instantiateAdapter() {
         adapter = new FlexibleAdapter<>(abstractFlexibleItemList, context, false);
         adapter.addListener(this);
+
+        mentionSuggestionEngine.getSuggestions().subscribe(new Observer<List<Mention>>() {
+            @Override
+            public void onSubscribe(Disposable d) {
+            }
+
+            @Override
+            public void onNext(List<Mention> mentionsList) {
+                if (mentionsList.size() == 0) {
+                    adapter.clear();
+                } else {
+                    List<AbstractFlexibleItem> internalAbstractFlexibleItemList = new ArrayList<>();
+                    for (Mention mention : mentionsList) {
+                        internalAbstractFlexibleItemList.add(
+                                new MentionAutocompleteItem(mention.getId(), mention.getLabel(),
+                                        currentUser));
+                    }
+
+                    if (adapter.getItemCount() != 0) {
+                        adapter.clear();
+                    }
+
+                    adapter.updateDataSet(internalAbstractFlexibleItemList);
+                }
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                adapter.clear();
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        });
+
         return adapter;
     }
 
     @Override
     protected void onQuery(@Nullable CharSequence query) {
         if (!TextUtils.isEmpty(query)) {
-
             adapter.setFilter(query.toString());
-            ncApi.getMentionAutocompleteSuggestions(ApiUtils.getCredentials(currentUser.getUsername(), currentUser
-                            .getToken()), ApiUtils.getUrlForMentionSuggestions(currentUser.getBaseUrl(), roomToken),
-                    query.toString(), null)
-                    .subscribeOn(Schedulers.newThread())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .retry(3)
-                    .subscribe(new Observer<MentionOverall>() {
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                        }
-
-                        @Override
-                        public void onNext(MentionOverall mentionOverall) {
-                            List<Mention> mentionsList = mentionOverall.getOcs().getData();
-
-                            if (mentionsList.size() == 0) {
-                                adapter.clear();
-                            } else {
-                                List<AbstractFlexibleItem> internalAbstractFlexibleItemList = new ArrayList<>();
-                                for (Mention mention : mentionsList) {
-                                    internalAbstractFlexibleItemList.add(
-                                            new MentionAutocompleteItem(mention.getId(), mention.getLabel(),
-                                                    currentUser));
-                                }
-
-                                if (adapter.getItemCount() != 0) {
-                                    adapter.clear();
-                                }
-
-                                adapter.updateDataSet(internalAbstractFlexibleItemList);
-                            }
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-                            adapter.clear();
-                        }
-
-                        @Override
-                        public void onComplete() {
-
-                        }
-                    });
         } else {
             adapter.clear();
         }
+
+        mentionSuggestionEngine.query(query);
     }
 
     @Override
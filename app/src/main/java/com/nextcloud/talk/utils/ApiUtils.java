@@ -23,6 +23,8 @@ import android.net.Uri;
 import android.support.annotation.DimenRes;
 import android.support.annotation.Nullable;
 
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.LazyHeaders;
 import com.nextcloud.talk.BuildConfig;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
@@ -39,6 +41,13 @@ public class ApiUtils {
 
     private static String userAgent = "Mozilla/5.0 (Android) Nextcloud-Talk v";
 
+    // avatars are only requested in these sizes, so views of similar size share cached avatars
+    private static final int[] AVATAR_SIZE_BUCKETS = {64, 128, 256, 512};
+    private static final LazyHeaders avatarHeaders = new LazyHeaders.Builder()
+            .setHeader("Accept", "image/*")
+            .setHeader("User-Agent", getUserAgent())
+            .build();
+
     public static String getUserAgent() {
         return userAgent + BuildConfig.VERSION_NAME;
     }
@@ -155,6 +164,29 @@ public class ApiUtils {
         return getUrlForSignaling(baseUrl, null) + "/settings";
     }
 
+    public static String getUrlForExternalServerAuthBackend(String baseUrl) {
+        return getUrlForSignaling(baseUrl, null) + "/backend";
+    }
+
+    public static String getUrlForExternalSignalingServer(String serverUrl) {
+        String webSocketUrl = serverUrl;
+        if (webSocketUrl.startsWith("http://")) {
+            webSocketUrl = "ws://" + webSocketUrl.substring("http://".length());
+        } else if (webSocketUrl.startsWith("https://")) {
+            webSocketUrl = "wss://" + webSocketUrl.substring("https://".length());
+        }
+
+        if (webSocketUrl.endsWith("/")) {
+            webSocketUrl = webSocketUrl.substring(0, webSocketUrl.length() - 1);
+        }
+
+        if (!webSocketUrl.endsWith("/spreed")) {
+            webSocketUrl += "/spreed";
+        }
+
+        return webSocketUrl;
+    }
+
 
     public static String getUrlForUserProfile(String baseUrl) {
         return baseUrl + ocsApiVersion + "/cloud/user";
@@ -168,7 +200,21 @@ public class ApiUtils {
         avatarSize = Math.round(NextcloudTalkApplication
                                     .getSharedApplication().getResources().getDimension(avatarSize));
 
-        return baseUrl + "/index.php/avatar/" + Uri.encode(name) + "/" + avatarSize;
+        return baseUrl + "/index.php/avatar/" + Uri.encode(name) + "/" + getAvatarSizeBucket(avatarSize);
+    }
+
+    public static GlideUrl getGlideUrlForAvatarWithName(String baseUrl, String name, @DimenRes int avatarSize) {
+        return new GlideUrl(getUrlForAvatarWithName(baseUrl, name, avatarSize), avatarHeaders);
+    }
+
+    private static int getAvatarSizeBucket(int avatarSize) {
+        for (int avatarSizeBucket : AVATAR_SIZE_BUCKETS) {
+            if (avatarSize <= avatarSizeBucket) {
+                return avatarSizeBucket;
+            }
+        }
+
+        return AVATAR_SIZE_BUCKETS[AVATAR_SIZE_BUCKETS.length - 1];
     }
 
     public static String getUrlForPassword(String baseUrl, String token) {
@@ -47,6 +47,8 @@ import com.nextcloud.talk.application.NextcloudTalkApplication;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -54,6 +56,8 @@ public class DisplayUtils {
 
     private static final String TAG = "DisplayUtils";
 
+    private static final Map<String, Drawable.ConstantState> messageSelectorStates = new HashMap<>();
+
     public static float convertDpToPixel(float dp, Context context) {
         Resources resources = context.getResources();
         DisplayMetrics metrics = resources.getDisplayMetrics();
@@ -101,16 +105,19 @@ public class DisplayUtils {
         Matcher m = Pattern.compile(searchText, Pattern.CASE_INSENSITIVE | Pattern.LITERAL)
                 .matcher(text);
 
+        while (m.find()) {
+            colorSpan(spannable, m.start(), m.end(), color);
+        }
+
+        return spannable;
+    }
 
+    public static Spannable colorSpan(Spannable spannable, int start, int end, @ColorInt int color) {
         int textSize = NextcloudTalkApplication.getSharedApplication().getResources().getDimensionPixelSize(R.dimen
                 .chat_text_size);
-        while (m.find()) {
-            int start = text.indexOf(m.group());
-            int end = text.indexOf(m.group()) + m.group().length();
-            spannable.setSpan(new ForegroundColorSpan(color), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            spannable.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            spannable.setSpan(new AbsoluteSizeSpan(textSize) , start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-        }
+        spannable.setSpan(new ForegroundColorSpan(color), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        spannable.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        spannable.setSpan(new AbsoluteSizeSpan(textSize), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
         return spannable;
     }
@@ -118,6 +125,17 @@ public class DisplayUtils {
     public static Drawable getMessageSelector(@ColorInt int normalColor, @ColorInt int selectedColor,
                                         @ColorInt int pressedColor, @DrawableRes int shape) {
 
+        // bubbles only differ in colors and shape, so every bind gets a new drawable sharing the same state
+        String key = normalColor + "#" + selectedColor + "#" + pressedColor + "#" + shape;
+        Drawable.ConstantState constantState;
+        synchronized (messageSelectorStates) {
+            constantState = messageSelectorStates.get(key);
+        }
+
+        if (constantState != null) {
+            return constantState.newDrawable();
+        }
+
         Drawable vectorDrawable = ContextCompat.getDrawable(NextcloudTalkApplication.getSharedApplication()
                 .getApplicationContext(),
                 shape);
@@ -132,6 +150,13 @@ public class DisplayUtils {
                         },
                         new int[]{selectedColor, pressedColor, normalColor}
                 ));
+
+        if ((constantState = drawable.getConstantState()) != null) {
+            synchronized (messageSelectorStates) {
+                messageSelectorStates.put(key, constantState);
+            }
+        }
+
         return drawable;
     }
 
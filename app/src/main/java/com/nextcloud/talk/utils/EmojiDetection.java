@@ -25,7 +25,6 @@ package com.nextcloud.talk.utils;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.util.Log;
 
 import com.nextcloud.talk.R;
@@ -34,46 +33,105 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
+/*
+    Emoji detection on a char trie built from the emoji list in R.raw.regex. A message is walked once,
+    taking the longest emoji at every position, so checking it doesn't allocate anything.
+ */
 public final class EmojiDetection {
 
     private static final String TAG = "EmojiDetection";
 
-    private static Pattern regexPattern;
+    private static volatile TrieNode trie;
+
+    /**
+     * Builds the trie if that didn't happen yet. Reading and splitting the list takes a while,
+     * so call this off the main thread before the first message gets bound.
+     */
+    public static void warmUp(@NonNull final Context context) {
+        getTrie(context);
+    }
 
     public static boolean isMessageWithSingleEmoticonOnly(@NonNull final Context context,
                                                           @Nullable final CharSequence text) {
+        return countEmoticonsOnly(getTrie(context), text, 1) == 1;
+    }
+
+    public static boolean isMessageWithEmoticonsOnly(@NonNull final Context context,
+                                                     @Nullable final CharSequence text, int maxEmoticons) {
+        return countEmoticonsOnly(getTrie(context), text, maxEmoticons) > 0;
+    }
+
+    /*
+        Returns how many emoticons the text consists of, or -1 if it contains anything else or more
+        than maxEmoticons of them.
+     */
+    static int countEmoticonsOnly(@NonNull final TrieNode root, @Nullable final CharSequence text,
+                                  int maxEmoticons) {
+        if (text == null || text.length() == 0) {
+            return -1;
+        }
+
+        int length = text.length();
+        int position = 0;
+        int count = 0;
+
+        while (position < length) {
+            TrieNode node = root;
+            int end = -1;
+            for (int i = position; i < length && (node = node.getChild(text.charAt(i))) != null; i++) {
+                if (node.isEmoticon) {
+                    end = i + 1;
+                }
+            }
+
+            if (end == -1 || ++count > maxEmoticons) {
+                return -1;
+            }
+
+            position = end;
+        }
+
+        return count;
+    }
 
-        int startPosition = -1;
-        int endPosition = -1;
-
-        if (!TextUtils.isEmpty(text)) {
-            final Matcher matcher = getRegex(context).matcher(text);
-            while (matcher.find()) {
-                if (startPosition == -1 && endPosition == -1) {
-                    startPosition = matcher.start();
-                    endPosition = matcher.end();
-                } else {
-                    return false;
+    @NonNull
+    private static TrieNode getTrie(@NonNull final Context context) {
+        TrieNode root = trie;
+        if (root == null) {
+            synchronized (EmojiDetection.class) {
+                if ((root = trie) == null) {
+                    root = buildTrie(readTextFile(context, R.raw.regex));
+                    trie = root;
                 }
             }
-        } else {
-            return false;
         }
 
-        return startPosition == 0 && text.length() == endPosition;
+        return root;
     }
 
+    /*
+        The list is a regex of quoted alternatives, \Q😀\E|\Q😁\E|..., so dropping the quoting
+        leaves the plain emoticons.
+     */
     @NonNull
-    private static Pattern getRegex(@NonNull final Context context) {
-        if (regexPattern == null) {
-            String regex = readTextFile(context, R.raw.regex);
-            regexPattern = Pattern.compile(regex);
+    static TrieNode buildTrie(@NonNull String regex) {
+        TrieNode root = new TrieNode();
+        for (String alternative : regex.split("\\|")) {
+            String emoticon = alternative.replace("\\Q", "").replace("\\E", "");
+            if (emoticon.length() == 0) {
+                continue;
+            }
+
+            TrieNode node = root;
+            for (int i = 0; i < emoticon.length(); i++) {
+                node = node.getOrAddChild(emoticon.charAt(i));
+            }
+            node.isEmoticon = true;
         }
 
-        return regexPattern;
+        return root;
     }
 
     @NonNull
@@ -98,4 +156,44 @@ public final class EmojiDetection {
 
         return builder.toString();
     }
+
+    // children are kept sorted by their char, emoticons branch out very little past the first one
+    static class TrieNode {
+        private static final char[] NO_KEYS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        private char[] keys = NO_KEYS;
+        private TrieNode[] children = NO_CHILDREN;
+        private boolean isEmoticon;
+
+        @Nullable
+        TrieNode getChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        @NonNull
+        TrieNode getOrAddChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            index = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+            TrieNode child = new TrieNode();
+            newKeys[index] = key;
+            newChildren[index] = child;
+            keys = newKeys;
+            children = newChildren;
+
+            return child;
+        }
+    }
 }
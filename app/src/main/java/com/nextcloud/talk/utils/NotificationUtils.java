@@ -32,6 +32,7 @@ import android.text.TextUtils;
 
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.models.database.UserEntity;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePendingNotificationsHolder;
 
 import java.util.zip.CRC32;
 
@@ -79,6 +80,8 @@ public class NotificationUtils {
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M && conversationUser.getId() != -1 &&
                 context != null) {
 
+            ApplicationWidePendingNotificationsHolder.getInstance().clearShownLinesForUser(conversationUser.getId());
+
             NotificationManager notificationManager =
                     (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 
@@ -21,6 +21,7 @@
 package com.nextcloud.talk.utils;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Base64;
 import android.util.Log;
@@ -28,6 +29,7 @@ import android.util.Log;
 import com.bluelinelabs.logansquare.LoganSquare;
 import com.nextcloud.talk.R;
 import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.api.NcApiProvider;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.events.EventStatus;
 import com.nextcloud.talk.models.SignatureVerification;
@@ -36,6 +38,8 @@ import com.nextcloud.talk.models.json.push.PushConfigurationState;
 import com.nextcloud.talk.models.json.push.PushRegistrationOverall;
 import com.nextcloud.talk.utils.database.user.UserUtils;
 import com.nextcloud.talk.utils.preferences.AppPreferences;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+import com.nextcloud.talk.utils.singletons.ApplicationWidePushKeysHolder;
 
 import org.greenrobot.eventbus.EventBus;
 
@@ -51,12 +55,14 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,7 +72,6 @@ import javax.inject.Inject;
 import autodagger.AutoInjector;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 @AutoInjector(NextcloudTalkApplication.class)
 public class PushUtils {
@@ -82,7 +87,10 @@ public class PushUtils {
     EventBus eventBus;
 
     @Inject
-    NcApi ncApi;
+    NcApiProvider ncApiProvider;
+
+    @Inject
+    AppSchedulers appSchedulers;
 
     private File keysFile;
     private File publicKeyFile;
@@ -104,36 +112,39 @@ public class PushUtils {
     }
 
     public SignatureVerification verifySignature(byte[] signatureBytes, byte[] subjectBytes) {
-        Signature signature = null;
-        PushConfigurationState pushConfigurationState;
+        ApplicationWidePushKeysHolder pushKeysHolder = ApplicationWidePushKeysHolder.getInstance();
+        Signature signature = pushKeysHolder.getSignature();
         PublicKey publicKey;
         SignatureVerification signatureVerification = new SignatureVerification();
         signatureVerification.setSignatureValid(false);
 
-        List<UserEntity> userEntities = userUtils.getUsers();
+        List<UserEntity> userEntities = new ArrayList<UserEntity>(userUtils.getUsers());
+        if (signature == null || userEntities.size() == 0) {
+            return signatureVerification;
+        }
+
+        long lastVerifiedUserId = pushKeysHolder.getLastVerifiedUserId();
+        for (int i = 1; i < userEntities.size(); i++) {
+            if (userEntities.get(i).getId() == lastVerifiedUserId) {
+                userEntities.add(0, userEntities.remove(i));
+                break;
+            }
+        }
+
         try {
-            signature = Signature.getInstance("SHA512withRSA");
-            if (userEntities != null && userEntities.size() > 0) {
-                for (UserEntity userEntity : userEntities) {
-                    if (!TextUtils.isEmpty(userEntity.getPushConfigurationState())) {
-                        pushConfigurationState = LoganSquare.parse(userEntity.getPushConfigurationState(),
-                                PushConfigurationState.class);
-                        publicKey = (PublicKey) readKeyFromString(true,
-                                pushConfigurationState.getUserPublicKey());
-                        signature.initVerify(publicKey);
-                        signature.update(subjectBytes);
-                        if (signature.verify(signatureBytes)) {
-                            signatureVerification.setSignatureValid(true);
-                            signatureVerification.setUserEntity(userEntity);
-                            return signatureVerification;
-                        }
+            for (UserEntity userEntity : userEntities) {
+                if (!TextUtils.isEmpty(userEntity.getPushConfigurationState()) &&
+                        (publicKey = getUserPublicKey(userEntity)) != null) {
+                    signature.initVerify(publicKey);
+                    signature.update(subjectBytes);
+                    if (signature.verify(signatureBytes)) {
+                        pushKeysHolder.setLastVerifiedUserId(userEntity.getId());
+                        signatureVerification.setSignatureValid(true);
+                        signatureVerification.setUserEntity(userEntity);
+                        return signatureVerification;
                     }
                 }
             }
-        } catch (NoSuchAlgorithmException e) {
-            Log.d(TAG, "No such algorithm");
-        } catch (IOException e) {
-            Log.d(TAG, "Error while trying to parse push configuration state");
         } catch (InvalidKeyException e) {
             Log.d(TAG, "Invalid key while trying to verify");
         } catch (SignatureException e) {
@@ -143,6 +154,28 @@ public class PushUtils {
         return signatureVerification;
     }
 
+    @Nullable
+    private PublicKey getUserPublicKey(UserEntity userEntity) {
+        ApplicationWidePushKeysHolder pushKeysHolder = ApplicationWidePushKeysHolder.getInstance();
+        String pushConfigurationStateString = userEntity.getPushConfigurationState();
+        PublicKey publicKey = pushKeysHolder.getUserPublicKey(userEntity.getId(), pushConfigurationStateString);
+
+        if (publicKey == null) {
+            try {
+                PushConfigurationState pushConfigurationState = LoganSquare.parse(pushConfigurationStateString,
+                        PushConfigurationState.class);
+                publicKey = (PublicKey) readKeyFromString(true, pushConfigurationState.getUserPublicKey());
+                if (publicKey != null) {
+                    pushKeysHolder.setUserPublicKey(userEntity.getId(), pushConfigurationStateString, publicKey);
+                }
+            } catch (IOException e) {
+                Log.d(TAG, "Error while trying to parse push configuration state");
+            }
+        }
+
+        return publicKey;
+    }
+
     private int saveKeyToFile(Key key, String path) {
         byte[] encoded = key.getEncoded();
         FileOutputStream keyFileOutputStream = null;
@@ -263,6 +296,7 @@ public class PushUtils {
                             credentials = ApiUtils.getCredentials(userEntity.getUsername(), userEntity.getToken());
 
                             String finalCredentials = credentials;
+                            NcApi ncApi = ncApiProvider.getNcApi(userEntity);
                             ncApi.registerDeviceForNotificationsWithNextcloud(
                                     credentials,
                                     ApiUtils.getUrlNextcloudPush(userEntity.getBaseUrl()), queryMap)
@@ -286,7 +320,7 @@ public class PushUtils {
 
                                             ncApi.registerDeviceForNotificationsWithProxy(finalCredentials,
                                                     ApiUtils.getUrlPushProxy(), proxyMap)
-                                                    .subscribeOn(Schedulers.newThread())
+                                                    .subscribeOn(appSchedulers.network())
                                                     .subscribe(new Observer<Void>() {
                                                         @Override
                                                         public void onSubscribe(Disposable d) {
@@ -407,6 +441,12 @@ public class PushUtils {
     }
 
     public Key readKeyFromFile(boolean readPublicKey) {
+        ApplicationWidePushKeysHolder pushKeysHolder = ApplicationWidePushKeysHolder.getInstance();
+        Key cachedKey = readPublicKey ? pushKeysHolder.getDevicePublicKey() : pushKeysHolder.getDevicePrivateKey();
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
         String path;
 
         if (readPublicKey) {
@@ -426,10 +466,14 @@ public class PushUtils {
 
             if (readPublicKey) {
                 X509EncodedKeySpec keySpec = new X509EncodedKeySpec(bytes);
-                return keyFactory.generatePublic(keySpec);
+                PublicKey publicKey = keyFactory.generatePublic(keySpec);
+                pushKeysHolder.setDevicePublicKey(publicKey);
+                return publicKey;
             } else {
                 PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(bytes);
-                return keyFactory.generatePrivate(keySpec);
+                PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
+                pushKeysHolder.setDevicePrivateKey(privateKey);
+                return privateKey;
             }
 
         } catch (FileNotFoundException e) {
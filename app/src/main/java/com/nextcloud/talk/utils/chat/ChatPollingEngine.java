@@ -0,0 +1,283 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.chat;
+
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+import com.nextcloud.talk.models.json.chat.ChatOverall;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+import com.nextcloud.talk.utils.singletons.ApplicationWideStateHolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import retrofit2.Response;
+
+/*
+    Keeps a conversation live by long-polling for messages newer than lastKnownMessageId.
+    Every engine schedules its polls on a worker of the bounded network scheduler, backs off (with
+    jitter) after errors and after 304s that came back too quickly to be real long polls, and doesn't
+    poll at all while the app is in the background - it pauses and is resumed when the app comes back.
+ */
+public class ChatPollingEngine implements ApplicationWideStateHolder.ForegroundListener {
+    private static final String TAG = "ChatPollingEngine";
+
+    private static final int MESSAGES_LIMIT = 100;
+    private static final int LONG_POLL_TIMEOUT_SECONDS = 30;
+
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60000;
+    // a 304 faster than this means the server didn't hold the request open
+    private static final long MIN_LONG_POLL_DURATION_MS = 5000;
+
+    public interface ChatPollingListener {
+        // called on a background thread, before the response is handed over to the main thread
+        void onPrepareMessages(Response<ChatOverall> response);
+
+        // called on the main thread
+        void onMessagesReceived(Response<ChatOverall> response);
+    }
+
+    private final Random random = new Random();
+
+    private final AtomicLong pollsCount = new AtomicLong();
+    private final AtomicLong receivedMessagesCount = new AtomicLong();
+    private final AtomicLong totalPollLatency = new AtomicLong();
+    private volatile long lastPollLatency;
+
+    private NcApi ncApi;
+    private AppSchedulers appSchedulers;
+    private String credentials;
+    private String url;
+    private ChatPollingListener chatPollingListener;
+
+    private volatile boolean running;
+    private volatile int lastKnownMessageId = -1;
+    // only one poll is in flight at a time, so there's a single writer
+    private volatile int consecutiveFailures;
+    // only touched by tasks of pollingWorker, which runs them one after the other
+    private boolean pausedInBackground;
+
+    private Scheduler.Worker pollingWorker;
+    private Disposable pollDisposable;
+
+    public ChatPollingEngine(NcApi ncApi, AppSchedulers appSchedulers, @Nullable String credentials, String url,
+                             ChatPollingListener chatPollingListener) {
+        this.ncApi = ncApi;
+        this.appSchedulers = appSchedulers;
+        this.credentials = credentials;
+        this.url = url;
+        this.chatPollingListener = chatPollingListener;
+    }
+
+    public synchronized void start(int lastKnownMessageId) {
+        if (running) {
+            return;
+        }
+
+        this.lastKnownMessageId = lastKnownMessageId;
+        running = true;
+        consecutiveFailures = 0;
+        pollingWorker = appSchedulers.network().createWorker();
+        ApplicationWideStateHolder.getInstance().addForegroundListener(this);
+        schedulePoll(0);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        ApplicationWideStateHolder.getInstance().removeForegroundListener(this);
+
+        // drops the polls that are still scheduled
+        if (pollingWorker != null) {
+            pollingWorker.dispose();
+            pollingWorker = null;
+        }
+
+        if (pollDisposable != null && !pollDisposable.isDisposed()) {
+            pollDisposable.dispose();
+        }
+
+        Log.d(TAG, "Stopped after " + pollsCount.get() + " polls, " + getAverageMessagesPerPoll() +
+                " messages per poll, " + getAveragePollLatency() + " ms average latency");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getLastKnownMessageId() {
+        return lastKnownMessageId;
+    }
+
+    public long getPollsCount() {
+        return pollsCount.get();
+    }
+
+    public long getReceivedMessagesCount() {
+        return receivedMessagesCount.get();
+    }
+
+    public long getLastPollLatency() {
+        return lastPollLatency;
+    }
+
+    public long getAveragePollLatency() {
+        long polls = pollsCount.get();
+        return polls == 0 ? 0 : totalPollLatency.get() / polls;
+    }
+
+    public float getAverageMessagesPerPoll() {
+        long polls = pollsCount.get();
+        return polls == 0 ? 0 : (float) receivedMessagesCount.get() / polls;
+    }
+
+    private synchronized void schedulePoll(long delayMs) {
+        if (running) {
+            pollingWorker.schedule(this::poll, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void onForegroundChanged(boolean inForeground) {
+        if (inForeground && running) {
+            pollingWorker.schedule(() -> {
+                if (pausedInBackground) {
+                    pausedInBackground = false;
+                    schedulePoll(0);
+                }
+            });
+        }
+    }
+
+    private void poll() {
+        if (!running) {
+            return;
+        }
+
+        if (!ApplicationWideStateHolder.getInstance().isInForeground()) {
+            // runs on pollingWorker like the resume above, so the two can't miss each other
+            pausedInBackground = true;
+            return;
+        }
+        pausedInBackground = false;
+
+        Map<String, Integer> fieldMap = new HashMap<>();
+        fieldMap.put("lookIntoFuture", 1);
+        fieldMap.put("limit", MESSAGES_LIMIT);
+        fieldMap.put("timeout", LONG_POLL_TIMEOUT_SECONDS);
+
+        if (lastKnownMessageId != -1) {
+            fieldMap.put("lastKnownMessageId", lastKnownMessageId);
+        }
+
+        long pollStart = System.currentTimeMillis();
+
+        ncApi.pullChatMessages(credentials, url, fieldMap)
+                .subscribe(new Observer<Response<ChatOverall>>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        pollDisposable = d;
+                    }
+
+                    @Override
+                    public void onNext(Response<ChatOverall> response) {
+                        if (!running) {
+                            return;
+                        }
+
+                        long pollLatency = System.currentTimeMillis() - pollStart;
+                        lastPollLatency = pollLatency;
+                        pollsCount.incrementAndGet();
+                        totalPollLatency.addAndGet(pollLatency);
+
+                        if (response.code() == 200) {
+                            consecutiveFailures = 0;
+                            updateLastKnownMessageId(response);
+
+                            chatPollingListener.onPrepareMessages(response);
+                            AndroidSchedulers.mainThread().scheduleDirect(() -> {
+                                if (running) {
+                                    chatPollingListener.onMessagesReceived(response);
+                                }
+                            });
+
+                            schedulePoll(0);
+                        } else if (response.code() == 304 && pollLatency >= MIN_LONG_POLL_DURATION_MS) {
+                            // nothing new within the long poll timeout, ask again right away
+                            consecutiveFailures = 0;
+                            schedulePoll(0);
+                        } else {
+                            scheduleRetry();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.d(TAG, "Failed to pull chat messages: " + e.getLocalizedMessage());
+                        scheduleRetry();
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+                });
+    }
+
+    private void scheduleRetry() {
+        consecutiveFailures++;
+        long backoff = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(consecutiveFailures - 1, 16));
+        // full jitter on the upper half keeps many clients from retrying in lockstep
+        long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+        schedulePoll(delay);
+    }
+
+    private void updateLastKnownMessageId(Response<ChatOverall> response) {
+        String xChatLastGivenHeader;
+        if (response.headers().size() > 0 && !TextUtils.isEmpty((xChatLastGivenHeader = response.headers().get
+                ("X-Chat-Last-Given")))) {
+            lastKnownMessageId = Integer.parseInt(xChatLastGivenHeader);
+        } else if (response.body() != null) {
+            List<ChatMessage> chatMessageList = response.body().getOcs().getData();
+            for (ChatMessage chatMessage : chatMessageList) {
+                if (chatMessage.getJsonMessageId() > lastKnownMessageId) {
+                    lastKnownMessageId = chatMessage.getJsonMessageId();
+                }
+            }
+        }
+
+        if (response.body() != null && response.body().getOcs().getData() != null) {
+            receivedMessagesCount.addAndGet(response.body().getOcs().getData().size());
+        }
+    }
+}
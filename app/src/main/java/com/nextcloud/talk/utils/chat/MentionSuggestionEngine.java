@@ -0,0 +1,181 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.chat;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.models.database.UserEntity;
+import com.nextcloud.talk.models.json.mention.Mention;
+import com.nextcloud.talk.utils.ApiUtils;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.subjects.PublishSubject;
+
+/*
+    Mention suggestions for one room. Typing is debounced and a newer query cancels the request of
+    the previous one, so replies can't overtake each other. Answers are cached per query, and a
+    query is answered locally whenever a shorter one already returned every match - which, after the
+    first request, is always the case in rooms with few participants. Cached answers expire after a
+    minute, so people who join or leave while the chat is open show up in the suggestions soon.
+ */
+public class MentionSuggestionEngine {
+    private static final long DEBOUNCE_MS = 250;
+    // the server returns at most this many, so fewer results mean nothing was left out
+    private static final int SUGGESTIONS_LIMIT = 20;
+    private static final int PARTICIPANTS_LIMIT = 100;
+    private static final int CACHED_QUERIES = 64;
+    private static final long CACHED_SUGGESTIONS_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final NcApi ncApi;
+    private final AppSchedulers appSchedulers;
+    private final String credentials;
+    private final String url;
+
+    private final PublishSubject<String> querySubject = PublishSubject.create();
+    private final LruCache<String, CachedSuggestions> cachedSuggestions = new LruCache<>(CACHED_QUERIES);
+
+    public MentionSuggestionEngine(NcApi ncApi, AppSchedulers appSchedulers, UserEntity userEntity,
+                                   String roomToken) {
+        this.ncApi = ncApi;
+        this.appSchedulers = appSchedulers;
+        this.credentials = ApiUtils.getCredentials(userEntity.getUsername(), userEntity.getToken());
+        this.url = ApiUtils.getUrlForMentionSuggestions(userEntity.getBaseUrl(), roomToken);
+    }
+
+    /**
+     * Emits the suggestions for the latest query on the main thread, never errors.
+     */
+    public Observable<List<Mention>> getSuggestions() {
+        return querySubject
+                .switchMap(query -> {
+                    if (query.length() == 0) {
+                        return Observable.just(Collections.<Mention>emptyList());
+                    }
+
+                    List<Mention> localSuggestions = getLocalSuggestions(query);
+                    if (localSuggestions != null) {
+                        return Observable.just(localSuggestions);
+                    }
+
+                    // switchMap drops the timer too, so this doubles as the debounce
+                    return Observable.timer(DEBOUNCE_MS, TimeUnit.MILLISECONDS, appSchedulers.computation())
+                            .flatMap(tick -> fetchSuggestions(query, SUGGESTIONS_LIMIT));
+                })
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    // an empty query cancels whatever is still pending
+    public void query(@Nullable CharSequence query) {
+        querySubject.onNext(query == null ? "" : query.toString().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Fetches the participants of the room ahead of the first query. When the room is small
+     * enough for them to fit into one reply, every later query is answered without the server.
+     */
+    public void prefetchParticipants() {
+        fetchSuggestions("", PARTICIPANTS_LIMIT).subscribe(mentions -> {
+        }, throwable -> {
+        });
+    }
+
+    private Observable<List<Mention>> fetchSuggestions(String query, int limit) {
+        return ncApi.getMentionAutocompleteSuggestions(credentials, url, query, limit)
+                .subscribeOn(appSchedulers.network())
+                .map(mentionOverall -> {
+                    List<Mention> mentions = mentionOverall.getOcs().getData();
+                    cachedSuggestions.put(query, new CachedSuggestions(mentions, mentions.size() < limit,
+                            SystemClock.elapsedRealtime()));
+                    return mentions;
+                })
+                .retry(2)
+                .onErrorReturnItem(Collections.emptyList());
+    }
+
+    @Nullable
+    private List<Mention> getLocalSuggestions(String query) {
+        long now = SystemClock.elapsedRealtime();
+
+        CachedSuggestions exactSuggestions = getCachedSuggestions(query, now);
+        if (exactSuggestions != null) {
+            return exactSuggestions.mentions;
+        }
+
+        CachedSuggestions prefixSuggestions;
+        for (int length = query.length() - 1; length >= 0; length--) {
+            prefixSuggestions = getCachedSuggestions(query.substring(0, length), now);
+            if (prefixSuggestions != null && prefixSuggestions.isComplete) {
+                List<Mention> mentions = filter(prefixSuggestions.mentions, query);
+                // derived from the prefix, so it expires together with it
+                cachedSuggestions.put(query, new CachedSuggestions(mentions, true, prefixSuggestions.fetchedAt));
+                return mentions;
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private CachedSuggestions getCachedSuggestions(String query, long now) {
+        CachedSuggestions suggestions = cachedSuggestions.get(query);
+        if (suggestions != null && now - suggestions.fetchedAt > CACHED_SUGGESTIONS_TTL_MS) {
+            cachedSuggestions.remove(query);
+            return null;
+        }
+
+        return suggestions;
+    }
+
+    private static List<Mention> filter(List<Mention> mentions, String query) {
+        List<Mention> filteredMentions = new ArrayList<>();
+        for (Mention mention : mentions) {
+            if ((mention.getId() != null && mention.getId().toLowerCase(Locale.ROOT).contains(query)) ||
+                    (mention.getLabel() != null && mention.getLabel().toLowerCase(Locale.ROOT).contains(query))) {
+                filteredMentions.add(mention);
+            }
+        }
+
+        return filteredMentions;
+    }
+
+    private static class CachedSuggestions {
+        private final List<Mention> mentions;
+        // false if the server might have had more matches than it returned
+        private final boolean isComplete;
+        private final long fetchedAt;
+
+        CachedSuggestions(List<Mention> mentions, boolean isComplete, long fetchedAt) {
+            this.mentions = mentions;
+            this.isComplete = isComplete;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
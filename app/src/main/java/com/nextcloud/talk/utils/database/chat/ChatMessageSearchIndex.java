@@ -0,0 +1,337 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.chat;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.database.CachedChatMessageEntity;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+
+import net.sqlcipher.Cursor;
+import net.sqlcipher.DatabaseUtils;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import io.requery.android.sqlcipher.SqlCipherDatabaseSource;
+
+/*
+    Full text index over the rendered text of fetched chat messages. It lives in an FTS4 virtual
+    table of the same encrypted database, with the id of the cached message row as its docid.
+    requery can't describe virtual tables, so the table is created and queried with plain SQL.
+    The unicode61 tokenizer folds case and diacritics beyond ASCII, the simple one would never
+    match "Über" or Cyrillic words against the lowercased query.
+ */
+public class ChatMessageSearchIndex {
+    private static final String TAG = "ChatMessageSearchIndex";
+
+    private static final String TABLE = "chat_message_fts";
+    private static final int TEXT_COLUMN = 0;
+    private static final String MATCHINFO_FORMAT = "pcnalx";
+
+    // the usual BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final SqlCipherDatabaseSource sqlCipherDatabaseSource;
+
+    public ChatMessageSearchIndex(SqlCipherDatabaseSource sqlCipherDatabaseSource) {
+        this.sqlCipherDatabaseSource = sqlCipherDatabaseSource;
+    }
+
+    /*
+        Version 9 made the docid of the index the id of the cached message, version 10 switched it to the
+        unicode61 tokenizer. The old table is dropped and rebuilt from the cache once the database is open.
+     */
+    public static void upgradeDatabase(SQLiteDatabase database, int oldVersion) {
+        if (oldVersion < 10) {
+            database.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        }
+    }
+
+    /*
+        Called whenever the database is opened, before anything else uses it. Creates the table and
+        indexes what is cached already if it doesn't exist yet.
+     */
+    public static void openDatabase(SQLiteDatabase database) {
+        if (DatabaseUtils.longForQuery(database, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' " +
+                "AND name = ?", new String[]{TABLE}) > 0) {
+            return;
+        }
+
+        database.beginTransaction();
+        try {
+            database.execSQL("CREATE VIRTUAL TABLE " + TABLE + " USING fts4(" +
+                    "text, room_token, internal_user_id, message_id, " +
+                    "notindexed=room_token, notindexed=internal_user_id, notindexed=message_id, " +
+                    "prefix=\"2,3\", tokenize=unicode61)");
+            backfill(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private SQLiteDatabase getDatabase() {
+        return sqlCipherDatabaseSource.getWritableDatabase();
+    }
+
+    // indexes the messages that were cached before the table existed
+    private static void backfill(SQLiteDatabase database) {
+        Cursor cursor = database.rawQuery("SELECT " + CachedChatMessageEntity.ID.getName() + ", " +
+                CachedChatMessageEntity.INTERNAL_USER_ID.getName() + ", " +
+                CachedChatMessageEntity.ROOM_TOKEN.getName() + ", " +
+                CachedChatMessageEntity.MESSAGE_JSON.getName() + " FROM " + CachedChatMessageEntity.$TYPE.getName(),
+                null);
+
+        int indexedMessagesCount = 0;
+        try {
+            while (cursor.moveToNext()) {
+                try {
+                    insert(database, cursor.getLong(0), cursor.getLong(1), cursor.getString(2),
+                            LoganSquare.parse(cursor.getString(3), ChatMessage.class));
+                    indexedMessagesCount++;
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to parse cached message " + cursor.getLong(0));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Log.d(TAG, "Indexed " + indexedMessagesCount + " cached messages");
+    }
+
+    // expects a message that isn't indexed yet
+    public void index(long cachedMessageId, long internalUserId, String roomToken, ChatMessage chatMessage) {
+        insert(getDatabase(), cachedMessageId, internalUserId, roomToken, chatMessage);
+    }
+
+    private static void insert(SQLiteDatabase database, long cachedMessageId, long internalUserId, String roomToken,
+                               ChatMessage chatMessage) {
+        String text = chatMessage.getText();
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+
+        ContentValues contentValues = new ContentValues();
+        contentValues.put("docid", cachedMessageId);
+        contentValues.put("text", text);
+        contentValues.put("room_token", roomToken);
+        contentValues.put("internal_user_id", internalUserId);
+        contentValues.put("message_id", chatMessage.getJsonMessageId());
+        database.insert(TABLE, null, contentValues);
+    }
+
+    // has to run before the cached messages themselves are deleted
+    public void deleteOlderThan(long internalUserId, String roomToken, long messageId) {
+        getDatabase().execSQL("DELETE FROM " + TABLE + " WHERE docid IN (SELECT " +
+                        CachedChatMessageEntity.ID.getName() + " FROM " + CachedChatMessageEntity.$TYPE.getName() +
+                        " WHERE " + CachedChatMessageEntity.INTERNAL_USER_ID.getName() + " = ? AND " +
+                        CachedChatMessageEntity.ROOM_TOKEN.getName() + " = ? AND " +
+                        CachedChatMessageEntity.JSON_MESSAGE_ID.getName() + " < ?)",
+                new Object[]{internalUserId, roomToken, messageId});
+    }
+
+    public void deleteForUser(long internalUserId) {
+        // the columns of the virtual table have no affinity, numbers are compared as they were stored
+        getDatabase().delete(TABLE, "internal_user_id = " + internalUserId, null);
+    }
+
+    /*
+        Scores every match with BM25 from its matchinfo, keeps the best limit of them and only reads
+        the text of those.
+     */
+    public List<SearchResult> search(long internalUserId, String query, int limit) {
+        List<SearchResult> searchResults = new ArrayList<>();
+        String matchExpression = getMatchExpression(query);
+        if (TextUtils.isEmpty(matchExpression) || limit <= 0) {
+            return searchResults;
+        }
+
+        SQLiteDatabase database = getDatabase();
+        PriorityQueue<Candidate> bestCandidates = new PriorityQueue<>(limit + 1);
+
+        Cursor cursor = database.rawQuery("SELECT docid, matchinfo(" + TABLE + ", '" + MATCHINFO_FORMAT +
+                "') FROM " + TABLE + " WHERE " + TABLE + " MATCH ? AND internal_user_id = " + internalUserId,
+                new String[]{matchExpression});
+        try {
+            while (cursor.moveToNext()) {
+                bestCandidates.add(new Candidate(cursor.getLong(0), getScore(cursor.getBlob(1))));
+                if (bestCandidates.size() > limit) {
+                    bestCandidates.poll();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (bestCandidates.size() == 0) {
+            return searchResults;
+        }
+
+        // the queue hands out the worst candidate first
+        Candidate[] candidates = new Candidate[bestCandidates.size()];
+        Map<Long, Integer> positionsByDocId = new HashMap<>();
+        StringBuilder docIds = new StringBuilder();
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            candidates[i] = bestCandidates.poll();
+            positionsByDocId.put(candidates[i].docId, i);
+            if (docIds.length() > 0) {
+                docIds.append(',');
+            }
+            docIds.append(candidates[i].docId);
+        }
+
+        SearchResult[] rankedSearchResults = new SearchResult[candidates.length];
+        cursor = database.rawQuery("SELECT docid, room_token, message_id, text FROM " + TABLE +
+                " WHERE docid IN (" + docIds + ")", null);
+        try {
+            int position;
+            while (cursor.moveToNext()) {
+                position = positionsByDocId.get(cursor.getLong(0));
+                rankedSearchResults[position] = new SearchResult(cursor.getString(1), cursor.getInt(2),
+                        cursor.getString(3), candidates[position].score);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (SearchResult searchResult : rankedSearchResults) {
+            if (searchResult != null) {
+                searchResults.add(searchResult);
+            }
+        }
+
+        return searchResults;
+    }
+
+    /*
+        Every word becomes a prefix term and all of them have to match. Anything that means
+        something to the FTS query syntax is dropped.
+     */
+    private static String getMatchExpression(String query) {
+        StringBuilder matchExpression = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            word = word.replaceAll("[\"*^():\\-]", "");
+            if (word.length() == 0 || "and".equals(word) || "or".equals(word) || "not".equals(word) ||
+                    "near".equals(word)) {
+                continue;
+            }
+
+            if (matchExpression.length() > 0) {
+                matchExpression.append(' ');
+            }
+            matchExpression.append(word).append('*');
+        }
+
+        return matchExpression.toString();
+    }
+
+    /*
+        BM25 over the text column. matchinfo 'pcnalx' is p (phrases), c (columns), n (rows), a (average
+        tokens per column), l (tokens per column in this row) and then for every phrase and column the
+        hits in this row, the hits in all rows and the rows with hits. n and the hit counts cover every
+        account of the device, which is fine for weighting terms against each other.
+     */
+    static double getScore(byte[] matchInfo) {
+        IntBuffer intBuffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = intBuffer.get(0);
+        int columns = intBuffer.get(1);
+        int rows = intBuffer.get(2);
+        int averageLength = Math.max(1, intBuffer.get(3 + TEXT_COLUMN));
+        int length = intBuffer.get(3 + columns + TEXT_COLUMN);
+        double lengthNormalization = K1 * (1 - B + B * length / averageLength);
+
+        double score = 0;
+        int offset;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            offset = 3 + 2 * columns + 3 * (phrase * columns + TEXT_COLUMN);
+            int hitsInRow = intBuffer.get(offset);
+            int rowsWithHits = intBuffer.get(offset + 2);
+            if (hitsInRow > 0) {
+                double idf = Math.log(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                score += idf * hitsInRow * (K1 + 1) / (hitsInRow + lengthNormalization);
+            }
+        }
+
+        return score;
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        private final long docId;
+        private final double score;
+
+        Candidate(long docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+
+        // worst first, and of equally scored candidates the oldest
+        @Override
+        public int compareTo(@NonNull Candidate candidate) {
+            int result = Double.compare(score, candidate.score);
+            return result != 0 ? result : Long.compare(docId, candidate.docId);
+        }
+    }
+
+    public static class SearchResult {
+        private final String roomToken;
+        private final int messageId;
+        private final String text;
+        private final double score;
+
+        SearchResult(String roomToken, int messageId, String text, double score) {
+            this.roomToken = roomToken;
+            this.messageId = messageId;
+            this.text = text;
+            this.score = score;
+        }
+
+        public String getRoomToken() {
+            return roomToken;
+        }
+
+        public int getMessageId() {
+            return messageId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.chat;
+
+import android.content.ContentValues;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.database.CachedChatMessage;
+import com.nextcloud.talk.models.database.CachedChatMessageEntity;
+import com.nextcloud.talk.models.json.chat.ChatMessage;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import net.sqlcipher.DatabaseUtils;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.requery.Persistable;
+import io.requery.android.sqlcipher.SqlCipherDatabaseSource;
+import io.requery.query.Result;
+import io.requery.reactivex.ReactiveEntityStore;
+
+public class ChatMessageUtils {
+    private static final String TAG = "ChatMessageUtils";
+
+    private static final String ROOM_INDEX = "cached_chat_message_room_index";
+    // newest messages kept per room, older ones are fetched from the server again when needed
+    private static final int MAX_CACHED_MESSAGES_PER_ROOM = 1000;
+    private static final int TRIM_THRESHOLD = 200;
+
+    private ReactiveEntityStore<Persistable> dataStore;
+    private SqlCipherDatabaseSource sqlCipherDatabaseSource;
+    private AppSchedulers appSchedulers;
+    private ChatMessageSearchIndex chatMessageSearchIndex;
+
+    ChatMessageUtils(ReactiveEntityStore<Persistable> dataStore, SqlCipherDatabaseSource sqlCipherDatabaseSource,
+                     AppSchedulers appSchedulers, ChatMessageSearchIndex chatMessageSearchIndex) {
+        this.dataStore = dataStore;
+        this.sqlCipherDatabaseSource = sqlCipherDatabaseSource;
+        this.appSchedulers = appSchedulers;
+        this.chatMessageSearchIndex = chatMessageSearchIndex;
+    }
+
+    /**
+     * Returns up to limit most recent cached messages of a room, newest first - the same
+     * order the server uses when looking into the past.
+     */
+    public Observable<List<ChatMessage>> getCachedMessages(long internalUserId, String roomToken, int limit) {
+        return Observable.fromCallable(() -> {
+            Result<CachedChatMessage> result = dataStore.select(CachedChatMessage.class)
+                    .where(CachedChatMessageEntity.INTERNAL_USER_ID.eq(internalUserId)
+                            .and(CachedChatMessageEntity.ROOM_TOKEN.eq(roomToken)))
+                    .orderBy(CachedChatMessageEntity.JSON_MESSAGE_ID.desc())
+                    .limit(limit).get();
+
+            List<ChatMessage> chatMessages = new ArrayList<>();
+            for (CachedChatMessage cachedChatMessage : result) {
+                try {
+                    chatMessages.add(LoganSquare.parse(cachedChatMessage.getMessageJson(), ChatMessage.class));
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to parse cached message " + cachedChatMessage.getJsonMessageId());
+                }
+            }
+
+            return chatMessages;
+        }).subscribeOn(appSchedulers.database());
+    }
+
+    public Completable storeMessages(long internalUserId, String roomToken, List<ChatMessage> chatMessages) {
+        List<ChatMessage> messagesToStore = new ArrayList<>(chatMessages);
+        return Completable.fromAction(() -> {
+            if (messagesToStore.size() == 0) {
+                return;
+            }
+
+            SQLiteDatabase database = sqlCipherDatabaseSource.getWritableDatabase();
+            ContentValues contentValues = new ContentValues();
+            long cachedMessageId;
+            int newMessagesCount = 0;
+
+            database.beginTransaction();
+            try {
+                for (ChatMessage chatMessage : messagesToStore) {
+                    contentValues.clear();
+                    contentValues.put(CachedChatMessageEntity.INTERNAL_USER_ID.getName(), internalUserId);
+                    contentValues.put(CachedChatMessageEntity.ROOM_TOKEN.getName(), roomToken);
+                    contentValues.put(CachedChatMessageEntity.JSON_MESSAGE_ID.getName(),
+                            chatMessage.getJsonMessageId());
+                    try {
+                        contentValues.put(CachedChatMessageEntity.MESSAGE_JSON.getName(),
+                                LoganSquare.serialize(chatMessage));
+                    } catch (IOException e) {
+                        Log.e(TAG, "Failed to serialize message " + chatMessage.getJsonMessageId());
+                        continue;
+                    }
+
+                    // the unique room index turns messages that are cached already into no-ops
+                    cachedMessageId = database.insertWithOnConflict(CachedChatMessageEntity.$TYPE.getName(), null,
+                            contentValues, SQLiteDatabase.CONFLICT_IGNORE);
+                    if (cachedMessageId != -1) {
+                        chatMessageSearchIndex.index(cachedMessageId, internalUserId, roomToken, chatMessage);
+                        newMessagesCount++;
+                    }
+                }
+
+                if (newMessagesCount > 0) {
+                    trimRoom(database, internalUserId, roomToken);
+                }
+
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }).subscribeOn(appSchedulers.database());
+    }
+
+    /*
+        Drops the oldest cached messages of a room once it grew well past its cap, so the delete only
+        runs every few hundred messages instead of on every poll.
+     */
+    private void trimRoom(SQLiteDatabase database, long internalUserId, String roomToken) {
+        String table = CachedChatMessageEntity.$TYPE.getName();
+        String where = CachedChatMessageEntity.INTERNAL_USER_ID.getName() + " = ? AND " +
+                CachedChatMessageEntity.ROOM_TOKEN.getName() + " = ?";
+        String[] whereArgs = new String[]{Long.toString(internalUserId), roomToken};
+
+        if (DatabaseUtils.longForQuery(database, "SELECT COUNT(*) FROM " + table + " WHERE " + where, whereArgs) <=
+                MAX_CACHED_MESSAGES_PER_ROOM + TRIM_THRESHOLD) {
+            return;
+        }
+
+        String messageIdColumn = CachedChatMessageEntity.JSON_MESSAGE_ID.getName();
+        long oldestKeptMessageId = DatabaseUtils.longForQuery(database, "SELECT " + messageIdColumn + " FROM " +
+                table + " WHERE " + where + " ORDER BY " + messageIdColumn + " DESC LIMIT 1 OFFSET " +
+                (MAX_CACHED_MESSAGES_PER_ROOM - 1), whereArgs);
+
+        chatMessageSearchIndex.deleteOlderThan(internalUserId, roomToken, oldestKeptMessageId);
+        database.delete(table, where + " AND " + messageIdColumn + " < ?",
+                new String[]{Long.toString(internalUserId), roomToken, Long.toString(oldestKeptMessageId)});
+    }
+
+    /*
+        Version 8 made the room index of the message cache unique. Copies of a message that got in
+        before are dropped, the first one is kept.
+     */
+    public static void upgradeDatabase(SQLiteDatabase database, int oldVersion) {
+        if (oldVersion >= 8) {
+            return;
+        }
+
+        String table = CachedChatMessageEntity.$TYPE.getName();
+        String roomColumns = CachedChatMessageEntity.INTERNAL_USER_ID.getName() + ", " +
+                CachedChatMessageEntity.ROOM_TOKEN.getName() + ", " +
+                CachedChatMessageEntity.JSON_MESSAGE_ID.getName();
+        String idColumn = CachedChatMessageEntity.ID.getName();
+
+        database.execSQL("DELETE FROM " + table + " WHERE " + idColumn + " NOT IN (SELECT MIN(" + idColumn +
+                ") FROM " + table + " GROUP BY " + roomColumns + ")");
+        database.execSQL("DROP INDEX IF EXISTS " + ROOM_INDEX);
+        database.execSQL("CREATE UNIQUE INDEX " + ROOM_INDEX + " ON " + table + " (" + roomColumns + ")");
+    }
+
+    /**
+     * Searches the cached messages of all rooms of an account. Every word of the query is matched
+     * as a prefix, best matches come first. Nothing in the app searches yet, this is for a search UI.
+     * Only what is cached is found, which is the newest 1000 or so messages of every room.
+     */
+    public Observable<List<ChatMessageSearchIndex.SearchResult>> searchMessages(long internalUserId, String query,
+                                                                                int limit) {
+        return Observable.fromCallable(() -> chatMessageSearchIndex.search(internalUserId, query, limit))
+                .subscribeOn(appSchedulers.database());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.conversations;
+
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.database.CachedConversationList;
+import com.nextcloud.talk.models.database.CachedConversationListEntity;
+import com.nextcloud.talk.models.json.rooms.Conversation;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.requery.Persistable;
+import io.requery.reactivex.ReactiveEntityStore;
+
+public class ConversationListUtils {
+    private static final String TAG = "ConversationListUtils";
+
+    private ReactiveEntityStore<Persistable> dataStore;
+    private AppSchedulers appSchedulers;
+
+    ConversationListUtils(ReactiveEntityStore<Persistable> dataStore, AppSchedulers appSchedulers) {
+        this.dataStore = dataStore;
+        this.appSchedulers = appSchedulers;
+    }
+
+    /**
+     * Emits the conversations last fetched for the user, or completes empty if there are none.
+     */
+    public Maybe<List<Conversation>> getCachedConversations(long internalUserId) {
+        return Maybe.<List<Conversation>>create(emitter -> {
+            CachedConversationList cachedConversationList = dataStore.select(CachedConversationList.class)
+                    .where(CachedConversationListEntity.INTERNAL_USER_ID.eq(internalUserId))
+                    .limit(1).get().firstOrNull();
+
+            if (cachedConversationList != null) {
+                try {
+                    emitter.onSuccess(LoganSquare.parseList(cachedConversationList.getRoomsJson(),
+                            Conversation.class));
+                    return;
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to parse cached conversations");
+                }
+            }
+
+            emitter.onComplete();
+        }).subscribeOn(appSchedulers.database());
+    }
+
+    public Completable storeConversations(long internalUserId, List<Conversation> conversations) {
+        List<Conversation> conversationsToStore = new ArrayList<>(conversations);
+        return Completable.fromAction(() -> {
+            CachedConversationListEntity cachedConversationList = (CachedConversationListEntity)
+                    dataStore.select(CachedConversationList.class)
+                            .where(CachedConversationListEntity.INTERNAL_USER_ID.eq(internalUserId))
+                            .limit(1).get().firstOrNull();
+
+            if (cachedConversationList == null) {
+                cachedConversationList = new CachedConversationListEntity();
+                cachedConversationList.setInternalUserId(internalUserId);
+            }
+
+            cachedConversationList.setRoomsJson(LoganSquare.serialize(conversationsToStore, Conversation.class));
+            cachedConversationList.setStoredAt(System.currentTimeMillis());
+
+            dataStore.upsert(cachedConversationList).blockingGet();
+        }).subscribeOn(appSchedulers.database());
+    }
+}
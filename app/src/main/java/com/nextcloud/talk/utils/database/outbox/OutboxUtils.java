@@ -0,0 +1,87 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.outbox;
+
+import com.nextcloud.talk.models.database.OutgoingMessage;
+import com.nextcloud.talk.models.database.OutgoingMessageEntity;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.requery.Persistable;
+import io.requery.reactivex.ReactiveEntityStore;
+
+public class OutboxUtils {
+    private ReactiveEntityStore<Persistable> dataStore;
+    private AppSchedulers appSchedulers;
+
+    OutboxUtils(ReactiveEntityStore<Persistable> dataStore, AppSchedulers appSchedulers) {
+        this.dataStore = dataStore;
+        this.appSchedulers = appSchedulers;
+    }
+
+    public Observable<OutgoingMessageEntity> enqueueMessage(long internalUserId, String roomToken, String message,
+                                                            String actorDisplayName) {
+        return Observable.fromCallable(() -> {
+            OutgoingMessageEntity outgoingMessage = new OutgoingMessageEntity();
+            outgoingMessage.setInternalUserId(internalUserId);
+            outgoingMessage.setRoomToken(roomToken);
+            outgoingMessage.setMessage(message);
+            outgoingMessage.setActorDisplayName(actorDisplayName);
+            outgoingMessage.setTimestamp(System.currentTimeMillis() / 1000L);
+            outgoingMessage.setAttempts(0);
+
+            return dataStore.insert(outgoingMessage).blockingGet();
+        }).subscribeOn(appSchedulers.database());
+    }
+
+    /**
+     * Returns the messages still waiting to be sent for a room, oldest first.
+     */
+    public Observable<List<OutgoingMessage>> getPendingMessages(long internalUserId, String roomToken) {
+        return Observable.fromCallable(() -> dataStore.select(OutgoingMessage.class)
+                .where(OutgoingMessageEntity.INTERNAL_USER_ID.eq(internalUserId)
+                        .and(OutgoingMessageEntity.ROOM_TOKEN.eq(roomToken)))
+                .orderBy(OutgoingMessageEntity.ID.asc())
+                .get().toList())
+                .subscribeOn(appSchedulers.database());
+    }
+
+    // blocking, meant for workers
+    public List<OutgoingMessage> getPendingMessages(long internalUserId) {
+        return dataStore.select(OutgoingMessage.class)
+                .where(OutgoingMessageEntity.INTERNAL_USER_ID.eq(internalUserId))
+                .orderBy(OutgoingMessageEntity.ID.asc())
+                .get().toList();
+    }
+
+    // blocking, meant for workers
+    public void markAttempted(OutgoingMessage outgoingMessage) {
+        outgoingMessage.setAttempts(outgoingMessage.getAttempts() + 1);
+        dataStore.update(outgoingMessage).blockingGet();
+    }
+
+    // blocking, meant for workers
+    public void removeMessage(OutgoingMessage outgoingMessage) {
+        dataStore.delete(outgoingMessage).blockingAwait();
+    }
+
+}
@@ -21,6 +21,9 @@ package com.nextcloud.talk.utils.database.user;
 
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 import com.nextcloud.talk.dagger.modules.DatabaseModule;
+import com.nextcloud.talk.dagger.modules.SchedulerModule;
+import com.nextcloud.talk.utils.database.chat.ChatMessageSearchIndex;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 
 import javax.inject.Inject;
 
@@ -30,7 +33,7 @@ import dagger.Provides;
 import io.requery.Persistable;
 import io.requery.reactivex.ReactiveEntityStore;
 
-@Module(includes = DatabaseModule.class)
+@Module(includes = {DatabaseModule.class, SchedulerModule.class})
 @AutoInjector(NextcloudTalkApplication.class)
 public class UserModule {
 
@@ -39,7 +42,9 @@ public class UserModule {
     }
 
     @Provides
-    public UserUtils provideUserUtils(ReactiveEntityStore<Persistable> dataStore) {
-        return new UserUtils(dataStore);
+    public UserUtils provideUserUtils(ReactiveEntityStore<Persistable> dataStore,
+                                      AppSchedulers appSchedulers,
+                                      ChatMessageSearchIndex chatMessageSearchIndex) {
+        return new UserUtils(dataStore, appSchedulers, chatMessageSearchIndex);
     }
 }
@@ -23,24 +23,36 @@ package com.nextcloud.talk.utils.database.user;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.nextcloud.talk.models.database.CachedChatMessage;
+import com.nextcloud.talk.models.database.CachedChatMessageEntity;
+import com.nextcloud.talk.models.database.CachedConversationList;
+import com.nextcloud.talk.models.database.CachedConversationListEntity;
+import com.nextcloud.talk.models.database.OutgoingMessage;
+import com.nextcloud.talk.models.database.OutgoingMessageEntity;
 import com.nextcloud.talk.models.database.User;
 import com.nextcloud.talk.models.database.UserEntity;
+import com.nextcloud.talk.utils.database.chat.ChatMessageSearchIndex;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
 
 import java.util.List;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.schedulers.Schedulers;
 import io.requery.Persistable;
 import io.requery.query.Result;
 import io.requery.reactivex.ReactiveEntityStore;
 
 public class UserUtils {
     private ReactiveEntityStore<Persistable> dataStore;
+    private AppSchedulers appSchedulers;
+    private ChatMessageSearchIndex chatMessageSearchIndex;
 
-    UserUtils(ReactiveEntityStore<Persistable> dataStore) {
+    UserUtils(ReactiveEntityStore<Persistable> dataStore, AppSchedulers appSchedulers,
+              ChatMessageSearchIndex chatMessageSearchIndex) {
         this.dataStore = dataStore;
+        this.appSchedulers = appSchedulers;
+        this.chatMessageSearchIndex = chatMessageSearchIndex;
     }
 
     public boolean anyUserExists() {
@@ -91,8 +103,12 @@ public class UserUtils {
 
         UserEntity user = (UserEntity) findUserQueryResult.firstOrNull();
 
-        return dataStore.delete(user)
-                .subscribeOn(Schedulers.newThread())
+        return deleteCachedChatMessages(internalId)
+                .andThen(deleteCachedConversationList(internalId))
+                .andThen(deleteOutgoingMessages(internalId))
+                .andThen(Completable.fromAction(() -> chatMessageSearchIndex.deleteForUser(internalId)))
+                .andThen(dataStore.delete(user))
+                .subscribeOn(appSchedulers.database())
                 .observeOn(AndroidSchedulers.mainThread());
 
     }
@@ -102,11 +118,33 @@ public class UserUtils {
 
         UserEntity user = (UserEntity) findUserQueryResult.firstOrNull();
 
-        return dataStore.delete(user)
-                .subscribeOn(Schedulers.newThread());
+        return deleteCachedChatMessages(id)
+                .andThen(deleteCachedConversationList(id))
+                .andThen(deleteOutgoingMessages(id))
+                .andThen(Completable.fromAction(() -> chatMessageSearchIndex.deleteForUser(id)))
+                .andThen(dataStore.delete(user))
+                .subscribeOn(appSchedulers.database());
 
     }
 
+    private Completable deleteCachedChatMessages(long internalId) {
+        return dataStore.delete(CachedChatMessage.class)
+                .where(CachedChatMessageEntity.INTERNAL_USER_ID.eq(internalId))
+                .get().single().toCompletable();
+    }
+
+    private Completable deleteCachedConversationList(long internalId) {
+        return dataStore.delete(CachedConversationList.class)
+                .where(CachedConversationListEntity.INTERNAL_USER_ID.eq(internalId))
+                .get().single().toCompletable();
+    }
+
+    private Completable deleteOutgoingMessages(long internalId) {
+        return dataStore.delete(OutgoingMessage.class)
+                .where(OutgoingMessageEntity.INTERNAL_USER_ID.eq(internalId))
+                .get().single().toCompletable();
+    }
+
     public UserEntity getUserWithId(long id) {
         Result findUserQueryResult = dataStore.select(User.class).where(UserEntity.ID.eq(id))
                 .limit(1).get();
@@ -251,7 +289,7 @@ public class UserUtils {
 
         return dataStore.upsert(user)
                 .toObservable()
-                .subscribeOn(Schedulers.newThread());
+                .subscribeOn(appSchedulers.database());
     }
 
 }
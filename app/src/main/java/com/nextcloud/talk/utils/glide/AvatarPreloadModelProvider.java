@@ -0,0 +1,103 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.glide;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.resource.bitmap.CircleCrop;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
+import java.util.Collections;
+import java.util.List;
+
+import eu.davidea.flexibleadapter.FlexibleAdapter;
+
+/*
+    Loads the avatars of list rows before they scroll into view. Rows and the preloader have to build
+    the exact same request for the preloaded bitmap to be found in the memory cache, so both go
+    through getAvatarRequest.
+ */
+public class AvatarPreloadModelProvider implements ListPreloader.PreloadModelProvider<GlideUrl> {
+    // rows past the visible ones
+    private static final int MAX_PRELOAD = 10;
+
+    public interface AvatarItem {
+        @Nullable
+        GlideUrl getAvatarUrl();
+    }
+
+    private final Context context;
+    private final FlexibleAdapter adapter;
+    private final int avatarSize;
+
+    private AvatarPreloadModelProvider(Context context, FlexibleAdapter adapter, int avatarSize) {
+        this.context = context;
+        this.adapter = adapter;
+        this.avatarSize = avatarSize;
+    }
+
+    /**
+     * A scroll listener preloading the avatars of the AvatarItems in the adapter.
+     */
+    public static RecyclerViewPreloader<GlideUrl> getPreloader(Context context, FlexibleAdapter adapter,
+                                                               int avatarSize) {
+        return new RecyclerViewPreloader<>(GlideApp.with(context),
+                new AvatarPreloadModelProvider(context, adapter, avatarSize),
+                new FixedPreloadSizeProvider<>(avatarSize, avatarSize), MAX_PRELOAD);
+    }
+
+    public static GlideRequest<Bitmap> getAvatarRequest(Context context, Object model, int avatarSize) {
+        // no disk cache, repeat fetches are answered by AvatarInterceptor which also picks up changed avatars
+        return GlideApp.with(context)
+                .asBitmap()
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .load(model)
+                .centerInside()
+                .override(avatarSize, avatarSize)
+                .apply(RequestOptions.bitmapTransform(new CircleCrop()));
+    }
+
+    @NonNull
+    @Override
+    public List<GlideUrl> getPreloadItems(int position) {
+        Object item = adapter.getItem(position);
+        GlideUrl avatarUrl;
+        if (item instanceof AvatarItem && (avatarUrl = ((AvatarItem) item).getAvatarUrl()) != null) {
+            return Collections.singletonList(avatarUrl);
+        }
+
+        return Collections.emptyList();
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull GlideUrl avatarUrl) {
+        return getAvatarRequest(context, avatarUrl, avatarSize);
+    }
+}
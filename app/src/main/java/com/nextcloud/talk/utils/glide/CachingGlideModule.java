@@ -21,6 +21,7 @@
 package com.nextcloud.talk.utils.glide;
 
 
+import android.app.ActivityManager;
 import android.content.Context;
 
 import com.bumptech.glide.Glide;
@@ -28,8 +29,13 @@ import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
 import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
 import com.nextcloud.talk.application.NextcloudTalkApplication;
 
 import java.io.InputStream;
@@ -42,6 +48,8 @@ import okhttp3.OkHttpClient;
 @AutoInjector(NextcloudTalkApplication.class)
 @GlideModule
 public class CachingGlideModule extends AppGlideModule {
+    private static final int DISK_CACHE_SIZE = 64 * 1024 * 1024; // 64 MB
+
     @Inject
     OkHttpClient okHttpClient;
 
@@ -53,5 +61,16 @@ public class CachingGlideModule extends AppGlideModule {
 
     @Override
     public void applyOptions(Context context, GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassBytes = activityManager.getMemoryClass() * 1024 * 1024;
+
+        // a bit more than the defaults on roomy devices, a lot less on low ram ones
+        int divider = activityManager.isLowRamDevice() ? 16 : 8;
+        builder.setMemoryCache(new LruResourceCache(memoryClassBytes / divider));
+        builder.setBitmapPool(new LruBitmapPool(memoryClassBytes / divider));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, "glide", DISK_CACHE_SIZE));
+
+        // Glide still picks ARGB_8888 for images with alpha, and CircleCrop always does
+        builder.setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
     }
 }
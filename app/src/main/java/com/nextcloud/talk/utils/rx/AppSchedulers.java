@@ -0,0 +1,91 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.rx;
+
+import android.os.Process;
+import android.util.Log;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/*
+    Bounded schedulers for the whole app, so that a burst of requests queues up instead of
+    spawning a thread each.
+ */
+public class AppSchedulers {
+    private static final String TAG = "AppSchedulers";
+
+    // long polls park a thread each, so leave room for the regular requests next to them
+    private static final int NETWORK_THREADS = 8;
+    // SQLCipher serializes writes anyway
+    private static final int DATABASE_THREADS = 2;
+
+    private final InstrumentedThreadPoolExecutor networkExecutor;
+    private final InstrumentedThreadPoolExecutor databaseExecutor;
+    private final InstrumentedThreadPoolExecutor computationExecutor;
+
+    private final Scheduler networkScheduler;
+    private final Scheduler databaseScheduler;
+    private final Scheduler computationScheduler;
+
+    public AppSchedulers() {
+        networkExecutor = new InstrumentedThreadPoolExecutor("network", NETWORK_THREADS,
+                Process.THREAD_PRIORITY_BACKGROUND);
+        databaseExecutor = new InstrumentedThreadPoolExecutor("database", DATABASE_THREADS,
+                Process.THREAD_PRIORITY_BACKGROUND);
+        computationExecutor = new InstrumentedThreadPoolExecutor("computation",
+                Math.max(2, Runtime.getRuntime().availableProcessors()), Process.THREAD_PRIORITY_DEFAULT);
+
+        networkScheduler = Schedulers.from(networkExecutor);
+        databaseScheduler = Schedulers.from(databaseExecutor);
+        computationScheduler = Schedulers.from(computationExecutor);
+    }
+
+    public Scheduler network() {
+        return networkScheduler;
+    }
+
+    public Scheduler database() {
+        return databaseScheduler;
+    }
+
+    public Scheduler computation() {
+        return computationScheduler;
+    }
+
+    public InstrumentedThreadPoolExecutor getNetworkExecutor() {
+        return networkExecutor;
+    }
+
+    public InstrumentedThreadPoolExecutor getDatabaseExecutor() {
+        return databaseExecutor;
+    }
+
+    public InstrumentedThreadPoolExecutor getComputationExecutor() {
+        return computationExecutor;
+    }
+
+    public void logStats() {
+        Log.d(TAG, networkExecutor.toString());
+        Log.d(TAG, databaseExecutor.toString());
+        Log.d(TAG, computationExecutor.toString());
+    }
+}
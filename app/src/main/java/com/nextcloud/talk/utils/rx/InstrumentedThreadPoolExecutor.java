@@ -0,0 +1,145 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.rx;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    A fixed size pool that keeps track of how long tasks wait in its queue and how long they run.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String name;
+
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+    private final AtomicLong totalRunTime = new AtomicLong();
+    private final AtomicLong maxQueueTime = new AtomicLong();
+
+    public InstrumentedThreadPoolExecutor(String name, int threads, int threadPriority) {
+        super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(name, threadPriority));
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        super.execute(new TimedRunnable(command));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    public long getAverageQueueTime() {
+        long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalQueueTime.get() / completed;
+    }
+
+    public long getMaxQueueTime() {
+        return maxQueueTime.get();
+    }
+
+    public long getAverageRunTime() {
+        long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalRunTime.get() / completed;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": active " + getActiveCount() + "/" + getMaximumPoolSize() +
+                ", queued " + getQueueDepth() +
+                ", completed " + getCompletedTasks() +
+                ", avg wait " + getAverageQueueTime() + " ms (max " + getMaxQueueTime() + " ms)" +
+                ", avg run " + getAverageRunTime() + " ms";
+    }
+
+    private void recordTask(long queueTime, long runTime) {
+        completedTasks.incrementAndGet();
+        totalQueueTime.addAndGet(queueTime);
+        totalRunTime.addAndGet(runTime);
+
+        long currentMax;
+        while (queueTime > (currentMax = maxQueueTime.get())) {
+            if (maxQueueTime.compareAndSet(currentMax, queueTime)) {
+                break;
+            }
+        }
+    }
+
+    private class TimedRunnable implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedAt = System.currentTimeMillis();
+
+        TimedRunnable(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.currentTimeMillis();
+            try {
+                delegate.run();
+            } finally {
+                recordTask(startedAt - enqueuedAt, System.currentTimeMillis() - startedAt);
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+        private final String name;
+        private final int threadPriority;
+
+        NamedThreadFactory(String name, int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(threadPriority);
+                runnable.run();
+            }, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.singletons;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.json.capabilities.Capabilities;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Keeps parsed capabilities per user so capability checks don't run LoganSquare over the stored
+    capabilities string every single time. Entries are tied to the hash of the string they were parsed
+    from, so a user with updated capabilities never sees stale features.
+ */
+public class ApplicationWideCapabilitiesHolder {
+    private static final String TAG = "CapabilitiesHolder";
+
+    private static final ApplicationWideCapabilitiesHolder holder = new ApplicationWideCapabilitiesHolder();
+
+    private final Map<Long, ParsedCapabilities> parsedCapabilitiesMap = new ConcurrentHashMap<>();
+
+    public static ApplicationWideCapabilitiesHolder getInstance() {
+        return holder;
+    }
+
+    public boolean hasSpreedCapability(long internalUserId, @Nullable String capabilities, String capabilityName) {
+        ParsedCapabilities parsedCapabilities = getParsedCapabilities(internalUserId, capabilities);
+        return parsedCapabilities != null && parsedCapabilities.spreedFeatures.contains(capabilityName);
+    }
+
+    public boolean hasNotificationsCapability(long internalUserId, @Nullable String capabilities,
+                                              String capabilityName) {
+        ParsedCapabilities parsedCapabilities = getParsedCapabilities(internalUserId, capabilities);
+        return parsedCapabilities != null && parsedCapabilities.notificationsFeatures.contains(capabilityName);
+    }
+
+    public void invalidate(long internalUserId) {
+        parsedCapabilitiesMap.remove(internalUserId);
+    }
+
+    public void clear() {
+        parsedCapabilitiesMap.clear();
+    }
+
+    @Nullable
+    private ParsedCapabilities getParsedCapabilities(long internalUserId, @Nullable String capabilities) {
+        if (capabilities == null) {
+            return null;
+        }
+
+        int capabilitiesHash = capabilities.hashCode();
+        ParsedCapabilities parsedCapabilities = parsedCapabilitiesMap.get(internalUserId);
+
+        if (parsedCapabilities == null || parsedCapabilities.capabilitiesHash != capabilitiesHash) {
+            try {
+                Capabilities parsed = LoganSquare.parse(capabilities, Capabilities.class);
+                parsedCapabilities = new ParsedCapabilities(capabilitiesHash,
+                        toImmutableSet(parsed != null && parsed.getSpreedCapability() != null ?
+                                parsed.getSpreedCapability().getFeatures() : null),
+                        toImmutableSet(parsed != null && parsed.getNotificationsCapability() != null ?
+                                parsed.getNotificationsCapability().getFeatures() : null));
+                parsedCapabilitiesMap.put(internalUserId, parsedCapabilities);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to get capabilities for the user");
+                return null;
+            }
+        }
+
+        return parsedCapabilities;
+    }
+
+    private static Set<String> toImmutableSet(@Nullable List<String> features) {
+        if (features == null || features.size() == 0) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(new HashSet<>(features));
+    }
+
+    private static class ParsedCapabilities {
+        private final int capabilitiesHash;
+        private final Set<String> spreedFeatures;
+        private final Set<String> notificationsFeatures;
+
+        ParsedCapabilities(int capabilitiesHash, Set<String> spreedFeatures, Set<String> notificationsFeatures) {
+            this.capabilitiesHash = capabilitiesHash;
+            this.spreedFeatures = spreedFeatures;
+            this.notificationsFeatures = notificationsFeatures;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.singletons;
+
+import com.nextcloud.talk.models.json.push.DecryptedPushMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Collects chat pushes per conversation so that a burst of messages is rendered once, and remembers
+    the lines already shown in each conversation's notification so an update can show them again.
+ */
+public class ApplicationWidePendingNotificationsHolder {
+    private static final int MAX_SHOWN_LINES = 7;
+
+    private static final ApplicationWidePendingNotificationsHolder holder =
+            new ApplicationWidePendingNotificationsHolder();
+
+    private final Map<String, List<DecryptedPushMessage>> pendingPushMessages = new HashMap<>();
+    private final Map<String, LinkedList<CharSequence>> shownLines = new HashMap<>();
+    private final Map<String, Integer> shownMessagesCount = new HashMap<>();
+
+    public static ApplicationWidePendingNotificationsHolder getInstance() {
+        return holder;
+    }
+
+    public static String getConversationKey(long userId, String roomId) {
+        return userId + "#" + roomId;
+    }
+
+    /*
+        Returns true if there was no pending push for the conversation yet, in which case the caller
+        is responsible for draining the conversation once the coalescing window has passed.
+     */
+    public synchronized boolean enqueue(String conversationKey, DecryptedPushMessage decryptedPushMessage) {
+        List<DecryptedPushMessage> pending = pendingPushMessages.get(conversationKey);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            pending.add(decryptedPushMessage);
+            pendingPushMessages.put(conversationKey, pending);
+            return true;
+        }
+
+        pending.add(decryptedPushMessage);
+        return false;
+    }
+
+    public synchronized List<DecryptedPushMessage> drain(String conversationKey) {
+        List<DecryptedPushMessage> pending = pendingPushMessages.remove(conversationKey);
+        return pending != null ? pending : new ArrayList<>();
+    }
+
+    /*
+        Appends one line per new message to those already shown and returns the lines to show now,
+        oldest first
+     */
+    public synchronized List<CharSequence> addShownLines(String conversationKey, List<CharSequence> lines) {
+        LinkedList<CharSequence> conversationLines = shownLines.get(conversationKey);
+        if (conversationLines == null) {
+            conversationLines = new LinkedList<>();
+            shownLines.put(conversationKey, conversationLines);
+        }
+
+        for (CharSequence line : lines) {
+            conversationLines.add(line);
+            if (conversationLines.size() > MAX_SHOWN_LINES) {
+                conversationLines.removeFirst();
+            }
+        }
+
+        Integer count = shownMessagesCount.get(conversationKey);
+        shownMessagesCount.put(conversationKey, (count != null ? count : 0) + lines.size());
+
+        return new ArrayList<>(conversationLines);
+    }
+
+    public synchronized int getShownMessagesCount(String conversationKey) {
+        Integer count = shownMessagesCount.get(conversationKey);
+        return count != null ? count : 0;
+    }
+
+    public synchronized void clearShownLines(String conversationKey) {
+        shownLines.remove(conversationKey);
+        shownMessagesCount.remove(conversationKey);
+    }
+
+    public synchronized void clearShownLinesForUser(long userId) {
+        String prefix = userId + "#";
+
+        Iterator<String> iterator = shownLines.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+
+        iterator = shownMessagesCount.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+}
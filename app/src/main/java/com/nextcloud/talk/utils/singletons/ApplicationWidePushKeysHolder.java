@@ -0,0 +1,160 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.singletons;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+
+/*
+    Keeps the decoded push keys around between pushes. User public keys are stored together with
+    the push configuration they were parsed from, so a re-registration replaces them on next use.
+ */
+public class ApplicationWidePushKeysHolder {
+    private static final String TAG = "PushKeysHolder";
+
+    private static final ApplicationWidePushKeysHolder holder = new ApplicationWidePushKeysHolder();
+
+    private final Map<Long, UserPublicKey> userPublicKeys = new ConcurrentHashMap<>();
+
+    private volatile PublicKey devicePublicKey;
+    private volatile PrivateKey devicePrivateKey;
+    private volatile long lastVerifiedUserId = -1;
+
+    private final ThreadLocal<Signature> signature = new ThreadLocal<>();
+    private final ThreadLocal<Cipher> cipher = new ThreadLocal<>();
+
+    public static ApplicationWidePushKeysHolder getInstance() {
+        return holder;
+    }
+
+    @Nullable
+    public PublicKey getUserPublicKey(long userId, String pushConfigurationState) {
+        UserPublicKey userPublicKey = userPublicKeys.get(userId);
+        if (userPublicKey != null && userPublicKey.pushConfigurationState.equals(pushConfigurationState)) {
+            return userPublicKey.publicKey;
+        }
+
+        return null;
+    }
+
+    public void setUserPublicKey(long userId, String pushConfigurationState, PublicKey publicKey) {
+        userPublicKeys.put(userId, new UserPublicKey(pushConfigurationState, publicKey));
+    }
+
+    @Nullable
+    public PublicKey getDevicePublicKey() {
+        return devicePublicKey;
+    }
+
+    public void setDevicePublicKey(PublicKey devicePublicKey) {
+        this.devicePublicKey = devicePublicKey;
+    }
+
+    @Nullable
+    public PrivateKey getDevicePrivateKey() {
+        return devicePrivateKey;
+    }
+
+    public void setDevicePrivateKey(PrivateKey devicePrivateKey) {
+        this.devicePrivateKey = devicePrivateKey;
+    }
+
+    /*
+        Pushes mostly come in bursts for the same account, so the user whose key verified the
+        last push is the one to try first.
+     */
+    public long getLastVerifiedUserId() {
+        return lastVerifiedUserId;
+    }
+
+    public void setLastVerifiedUserId(long lastVerifiedUserId) {
+        this.lastVerifiedUserId = lastVerifiedUserId;
+    }
+
+    @Nullable
+    public Signature getSignature() {
+        Signature threadSignature = signature.get();
+        if (threadSignature == null) {
+            try {
+                threadSignature = Signature.getInstance("SHA512withRSA");
+                signature.set(threadSignature);
+            } catch (NoSuchAlgorithmException e) {
+                Log.e(TAG, "SHA512withRSA is not supported");
+            }
+        }
+
+        return threadSignature;
+    }
+
+    @Nullable
+    public Cipher getCipher() {
+        Cipher threadCipher = cipher.get();
+        if (threadCipher == null) {
+            try {
+                threadCipher = Cipher.getInstance("RSA/None/PKCS1Padding");
+                cipher.set(threadCipher);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                Log.e(TAG, "RSA/None/PKCS1Padding is not supported");
+            }
+        }
+
+        return threadCipher;
+    }
+
+    public void invalidateUser(long userId) {
+        userPublicKeys.remove(userId);
+
+        if (lastVerifiedUserId == userId) {
+            lastVerifiedUserId = -1;
+        }
+    }
+
+    public void invalidateDeviceKeys() {
+        devicePublicKey = null;
+        devicePrivateKey = null;
+    }
+
+    public void clear() {
+        userPublicKeys.clear();
+        invalidateDeviceKeys();
+        lastVerifiedUserId = -1;
+    }
+
+    private static class UserPublicKey {
+        private final String pushConfigurationState;
+        private final PublicKey publicKey;
+
+        UserPublicKey(String pushConfigurationState, PublicKey publicKey) {
+            this.pushConfigurationState = pushConfigurationState;
+            this.publicKey = publicKey;
+        }
+    }
+}
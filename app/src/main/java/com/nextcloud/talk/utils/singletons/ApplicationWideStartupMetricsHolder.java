@@ -0,0 +1,63 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils.singletons;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+public class ApplicationWideStartupMetricsHolder {
+    private static final String TAG = "StartupMetrics";
+
+    private static final ApplicationWideStartupMetricsHolder holder = new ApplicationWideStartupMetricsHolder();
+
+    private long mainActivityCreatedAt = -1;
+    private long timeToFirstList = -1;
+    private boolean firstListFromCache;
+
+    public static ApplicationWideStartupMetricsHolder getInstance() {
+        return holder;
+    }
+
+    public synchronized void markMainActivityCreated() {
+        mainActivityCreatedAt = SystemClock.elapsedRealtime();
+        timeToFirstList = -1;
+    }
+
+    // only the first list shown after MainActivity was created counts
+    public synchronized void markFirstListShown(boolean fromCache) {
+        if (mainActivityCreatedAt == -1 || timeToFirstList != -1) {
+            return;
+        }
+
+        timeToFirstList = SystemClock.elapsedRealtime() - mainActivityCreatedAt;
+        firstListFromCache = fromCache;
+        Log.d(TAG, "Time to first conversation list: " + timeToFirstList + " ms, " +
+                (fromCache ? "from cache" : "from network"));
+    }
+
+    public synchronized long getTimeToFirstList() {
+        return timeToFirstList;
+    }
+
+    public synchronized boolean isFirstListFromCache() {
+        return firstListFromCache;
+    }
+}
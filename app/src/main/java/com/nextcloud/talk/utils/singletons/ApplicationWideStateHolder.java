@@ -20,10 +20,20 @@
 
 package com.nextcloud.talk.utils.singletons;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class ApplicationWideStateHolder {
-    private boolean isInForeground;
+    private volatile boolean isInForeground;
     private static final ApplicationWideStateHolder holder = new ApplicationWideStateHolder();
 
+    public interface ForegroundListener {
+        // called on the main thread
+        void onForegroundChanged(boolean inForeground);
+    }
+
+    private final List<ForegroundListener> foregroundListeners = new CopyOnWriteArrayList<>();
+
     public static ApplicationWideStateHolder getInstance() {
         return holder;
     }
@@ -34,5 +44,16 @@ public class ApplicationWideStateHolder {
 
     public void setInForeground(boolean inForeground) {
         isInForeground = inForeground;
+        for (ForegroundListener foregroundListener : foregroundListeners) {
+            foregroundListener.onForegroundChanged(inForeground);
+        }
+    }
+
+    public void addForegroundListener(ForegroundListener foregroundListener) {
+        foregroundListeners.add(foregroundListener);
+    }
+
+    public void removeForegroundListener(ForegroundListener foregroundListener) {
+        foregroundListeners.remove(foregroundListener);
     }
 }
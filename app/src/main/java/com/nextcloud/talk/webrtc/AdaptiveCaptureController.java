@@ -0,0 +1,292 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.nextcloud.talk.models.CallStatsSample;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import org.webrtc.VideoCapturer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/*
+    In a mesh call every peer gets an encode of its own, so the capture format has to shrink as the call
+    grows. The tier follows the number of peers, steps down when the phone runs warm, is in power saving
+    mode or has little memory, and when the smallest available outgoing bitrate the CallStatsCollector
+    reports over all peer connections can't carry it. Going down happens right away, going up only one
+    tier at a time and only after the better conditions held for a while, so the format doesn't flap.
+ */
+public class AdaptiveCaptureController implements CallStatsCollector.Listener {
+    private static final String TAG = "AdaptiveCaptureController";
+
+    private static final long EVALUATION_INTERVAL_MS = 2000;
+    private static final long UPGRADE_HOLD_MS = 10000;
+    private static final double UPGRADE_BANDWIDTH_MARGIN = 1.3;
+    // battery temperature in tenths of a degree, the closest thing to a thermal status before Q
+    private static final int WARM_BATTERY_TEMPERATURE = 400;
+    private static final int WARM_BATTERY_TEMPERATURE_EXIT = 380;
+    private static final int HOT_BATTERY_TEMPERATURE = 440;
+    private static final int HOT_BATTERY_TEMPERATURE_EXIT = 420;
+
+    public enum CaptureTier {
+        HD(1280, 720, 30, 1, 1500),
+        QHD(960, 540, 24, 3, 800),
+        NHD(640, 360, 20, 5, 450),
+        LOW(480, 270, 15, Integer.MAX_VALUE, 200);
+
+        private final int width;
+        private final int height;
+        private final int framerate;
+        private final int maxPeers;
+        private final int requiredKbps;
+
+        CaptureTier(int width, int height, int framerate, int maxPeers, int requiredKbps) {
+            this.width = width;
+            this.height = height;
+            this.framerate = framerate;
+            this.maxPeers = maxPeers;
+            this.requiredKbps = requiredKbps;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getFramerate() {
+            return framerate;
+        }
+
+        CaptureTier lower(int steps) {
+            return values()[Math.min(ordinal() + steps, values().length - 1)];
+        }
+
+        CaptureTier higher() {
+            return values()[Math.max(ordinal() - 1, 0)];
+        }
+
+        boolean isBetterThan(CaptureTier captureTier) {
+            return ordinal() < captureTier.ordinal();
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + "@" + framerate;
+        }
+    }
+
+    private final Context context;
+    private final VideoCapturer videoCapturer;
+    private final AppSchedulers appSchedulers;
+    private final boolean isLowRamDevice;
+    private final Set<String> peerSessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<String, Long> availableOutgoingBitrates = new ConcurrentHashMap<>();
+
+    private CaptureTier currentTier = CaptureTier.HD;
+    private boolean capturing;
+    private long upgradePendingSince;
+    // tiers to drop for the battery temperature, 0 to 2
+    private int thermalSteps;
+    private Disposable evaluationDisposable;
+
+    public AdaptiveCaptureController(Context context, VideoCapturer videoCapturer, AppSchedulers appSchedulers) {
+        this.context = context.getApplicationContext();
+        this.videoCapturer = videoCapturer;
+        this.appSchedulers = appSchedulers;
+
+        ActivityManager activityManager = (ActivityManager) this.context.getSystemService(Context.ACTIVITY_SERVICE);
+        isLowRamDevice = activityManager != null && activityManager.isLowRamDevice();
+    }
+
+    public synchronized void startCapture() {
+        if (capturing) {
+            return;
+        }
+
+        thermalSteps = 0;
+        updateThermalSteps();
+        currentTier = getTargetTier(1);
+        upgradePendingSince = 0;
+        Log.d(TAG, "Starting capture at " + currentTier + describeConditions());
+        videoCapturer.startCapture(currentTier.getWidth(), currentTier.getHeight(), currentTier.getFramerate());
+        capturing = true;
+
+        evaluationDisposable = Observable.interval(EVALUATION_INTERVAL_MS, TimeUnit.MILLISECONDS,
+                appSchedulers.computation())
+                .subscribe(tick -> evaluate());
+    }
+
+    public synchronized void stopCapture() throws InterruptedException {
+        if (evaluationDisposable != null && !evaluationDisposable.isDisposed()) {
+            evaluationDisposable.dispose();
+        }
+
+        if (capturing) {
+            capturing = false;
+            videoCapturer.stopCapture();
+        }
+    }
+
+    public void setPeerSessions(Collection<String> peerSessions) {
+        this.peerSessions.retainAll(peerSessions);
+        this.peerSessions.addAll(peerSessions);
+        availableOutgoingBitrates.keySet().retainAll(peerSessions);
+    }
+
+    @Override
+    public void onStatsSample(CallStatsSample callStatsSample) {
+        if (callStatsSample.getAvailableOutgoingBitrate() >= 0 &&
+                peerSessions.contains(callStatsSample.getSessionId())) {
+            availableOutgoingBitrates.put(callStatsSample.getSessionId(),
+                    callStatsSample.getAvailableOutgoingBitrate());
+        }
+    }
+
+    public synchronized CaptureTier getCurrentTier() {
+        return currentTier;
+    }
+
+    private synchronized void evaluate() {
+        if (!capturing) {
+            return;
+        }
+
+        updateThermalSteps();
+        CaptureTier targetTier = getTargetTier(1);
+        if (currentTier.isBetterThan(targetTier)) {
+            changeTier(targetTier);
+        } else if (getTargetTier(UPGRADE_BANDWIDTH_MARGIN).isBetterThan(currentTier)) {
+            long now = SystemClock.elapsedRealtime();
+            if (upgradePendingSince == 0) {
+                upgradePendingSince = now;
+            } else if (now - upgradePendingSince >= UPGRADE_HOLD_MS) {
+                changeTier(currentTier.higher());
+            }
+        } else {
+            upgradePendingSince = 0;
+        }
+    }
+
+    private void changeTier(CaptureTier captureTier) {
+        Log.i(TAG, "Changing capture from " + currentTier + " to " + captureTier + describeConditions());
+        currentTier = captureTier;
+        upgradePendingSince = 0;
+        videoCapturer.changeCaptureFormat(captureTier.getWidth(), captureTier.getHeight(), captureTier.getFramerate());
+    }
+
+    private CaptureTier getTargetTier(double bandwidthMargin) {
+        int peers = peerSessions.size();
+        CaptureTier targetTier = CaptureTier.HD;
+        while (peers > targetTier.maxPeers) {
+            targetTier = targetTier.lower(1);
+        }
+
+        int steps = Math.max(thermalSteps, isPowerSaveMode() ? 1 : 0);
+        if (steps > 0) {
+            targetTier = targetTier.lower(steps);
+        }
+
+        if (isLowRamDevice && targetTier.isBetterThan(CaptureTier.NHD)) {
+            targetTier = CaptureTier.NHD;
+        }
+
+        Long availableOutgoingBitrate = getMinimumAvailableOutgoingBitrate();
+        if (availableOutgoingBitrate != null) {
+            while (targetTier != CaptureTier.LOW &&
+                    targetTier.requiredKbps * 1000 * bandwidthMargin > availableOutgoingBitrate) {
+                targetTier = targetTier.lower(1);
+            }
+        }
+
+        return targetTier;
+    }
+
+    @Nullable
+    private Long getMinimumAvailableOutgoingBitrate() {
+        Long minimum = null;
+        for (Long availableOutgoingBitrate : new ArrayList<>(availableOutgoingBitrates.values())) {
+            if (minimum == null || availableOutgoingBitrate < minimum) {
+                minimum = availableOutgoingBitrate;
+            }
+        }
+
+        return minimum;
+    }
+
+    /*
+        The battery warms up and cools down slowly and hovers around a threshold for minutes, so every
+        threshold is left only a couple of degrees below where it was entered.
+     */
+    private void updateThermalSteps() {
+        int batteryTemperature = getBatteryTemperature();
+        if (batteryTemperature >= HOT_BATTERY_TEMPERATURE ||
+                (thermalSteps == 2 && batteryTemperature >= HOT_BATTERY_TEMPERATURE_EXIT)) {
+            thermalSteps = 2;
+        } else if (batteryTemperature >= WARM_BATTERY_TEMPERATURE ||
+                (thermalSteps > 0 && batteryTemperature >= WARM_BATTERY_TEMPERATURE_EXIT)) {
+            thermalSteps = 1;
+        } else {
+            thermalSteps = 0;
+        }
+    }
+
+    private int getBatteryTemperature() {
+        Intent batteryStatus = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus == null) {
+            return 0;
+        }
+
+        return batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+    }
+
+    private boolean isPowerSaveMode() {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    private String describeConditions() {
+        return " (" + peerSessions.size() + " peers, battery " + getBatteryTemperature() / 10f + " C, " +
+                (isPowerSaveMode() ? "power saving, " : "") + (isLowRamDevice ? "low ram, " : "") +
+                "outgoing " + getMinimumAvailableOutgoingBitrate() + " bps)";
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.CallStatsReport;
+import com.nextcloud.talk.models.CallStatsSample;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+/*
+    Samples getStats of every peer connection of a call every couple of seconds and keeps the last few
+    minutes of each peer as a time series. Listeners (the capture controller, a debug overlay) get every
+    sample as it comes in, on the WebRTC signaling thread, and the whole series is written out as JSON
+    when the call ends so there is something to look at when somebody complains about a call.
+ */
+public class CallStatsCollector {
+    private static final String TAG = "CallStatsCollector";
+
+    private static final long SAMPLE_INTERVAL_MS = 2000;
+    private static final int MAX_SAMPLES_PER_PEER = 150;
+    private static final String REPORTS_DIRECTORY = "call_stats";
+    private static final int MAX_REPORTS = 10;
+
+    public interface Listener {
+        void onStatsSample(CallStatsSample callStatsSample);
+    }
+
+    private final AppSchedulers appSchedulers;
+    private final Map<String, PeerConnection> peerConnections = new ConcurrentHashMap<>();
+    private final Map<String, ArrayDeque<CallStatsSample>> samples = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private long startedAt;
+    private Disposable samplingDisposable;
+
+    public CallStatsCollector(AppSchedulers appSchedulers) {
+        this.appSchedulers = appSchedulers;
+    }
+
+    public synchronized void start() {
+        if (samplingDisposable != null && !samplingDisposable.isDisposed()) {
+            return;
+        }
+
+        if (startedAt == 0) {
+            startedAt = System.currentTimeMillis();
+        }
+
+        samplingDisposable = Observable.interval(SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS, appSchedulers.computation())
+                .subscribe(tick -> sample());
+    }
+
+    public synchronized void stop() {
+        if (samplingDisposable != null && !samplingDisposable.isDisposed()) {
+            samplingDisposable.dispose();
+        }
+
+        peerConnections.clear();
+    }
+
+    public void setPeerConnections(Map<String, PeerConnection> peerConnections) {
+        this.peerConnections.keySet().retainAll(peerConnections.keySet());
+        this.peerConnections.putAll(peerConnections);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized List<CallStatsSample> getSamples(String sessionId) {
+        ArrayDeque<CallStatsSample> peerSamples = samples.get(sessionId);
+        if (peerSamples == null) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(peerSamples);
+    }
+
+    @Nullable
+    public synchronized CallStatsSample getLatestSample(String sessionId) {
+        ArrayDeque<CallStatsSample> peerSamples = samples.get(sessionId);
+        return peerSamples != null ? peerSamples.peekLast() : null;
+    }
+
+    public synchronized CallStatsReport getReport(String roomToken) {
+        List<CallStatsSample> allSamples = new ArrayList<>();
+        for (ArrayDeque<CallStatsSample> peerSamples : samples.values()) {
+            allSamples.addAll(peerSamples);
+        }
+
+        CallStatsReport callStatsReport = new CallStatsReport();
+        callStatsReport.setRoomToken(roomToken);
+        callStatsReport.setStartedAt(startedAt);
+        callStatsReport.setEndedAt(System.currentTimeMillis());
+        callStatsReport.setSamples(allSamples);
+        return callStatsReport;
+    }
+
+    /*
+        Writes everything collected so far to files/call_stats and forgets it, so hanging up twice doesn't
+        produce two reports. Only the last few reports are kept.
+     */
+    public void dumpReport(Context context, String roomToken) {
+        CallStatsReport callStatsReport;
+        synchronized (this) {
+            if (samples.isEmpty()) {
+                return;
+            }
+
+            callStatsReport = getReport(roomToken);
+            samples.clear();
+        }
+
+        File reportsDirectory = new File(context.getFilesDir(), REPORTS_DIRECTORY);
+        appSchedulers.database().scheduleDirect(() -> {
+            if (!reportsDirectory.isDirectory() && !reportsDirectory.mkdirs()) {
+                Log.e(TAG, "Failed to create " + reportsDirectory);
+                return;
+            }
+
+            File reportFile = new File(reportsDirectory, "call-" + callStatsReport.getStartedAt() + ".json");
+            try (OutputStream outputStream = new FileOutputStream(reportFile)) {
+                LoganSquare.serialize(callStatsReport, outputStream);
+                Log.d(TAG, "Wrote " + callStatsReport.getSamples().size() + " call stats samples to " + reportFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write call stats to " + reportFile);
+            }
+
+            File[] reports = reportsDirectory.listFiles();
+            if (reports != null && reports.length > MAX_REPORTS) {
+                Arrays.sort(reports, (first, second) -> Long.compare(first.lastModified(), second.lastModified()));
+                for (int i = 0; i < reports.length - MAX_REPORTS; i++) {
+                    if (!reports[i].delete()) {
+                        Log.w(TAG, "Failed to delete old call stats " + reports[i]);
+                    }
+                }
+            }
+        });
+    }
+
+    private void sample() {
+        for (Map.Entry<String, PeerConnection> entry : peerConnections.entrySet()) {
+            String sessionId = entry.getKey();
+            PeerConnection peerConnection = entry.getValue();
+            peerConnection.getStats(report -> {
+                if (peerConnections.get(sessionId) == peerConnection) {
+                    onStatsDelivered(sessionId, report);
+                }
+            });
+        }
+    }
+
+    private void onStatsDelivered(String sessionId, RTCStatsReport report) {
+        CallStatsSample callStatsSample = new CallStatsSample();
+        callStatsSample.setSessionId(sessionId);
+        callStatsSample.setTimestamp(System.currentTimeMillis());
+
+        Map<String, RTCStats> statsMap = report.getStatsMap();
+        for (RTCStats stats : statsMap.values()) {
+            Map<String, Object> members = stats.getMembers();
+            switch (stats.getType()) {
+                case "candidate-pair":
+                    if (Boolean.TRUE.equals(members.get("nominated")) && "succeeded".equals(members.get("state"))) {
+                        Number roundTripTime = getNumber(members, "currentRoundTripTime");
+                        if (roundTripTime != null) {
+                            callStatsSample.setRoundTripTimeMs(Math.round(roundTripTime.doubleValue() * 1000));
+                        }
+
+                        Number availableOutgoingBitrate = getNumber(members, "availableOutgoingBitrate");
+                        if (availableOutgoingBitrate != null) {
+                            callStatsSample.setAvailableOutgoingBitrate(availableOutgoingBitrate.longValue());
+                        }
+
+                        RTCStats localCandidate = statsMap.get(String.valueOf(members.get("localCandidateId")));
+                        RTCStats remoteCandidate = statsMap.get(String.valueOf(members.get("remoteCandidateId")));
+                        callStatsSample.setSelectedCandidatePair(describeCandidate(localCandidate) + " -> " +
+                                describeCandidate(remoteCandidate));
+                    }
+                    break;
+                case "inbound-rtp":
+                    boolean isVideo = "video".equals(getKind(members));
+                    Number jitter = getNumber(members, "jitter");
+                    if (jitter != null) {
+                        if (isVideo) {
+                            callStatsSample.setVideoJitterMs(jitter.doubleValue() * 1000);
+                        } else {
+                            callStatsSample.setAudioJitterMs(jitter.doubleValue() * 1000);
+                        }
+                    }
+
+                    callStatsSample.setPacketsReceived(callStatsSample.getPacketsReceived() +
+                            getLong(members, "packetsReceived"));
+                    callStatsSample.setPacketsLost(callStatsSample.getPacketsLost() + getLong(members, "packetsLost"));
+                    callStatsSample.setBytesReceived(callStatsSample.getBytesReceived() +
+                            getLong(members, "bytesReceived"));
+
+                    if (isVideo && getNumber(members, "framesDecoded") != null) {
+                        callStatsSample.setFramesDecoded(getLong(members, "framesDecoded"));
+                    }
+                    break;
+                case "outbound-rtp":
+                    callStatsSample.setBytesSent(callStatsSample.getBytesSent() + getLong(members, "bytesSent"));
+                    break;
+                case "track":
+                    if (Boolean.TRUE.equals(members.get("remoteSource")) && "video".equals(getKind(members))) {
+                        if (callStatsSample.getFramesDecoded() == -1 && getNumber(members, "framesDecoded") != null) {
+                            callStatsSample.setFramesDecoded(getLong(members, "framesDecoded"));
+                        }
+
+                        if (getNumber(members, "framesDropped") != null) {
+                            callStatsSample.setFramesDropped(getLong(members, "framesDropped"));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        synchronized (this) {
+            ArrayDeque<CallStatsSample> peerSamples = samples.get(sessionId);
+            if (peerSamples == null) {
+                peerSamples = new ArrayDeque<>();
+                samples.put(sessionId, peerSamples);
+            }
+
+            CallStatsSample previousSample = peerSamples.peekLast();
+            if (previousSample != null) {
+                computeRates(previousSample, callStatsSample);
+            }
+
+            peerSamples.addLast(callStatsSample);
+            while (peerSamples.size() > MAX_SAMPLES_PER_PEER) {
+                peerSamples.removeFirst();
+            }
+        }
+
+        for (Listener listener : listeners) {
+            listener.onStatsSample(callStatsSample);
+        }
+    }
+
+    private void computeRates(CallStatsSample previousSample, CallStatsSample callStatsSample) {
+        double seconds = (callStatsSample.getTimestamp() - previousSample.getTimestamp()) / 1000d;
+        if (seconds <= 0) {
+            return;
+        }
+
+        long bytesReceived = callStatsSample.getBytesReceived() - previousSample.getBytesReceived();
+        if (bytesReceived >= 0) {
+            callStatsSample.setInboundBitrate(Math.round(bytesReceived * 8 / seconds));
+        }
+
+        long bytesSent = callStatsSample.getBytesSent() - previousSample.getBytesSent();
+        if (bytesSent >= 0) {
+            callStatsSample.setOutboundBitrate(Math.round(bytesSent * 8 / seconds));
+        }
+
+        long packetsLost = callStatsSample.getPacketsLost() - previousSample.getPacketsLost();
+        long packetsReceived = callStatsSample.getPacketsReceived() - previousSample.getPacketsReceived();
+        if (packetsLost >= 0 && packetsReceived >= 0 && packetsLost + packetsReceived > 0) {
+            callStatsSample.setPacketLossPercent(100d * packetsLost / (packetsLost + packetsReceived));
+        }
+    }
+
+    private String describeCandidate(@Nullable RTCStats candidate) {
+        if (candidate == null) {
+            return "?";
+        }
+
+        return candidate.getMembers().get("candidateType") + "/" + candidate.getMembers().get("protocol");
+    }
+
+    @Nullable
+    private Object getKind(Map<String, Object> members) {
+        // newer WebRTC versions renamed mediaType to kind
+        return members.containsKey("kind") ? members.get("kind") : members.get("mediaType");
+    }
+
+    @Nullable
+    private Number getNumber(Map<String, Object> members, String name) {
+        Object value = members.get(name);
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    private long getLong(Map<String, Object> members, String name) {
+        Number value = getNumber(members, name);
+        return value != null ? value.longValue() : 0;
+    }
+}
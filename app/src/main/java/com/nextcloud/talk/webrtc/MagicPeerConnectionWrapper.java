@@ -32,6 +32,7 @@ import com.nextcloud.talk.events.PeerConnectionEvent;
 import com.nextcloud.talk.events.SessionDescriptionSendEvent;
 import com.nextcloud.talk.models.json.signaling.DataChannelMessage;
 import com.nextcloud.talk.models.json.signaling.NCIceCandidate;
+import com.nextcloud.talk.webrtc.sdp.SdpPolicy;
 
 import org.greenrobot.eventbus.EventBus;
 import org.webrtc.DataChannel;
@@ -67,13 +68,16 @@ public class MagicPeerConnectionWrapper {
     private boolean hasInitiated;
 
     private MediaStream localMediaStream;
+    private SdpPolicy sdpPolicy;
 
     public MagicPeerConnectionWrapper(PeerConnectionFactory peerConnectionFactory,
                                       List<PeerConnection.IceServer> iceServerList,
                                       MediaConstraints mediaConstraints,
-                                      String sessionId, String localSession, MediaStream mediaStream) {
+                                      String sessionId, String localSession, MediaStream mediaStream,
+                                      SdpPolicy sdpPolicy) {
 
         this.localMediaStream = mediaStream;
+        this.sdpPolicy = sdpPolicy;
 
         this.sessionId = sessionId;
         this.mediaConstraints = mediaConstraints;
@@ -332,13 +336,9 @@ public class MagicPeerConnectionWrapper {
 
         @Override
         public void onCreateSuccess(SessionDescription sessionDescription) {
-            String sessionDescriptionStringWithPreferredCodec = MagicWebRTCUtils.preferCodec
-                    (sessionDescription.description,
-                            "VP8", false);
-
             SessionDescription sessionDescriptionWithPreferredCodec = new SessionDescription(
                     sessionDescription.type,
-                    sessionDescriptionStringWithPreferredCodec);
+                    sdpPolicy.apply(sessionDescription.description));
 
             EventBus.getDefault().post(new SessionDescriptionSendEvent(sessionDescriptionWithPreferredCodec, sessionId,
                     sessionDescription.type.canonicalForm().toLowerCase(), null));
@@ -0,0 +1,200 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.models.json.signaling.SignalingOverall;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/*
+    Collects outgoing signaling messages of a call and sends everything that piled up within a short
+    window (or once the batch is full) as a single request - the signaling endpoint takes a JSON array.
+    The window is opened by the first message of a batch, an idle queue schedules nothing.
+    Batches are sent one after another so offers always go out before their candidates.
+ */
+public class MagicSignalingMessageQueue {
+    private static final String TAG = "MagicSignalingMessageQueue";
+
+    private static final long FLUSH_WINDOW_MS = 40;
+    private static final int MAX_MESSAGES_PER_REQUEST = 20;
+
+    public interface SignalingResponseListener {
+        void onSignalingResponse(SignalingOverall signalingOverall);
+    }
+
+    private final Subject<List<String>> outgoingBatches = PublishSubject.<List<String>>create().toSerialized();
+    private final Object batchLock = new Object();
+    private List<String> pendingMessages = new ArrayList<>();
+    @Nullable
+    private Disposable flushDisposable;
+    private final AtomicLong queuedMessagesCount = new AtomicLong();
+    private final AtomicLong sentMessagesCount = new AtomicLong();
+    private final AtomicLong sentRequestsCount = new AtomicLong();
+
+    private NcApi ncApi;
+    private String credentials;
+    private String url;
+    private Scheduler scheduler;
+    private SignalingResponseListener signalingResponseListener;
+    @Nullable
+    private SignalingTransportMetrics signalingTransportMetrics;
+    private Disposable queueDisposable;
+
+    public MagicSignalingMessageQueue(NcApi ncApi, AppSchedulers appSchedulers, @Nullable String credentials,
+                                      String url, SignalingResponseListener signalingResponseListener,
+                                      @Nullable SignalingTransportMetrics signalingTransportMetrics) {
+        this.ncApi = ncApi;
+        this.scheduler = appSchedulers.computation();
+        this.credentials = credentials;
+        this.url = url;
+        this.signalingResponseListener = signalingResponseListener;
+        this.signalingTransportMetrics = signalingTransportMetrics;
+
+        outgoingBatches
+                .concatMap(this::sendMessages)
+                .subscribe(new Observer<SignalingOverall>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        queueDisposable = d;
+                    }
+
+                    @Override
+                    public void onNext(SignalingOverall signalingOverall) {
+                        if (MagicSignalingMessageQueue.this.signalingResponseListener != null) {
+                            MagicSignalingMessageQueue.this.signalingResponseListener.onSignalingResponse(signalingOverall);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Log.e(TAG, "Signaling queue failed: " + e.getLocalizedMessage());
+                    }
+
+                    @Override
+                    public void onComplete() {
+
+                    }
+                });
+    }
+
+    public void enqueue(String message) {
+        queuedMessagesCount.incrementAndGet();
+        synchronized (batchLock) {
+            pendingMessages.add(message);
+            if (pendingMessages.size() >= MAX_MESSAGES_PER_REQUEST) {
+                flush();
+            } else if (pendingMessages.size() == 1) {
+                flushDisposable = scheduler.scheduleDirect(() -> {
+                    synchronized (batchLock) {
+                        flush();
+                    }
+                }, FLUSH_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // called with batchLock held, so batches reach the send queue in the order they were filled
+    private void flush() {
+        if (flushDisposable != null) {
+            flushDisposable.dispose();
+            flushDisposable = null;
+        }
+
+        if (pendingMessages.size() > 0) {
+            outgoingBatches.onNext(pendingMessages);
+            pendingMessages = new ArrayList<>();
+        }
+    }
+
+    public void dispose() {
+        signalingResponseListener = null;
+        synchronized (batchLock) {
+            if (flushDisposable != null) {
+                flushDisposable.dispose();
+                flushDisposable = null;
+            }
+        }
+
+        if (queueDisposable != null && !queueDisposable.isDisposed()) {
+            queueDisposable.dispose();
+        }
+
+        Log.d(TAG, "Sent " + sentMessagesCount.get() + " of " + queuedMessagesCount.get() +
+                " signaling messages in " + sentRequestsCount.get() + " requests (" +
+                getAverageMessagesPerRequest() + " per request)");
+    }
+
+    public long getQueuedMessagesCount() {
+        return queuedMessagesCount.get();
+    }
+
+    public long getSentMessagesCount() {
+        return sentMessagesCount.get();
+    }
+
+    public long getSentRequestsCount() {
+        return sentRequestsCount.get();
+    }
+
+    public float getAverageMessagesPerRequest() {
+        long requests = sentRequestsCount.get();
+        if (requests == 0) {
+            return 0;
+        }
+
+        return (float) sentMessagesCount.get() / requests;
+    }
+
+    private Observable<SignalingOverall> sendMessages(List<String> messages) {
+        return Observable.defer(() -> {
+            long sentAt = SystemClock.elapsedRealtime();
+            return ncApi.sendSignalingMessages(credentials, url, "[" + TextUtils.join(",", messages) + "]")
+                    .retry(3)
+                    .doOnNext(signalingOverall -> {
+                        sentRequestsCount.incrementAndGet();
+                        sentMessagesCount.addAndGet(messages.size());
+                        if (signalingTransportMetrics != null) {
+                            signalingTransportMetrics.onRequestRoundTrip(SystemClock.elapsedRealtime() - sentAt);
+                            signalingTransportMetrics.onMessagesSent(messages.size());
+                        }
+                    })
+                    .doOnError(throwable -> Log.e(TAG, "Failed to send " + messages.size() + " signaling messages"))
+                    .onErrorResumeNext(Observable.empty());
+        });
+    }
+}
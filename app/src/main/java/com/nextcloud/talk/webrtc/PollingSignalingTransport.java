@@ -0,0 +1,186 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.api.NcApi;
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.SignalingOverall;
+import com.nextcloud.talk.utils.rx.AppSchedulers;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import java.io.IOException;
+
+import io.reactivex.Observer;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+/*
+    The signaling every server speaks: a long-polling request that is repeated for as long as we are in
+    the call, with outgoing messages batched into separate requests by MagicSignalingMessageQueue.
+ */
+public class PollingSignalingTransport implements SignalingTransport {
+    private static final String TAG = "PollingSignalingTransport";
+
+    private final NcApi ncApi;
+    private final AppSchedulers appSchedulers;
+    private final String credentials;
+    private final String url;
+    private final String callSession;
+    private final Listener listener;
+    private final SignalingTransportMetrics signalingTransportMetrics = new SignalingTransportMetrics();
+
+    private MagicSignalingMessageQueue signalingMessageQueue;
+    private Disposable pullDisposable;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public PollingSignalingTransport(NcApi ncApi, AppSchedulers appSchedulers, @Nullable String credentials,
+                                     String url, String callSession, Listener listener) {
+        this.ncApi = ncApi;
+        this.appSchedulers = appSchedulers;
+        this.credentials = credentials;
+        this.url = url;
+        this.callSession = callSession;
+        this.listener = listener;
+    }
+
+    @Override
+    public void connect() {
+        // nothing to open, every pull is a request of its own
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || stopped) {
+            return;
+        }
+
+        running = true;
+        signalingTransportMetrics.onConnecting();
+
+        ncApi.pullSignalingMessages(credentials, url)
+                .subscribeOn(appSchedulers.network())
+                .observeOn(AndroidSchedulers.mainThread())
+                .repeatWhen(observable -> observable)
+                .takeWhile(observable -> running)
+                .retry(3, throwable -> {
+                    if (running) {
+                        signalingTransportMetrics.onReconnect();
+                    }
+                    return running;
+                })
+                .subscribe(new Observer<SignalingOverall>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        pullDisposable = d;
+                    }
+
+                    @Override
+                    public void onNext(SignalingOverall signalingOverall) {
+                        signalingTransportMetrics.onConnected();
+                        deliverSignalingMessages(signalingOverall);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        disposePull();
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        disposePull();
+                    }
+                });
+    }
+
+    @Override
+    public void send(NCSignalingMessage ncSignalingMessage) {
+        MagicSignalingMessageQueue messageQueue = getSignalingMessageQueue();
+        if (messageQueue == null) {
+            return;
+        }
+
+        try {
+            messageQueue.enqueue("{" +
+                    "\"fn\":\"" + StringEscapeUtils.escapeJson(LoganSquare.serialize(ncSignalingMessage)) + "\"," +
+                    "\"sessionId\":\"" + StringEscapeUtils.escapeJson(callSession) + "\"," +
+                    "\"ev\":\"message\"" +
+                    "}");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to serialize signaling message");
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        stopped = true;
+        disposePull();
+
+        if (signalingMessageQueue != null) {
+            signalingMessageQueue.dispose();
+            signalingMessageQueue = null;
+        }
+
+        Log.d(TAG, "Signaling over polling: " + signalingTransportMetrics);
+    }
+
+    @Nullable
+    @Override
+    public String getSessionId() {
+        return callSession;
+    }
+
+    @Override
+    public SignalingTransportMetrics getMetrics() {
+        return signalingTransportMetrics;
+    }
+
+    @Nullable
+    private synchronized MagicSignalingMessageQueue getSignalingMessageQueue() {
+        if (signalingMessageQueue == null && !stopped) {
+            signalingMessageQueue = new MagicSignalingMessageQueue(ncApi, appSchedulers, credentials, url,
+                    this::deliverSignalingMessages, signalingTransportMetrics);
+        }
+
+        return signalingMessageQueue;
+    }
+
+    private void deliverSignalingMessages(SignalingOverall signalingOverall) {
+        if (signalingOverall.getOcs().getSignalings() != null) {
+            signalingTransportMetrics.onMessagesReceived(signalingOverall.getOcs().getSignalings().size());
+            for (int i = 0; i < signalingOverall.getOcs().getSignalings().size(); i++) {
+                listener.onSignalingMessage(signalingOverall.getOcs().getSignalings().get(i));
+            }
+        }
+    }
+
+    private void disposePull() {
+        if (pullDisposable != null && !pullDisposable.isDisposed()) {
+            pullDisposable.dispose();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.support.annotation.Nullable;
+
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.Signaling;
+
+/*
+    Carries the signaling messages of a call. The call only hands over what it wants to send and gets
+    whatever arrives back through the listener, no matter if the messages travel over HTTP polling or
+    over a connection to an external signaling server.
+ */
+public interface SignalingTransport {
+
+    interface Listener {
+        void onSignalingMessage(Signaling signaling);
+
+        void onSignalingTransportFailed(SignalingTransport signalingTransport);
+    }
+
+    /*
+        Opens the transport ahead of joining the call so nothing that is sent around the join gets lost.
+     */
+    void connect();
+
+    /*
+        Starts delivering messages once the call has been joined.
+     */
+    void start();
+
+    void send(NCSignalingMessage ncSignalingMessage);
+
+    void stop();
+
+    /*
+        The session id the other participants know us by, null until the transport has one.
+     */
+    @Nullable
+    String getSessionId();
+
+    SignalingTransportMetrics getMetrics();
+}
@@ -0,0 +1,123 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Request round trips only cover what gets an answer: the requests that send messages when polling, the
+    hello and room join over a WebSocket. Messages themselves are never acknowledged by the signaling
+    server, so they are only counted.
+ */
+public class SignalingTransportMetrics {
+    static final Clock SYSTEM_CLOCK = SystemClock::elapsedRealtime;
+
+    /*
+        Milliseconds since some fixed point, SystemClock.elapsedRealtime() unless a test passes its own.
+     */
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private final Clock clock;
+    private final AtomicLong connectingSince = new AtomicLong();
+    private final AtomicLong connectTimeMs = new AtomicLong(-1);
+    private final AtomicLong lastRequestRoundTripTimeMs = new AtomicLong(-1);
+    private final AtomicLong requestRoundTripTimeTotalMs = new AtomicLong();
+    private final AtomicLong requestRoundTripsCount = new AtomicLong();
+    private final AtomicLong reconnectsCount = new AtomicLong();
+    private final AtomicLong sentMessagesCount = new AtomicLong();
+    private final AtomicLong receivedMessagesCount = new AtomicLong();
+
+    SignalingTransportMetrics() {
+        this(SYSTEM_CLOCK);
+    }
+
+    SignalingTransportMetrics(Clock clock) {
+        this.clock = clock;
+    }
+
+    void onConnecting() {
+        connectingSince.compareAndSet(0, clock.elapsedRealtime());
+    }
+
+    void onConnected() {
+        if (connectingSince.get() != 0) {
+            connectTimeMs.compareAndSet(-1, clock.elapsedRealtime() - connectingSince.get());
+        }
+    }
+
+    void onRequestRoundTrip(long roundTripTimeMs) {
+        lastRequestRoundTripTimeMs.set(roundTripTimeMs);
+        requestRoundTripTimeTotalMs.addAndGet(roundTripTimeMs);
+        requestRoundTripsCount.incrementAndGet();
+    }
+
+    void onReconnect() {
+        reconnectsCount.incrementAndGet();
+    }
+
+    void onMessagesSent(int count) {
+        sentMessagesCount.addAndGet(count);
+    }
+
+    void onMessagesReceived(int count) {
+        receivedMessagesCount.addAndGet(count);
+    }
+
+    public long getConnectTimeMs() {
+        return connectTimeMs.get();
+    }
+
+    public long getLastRequestRoundTripTimeMs() {
+        return lastRequestRoundTripTimeMs.get();
+    }
+
+    public long getAverageRequestRoundTripTimeMs() {
+        long roundTrips = requestRoundTripsCount.get();
+        if (roundTrips == 0) {
+            return -1;
+        }
+
+        return requestRoundTripTimeTotalMs.get() / roundTrips;
+    }
+
+    public long getReconnectsCount() {
+        return reconnectsCount.get();
+    }
+
+    public long getSentMessagesCount() {
+        return sentMessagesCount.get();
+    }
+
+    public long getReceivedMessagesCount() {
+        return receivedMessagesCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "connect " + getConnectTimeMs() + " ms, request rtt " + getAverageRequestRoundTripTimeMs() +
+                " ms (last " + getLastRequestRoundTripTimeMs() + " ms), " + getReconnectsCount() + " reconnects, " +
+                getSentMessagesCount() + " sent, " + getReceivedMessagesCount() + " received";
+    }
+}
@@ -0,0 +1,500 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.Signaling;
+import com.nextcloud.talk.models.json.websocket.ActorWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.AuthParametersWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.AuthWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.CallWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.EventWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.HelloWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.RoomWebSocketMessage;
+import com.nextcloud.talk.models.json.websocket.WebSocketOverall;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/*
+    Signaling over a single WebSocket to the external signaling server advertised in the signaling
+    settings: a hello authenticated with the ticket, a room join with our call session and from then on
+    messages in both directions without a request per round trip. A dropped connection is resumed with
+    the id from the hello. If the server can't be reached, rejects us or drops us for good the listener
+    is told.
+ */
+public class WebSocketSignalingTransport extends WebSocketListener implements SignalingTransport {
+    private static final String TAG = "WebSocketSignalingTransport";
+
+    private static final String PROTOCOL_VERSION = "1.0";
+    private static final long PING_INTERVAL_SECONDS = 30;
+    private static final long RECONNECT_BASE_DELAY_MS = 500;
+    private static final long RECONNECT_MAX_DELAY_MS = 8000;
+    private static final int MAX_RECONNECT_ATTEMPTS = 5;
+    private static final int NORMAL_CLOSURE_STATUS = 1000;
+
+    private final OkHttpClient okHttpClient;
+    private final String url;
+    private final String authUrl;
+    private final String userId;
+    private final String ticket;
+    private final String roomToken;
+    private final String callSession;
+    private final Listener listener;
+    private final SignalingTransportMetrics.Clock clock;
+    private final SignalingTransportMetrics signalingTransportMetrics;
+    private final Map<String, Long> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong requestIdCounter = new AtomicLong();
+    private final List<String> pendingMessages = new ArrayList<>();
+
+    private WebSocket webSocket;
+    private Disposable reconnectDisposable;
+    private String sessionId;
+    private String resumeId;
+    private boolean connecting;
+    private boolean connected;
+    private boolean joinedRoom;
+    private boolean stopped;
+    private int reconnectAttempts;
+
+    public WebSocketSignalingTransport(OkHttpClient okHttpClient, String url, String authUrl,
+                                       @Nullable String userId, String ticket, String roomToken,
+                                       String callSession, Listener listener) {
+        this(okHttpClient, url, authUrl, userId, ticket, roomToken, callSession, listener,
+                SignalingTransportMetrics.SYSTEM_CLOCK);
+    }
+
+    WebSocketSignalingTransport(OkHttpClient okHttpClient, String url, String authUrl, @Nullable String userId,
+                                String ticket, String roomToken, String callSession, Listener listener,
+                                SignalingTransportMetrics.Clock clock) {
+        this.okHttpClient = okHttpClient.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .build();
+        this.url = url;
+        this.authUrl = authUrl;
+        this.userId = userId;
+        this.ticket = ticket;
+        this.roomToken = roomToken;
+        this.callSession = callSession;
+        this.listener = listener;
+        this.clock = clock;
+        signalingTransportMetrics = new SignalingTransportMetrics(clock);
+    }
+
+    @Override
+    public synchronized void connect() {
+        if (connecting || stopped) {
+            return;
+        }
+
+        connecting = true;
+        signalingTransportMetrics.onConnecting();
+        openWebSocket();
+    }
+
+    @Override
+    public void start() {
+        // messages are delivered as soon as the room is joined
+        connect();
+    }
+
+    @Override
+    public void send(NCSignalingMessage ncSignalingMessage) {
+        ActorWebSocketMessage recipientWebSocketMessage = new ActorWebSocketMessage();
+        recipientWebSocketMessage.setType("session");
+        recipientWebSocketMessage.setSessionId(ncSignalingMessage.getTo());
+
+        CallWebSocketMessage callWebSocketMessage = new CallWebSocketMessage();
+        callWebSocketMessage.setRecipientWebSocketMessage(recipientWebSocketMessage);
+        callWebSocketMessage.setNcSignalingMessage(ncSignalingMessage);
+
+        WebSocketOverall webSocketOverall = new WebSocketOverall();
+        webSocketOverall.setType("message");
+        webSocketOverall.setCallWebSocketMessage(callWebSocketMessage);
+
+        String message;
+        try {
+            message = LoganSquare.serialize(webSocketOverall);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to serialize signaling message");
+            return;
+        }
+
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+
+            if (joinedRoom && webSocket != null && webSocket.send(message)) {
+                signalingTransportMetrics.onMessagesSent(1);
+            } else {
+                pendingMessages.add(message);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopped = true;
+        joinedRoom = false;
+        pendingMessages.clear();
+        pendingRequests.clear();
+
+        if (reconnectDisposable != null && !reconnectDisposable.isDisposed()) {
+            reconnectDisposable.dispose();
+        }
+
+        if (webSocket != null) {
+            webSocket.close(NORMAL_CLOSURE_STATUS, null);
+            webSocket = null;
+        }
+
+        Log.d(TAG, "Signaling over " + url + ": " + signalingTransportMetrics);
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public SignalingTransportMetrics getMetrics() {
+        return signalingTransportMetrics;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        synchronized (this) {
+            if (webSocket != this.webSocket) {
+                return;
+            }
+        }
+
+        sendHello();
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        synchronized (this) {
+            if (webSocket != this.webSocket) {
+                return;
+            }
+        }
+
+        WebSocketOverall webSocketOverall;
+        try {
+            webSocketOverall = LoganSquare.parse(text, WebSocketOverall.class);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to parse signaling server message");
+            return;
+        }
+
+        if (webSocketOverall.getId() != null) {
+            Long sentAt = pendingRequests.remove(webSocketOverall.getId());
+            if (sentAt != null) {
+                signalingTransportMetrics.onRequestRoundTrip(clock.elapsedRealtime() - sentAt);
+            }
+        }
+
+        if (webSocketOverall.getType() == null) {
+            return;
+        }
+
+        switch (webSocketOverall.getType()) {
+            case "hello":
+                onHello(webSocketOverall.getHelloWebSocketMessage());
+                break;
+            case "room":
+                onRoomJoined();
+                break;
+            case "message":
+                onCallMessage(webSocketOverall.getCallWebSocketMessage());
+                break;
+            case "event":
+                onEvent(webSocketOverall.getEventWebSocketMessage());
+                break;
+            case "error":
+                onServerError(webSocketOverall);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(NORMAL_CLOSURE_STATUS, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+        onConnectionLost(webSocket);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, @Nullable Response response) {
+        Log.w(TAG, "Signaling server connection failed: " + t.getLocalizedMessage());
+        onConnectionLost(webSocket);
+    }
+
+    private synchronized void openWebSocket() {
+        webSocket = okHttpClient.newWebSocket(new Request.Builder().url(url).build(), this);
+    }
+
+    private void sendHello() {
+        HelloWebSocketMessage helloWebSocketMessage = new HelloWebSocketMessage();
+        helloWebSocketMessage.setVersion(PROTOCOL_VERSION);
+
+        synchronized (this) {
+            if (resumeId != null) {
+                helloWebSocketMessage.setResumeId(resumeId);
+            } else {
+                AuthParametersWebSocketMessage authParametersWebSocketMessage = new AuthParametersWebSocketMessage();
+                authParametersWebSocketMessage.setUserid(userId);
+                authParametersWebSocketMessage.setTicket(ticket);
+
+                AuthWebSocketMessage authWebSocketMessage = new AuthWebSocketMessage();
+                authWebSocketMessage.setUrl(authUrl);
+                authWebSocketMessage.setAuthParametersWebSocketMessage(authParametersWebSocketMessage);
+                helloWebSocketMessage.setAuthWebSocketMessage(authWebSocketMessage);
+            }
+        }
+
+        WebSocketOverall webSocketOverall = new WebSocketOverall();
+        webSocketOverall.setType("hello");
+        webSocketOverall.setHelloWebSocketMessage(helloWebSocketMessage);
+        sendRequest(webSocketOverall);
+    }
+
+    private void sendRoomJoin() {
+        RoomWebSocketMessage roomWebSocketMessage = new RoomWebSocketMessage();
+        roomWebSocketMessage.setRoomId(roomToken);
+        roomWebSocketMessage.setSessionId(callSession);
+
+        WebSocketOverall webSocketOverall = new WebSocketOverall();
+        webSocketOverall.setType("room");
+        webSocketOverall.setRoomWebSocketMessage(roomWebSocketMessage);
+        sendRequest(webSocketOverall);
+    }
+
+    private synchronized void sendRequest(WebSocketOverall webSocketOverall) {
+        if (webSocket == null) {
+            return;
+        }
+
+        String id = String.valueOf(requestIdCounter.incrementAndGet());
+        webSocketOverall.setId(id);
+
+        try {
+            pendingRequests.put(id, clock.elapsedRealtime());
+            webSocket.send(LoganSquare.serialize(webSocketOverall));
+        } catch (IOException e) {
+            pendingRequests.remove(id);
+            Log.e(TAG, "Failed to serialize " + webSocketOverall.getType() + " request");
+        }
+    }
+
+    private void onHello(@Nullable HelloWebSocketMessage helloWebSocketMessage) {
+        if (helloWebSocketMessage == null) {
+            return;
+        }
+
+        boolean resumed;
+        synchronized (this) {
+            resumed = joinedRoom && helloWebSocketMessage.getSessionId() != null &&
+                    helloWebSocketMessage.getSessionId().equals(sessionId);
+            sessionId = helloWebSocketMessage.getSessionId();
+            resumeId = helloWebSocketMessage.getResumeId();
+            connected = true;
+            reconnectAttempts = 0;
+        }
+
+        signalingTransportMetrics.onConnected();
+
+        if (resumed) {
+            flushPendingMessages();
+        } else {
+            synchronized (this) {
+                joinedRoom = false;
+            }
+            sendRoomJoin();
+        }
+    }
+
+    private void onRoomJoined() {
+        synchronized (this) {
+            joinedRoom = true;
+        }
+
+        flushPendingMessages();
+    }
+
+    private synchronized void flushPendingMessages() {
+        if (webSocket == null || !joinedRoom) {
+            return;
+        }
+
+        int sentMessages = 0;
+        for (String message : pendingMessages) {
+            if (webSocket.send(message)) {
+                sentMessages++;
+            }
+        }
+
+        pendingMessages.clear();
+        signalingTransportMetrics.onMessagesSent(sentMessages);
+    }
+
+    private void onCallMessage(@Nullable CallWebSocketMessage callWebSocketMessage) {
+        if (callWebSocketMessage == null || callWebSocketMessage.getNcSignalingMessage() == null) {
+            return;
+        }
+
+        NCSignalingMessage ncSignalingMessage = callWebSocketMessage.getNcSignalingMessage();
+        if (ncSignalingMessage.getFrom() == null && callWebSocketMessage.getSenderWebSocketMessage() != null) {
+            ncSignalingMessage.setFrom(callWebSocketMessage.getSenderWebSocketMessage().getSessionId());
+        }
+
+        Signaling signaling = new Signaling();
+        signaling.setType("message");
+        signaling.setNcSignalingMessage(ncSignalingMessage);
+        deliverSignalingMessage(signaling);
+    }
+
+    private void onEvent(@Nullable EventWebSocketMessage eventWebSocketMessage) {
+        if (eventWebSocketMessage == null || !"participants".equals(eventWebSocketMessage.getTarget()) ||
+                !"update".equals(eventWebSocketMessage.getType()) ||
+                eventWebSocketMessage.getEventUpdateWebSocketMessage() == null ||
+                eventWebSocketMessage.getEventUpdateWebSocketMessage().getUsers() == null) {
+            return;
+        }
+
+        Signaling signaling = new Signaling();
+        signaling.setType("usersInRoom");
+        signaling.setUsersInRoom(eventWebSocketMessage.getEventUpdateWebSocketMessage().getUsers());
+        deliverSignalingMessage(signaling);
+    }
+
+    private void onServerError(WebSocketOverall webSocketOverall) {
+        String code = webSocketOverall.getErrorWebSocketMessage() != null ?
+                webSocketOverall.getErrorWebSocketMessage().getCode() : null;
+        Log.w(TAG, "Signaling server error: " + code);
+
+        boolean resumeFailed;
+        boolean notConnected;
+        synchronized (this) {
+            resumeFailed = "no_such_session".equals(code) && resumeId != null;
+            notConnected = !connected || !joinedRoom;
+            if (resumeFailed) {
+                resumeId = null;
+                joinedRoom = false;
+            }
+        }
+
+        if (resumeFailed) {
+            sendHello();
+        } else if (notConnected) {
+            // the hello or the room join was rejected, there is no point in trying again
+            fail();
+        }
+    }
+
+    private void onConnectionLost(WebSocket webSocket) {
+        long delay;
+        synchronized (this) {
+            if (webSocket != this.webSocket || stopped) {
+                return;
+            }
+
+            this.webSocket = null;
+            pendingRequests.clear();
+
+            if (!connected || reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
+                delay = -1;
+            } else {
+                delay = Math.min(RECONNECT_BASE_DELAY_MS << reconnectAttempts, RECONNECT_MAX_DELAY_MS);
+                reconnectAttempts++;
+            }
+        }
+
+        if (delay < 0) {
+            fail();
+            return;
+        }
+
+        signalingTransportMetrics.onReconnect();
+        Log.d(TAG, "Reconnecting to the signaling server in " + delay + " ms");
+
+        synchronized (this) {
+            reconnectDisposable = Completable.timer(delay, TimeUnit.MILLISECONDS)
+                    .subscribe(() -> {
+                        synchronized (WebSocketSignalingTransport.this) {
+                            if (!stopped) {
+                                openWebSocket();
+                            }
+                        }
+                    });
+        }
+    }
+
+    private void fail() {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+        }
+
+        AndroidSchedulers.mainThread().scheduleDirect(() -> listener.onSignalingTransportFailed(this));
+    }
+
+    private void deliverSignalingMessage(Signaling signaling) {
+        signalingTransportMetrics.onMessagesReceived(1);
+        AndroidSchedulers.mainThread().scheduleDirect(() -> {
+            synchronized (WebSocketSignalingTransport.this) {
+                if (stopped) {
+                    return;
+                }
+            }
+
+            listener.onSignalingMessage(signaling);
+        });
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc.sdp;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    One m= section: the media line with its payload types, followed by the section's own lines. The
+    rtpmap, fmtp and bandwidth lines are read and rewritten in place, everything else is left alone.
+ */
+public class SdpMediaSection {
+    private static final String FMTP_PREFIX = "a=fmtp:";
+    private static final String BANDWIDTH_PREFIX = "b=";
+
+    private final String media;
+    private final List<String> mediaLineHeader;
+    private final List<String> payloadTypes;
+    private final List<String> lines = new ArrayList<>();
+
+    SdpMediaSection(String mediaLine) {
+        // m=<media> <port> <proto> <fmt> ...
+        List<String> mediaLineParts = Arrays.asList(mediaLine.substring(2).split(" "));
+        int headerSize = Math.min(3, mediaLineParts.size());
+        media = mediaLineParts.get(0);
+        mediaLineHeader = new ArrayList<>(mediaLineParts.subList(0, headerSize));
+        payloadTypes = new ArrayList<>(mediaLineParts.subList(headerSize, mediaLineParts.size()));
+    }
+
+    public String getMedia() {
+        return media;
+    }
+
+    public List<String> getPayloadTypes() {
+        return payloadTypes;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public List<SdpRtpMap> getRtpMaps() {
+        List<SdpRtpMap> rtpMaps = new ArrayList<>();
+        for (String line : lines) {
+            SdpRtpMap rtpMap = SdpRtpMap.parse(line);
+            if (rtpMap != null) {
+                rtpMaps.add(rtpMap);
+            }
+        }
+
+        return rtpMaps;
+    }
+
+    public List<String> getPayloadTypesForCodec(String codec) {
+        List<String> codecPayloadTypes = new ArrayList<>();
+        for (SdpRtpMap rtpMap : getRtpMaps()) {
+            if (codec.equalsIgnoreCase(rtpMap.getEncodingName())) {
+                codecPayloadTypes.add(rtpMap.getPayloadType());
+            }
+        }
+
+        return codecPayloadTypes;
+    }
+
+    /*
+        Moves the payload types of the given codecs to the front, in the given order. Retransmission
+        payload types go along with the payload type they repair.
+     */
+    public void preferCodecs(List<String> codecs) {
+        Map<String, String> retransmissionPayloadTypes = new LinkedHashMap<>();
+        for (String payloadType : getPayloadTypesForCodec("rtx")) {
+            String associatedPayloadType = getFormatParameters(payloadType).get("apt");
+            if (associatedPayloadType != null) {
+                retransmissionPayloadTypes.put(associatedPayloadType, payloadType);
+            }
+        }
+
+        List<String> preferredPayloadTypes = new ArrayList<>();
+        for (String codec : codecs) {
+            for (String payloadType : getPayloadTypesForCodec(codec)) {
+                if (payloadTypes.contains(payloadType) && !preferredPayloadTypes.contains(payloadType)) {
+                    preferredPayloadTypes.add(payloadType);
+                    String retransmissionPayloadType = retransmissionPayloadTypes.get(payloadType);
+                    if (retransmissionPayloadType != null && payloadTypes.contains(retransmissionPayloadType)) {
+                        preferredPayloadTypes.add(retransmissionPayloadType);
+                    }
+                }
+            }
+        }
+
+        List<String> remainingPayloadTypes = new ArrayList<>(payloadTypes);
+        remainingPayloadTypes.removeAll(preferredPayloadTypes);
+
+        payloadTypes.clear();
+        payloadTypes.addAll(preferredPayloadTypes);
+        payloadTypes.addAll(remainingPayloadTypes);
+    }
+
+    /*
+        The fmtp parameters of a payload type in their original order. Parameters without a value (like
+        the "0-15" of telephone-event) are kept with a null value.
+     */
+    public Map<String, String> getFormatParameters(String payloadType) {
+        Map<String, String> formatParameters = new LinkedHashMap<>();
+        int index = findFormatParametersLine(payloadType);
+        if (index == -1) {
+            return formatParameters;
+        }
+
+        String line = lines.get(index);
+        String parameters = line.substring(FMTP_PREFIX.length() + payloadType.length()).trim();
+        for (String parameter : parameters.split(";")) {
+            String trimmedParameter = parameter.trim();
+            if (trimmedParameter.isEmpty()) {
+                continue;
+            }
+
+            int separator = trimmedParameter.indexOf('=');
+            if (separator == -1) {
+                formatParameters.put(trimmedParameter, null);
+            } else {
+                formatParameters.put(trimmedParameter.substring(0, separator).trim(),
+                        trimmedParameter.substring(separator + 1).trim());
+            }
+        }
+
+        return formatParameters;
+    }
+
+    public void setFormatParameters(String payloadType, Map<String, String> formatParameters) {
+        int index = findFormatParametersLine(payloadType);
+        if (formatParameters.isEmpty()) {
+            if (index != -1) {
+                lines.remove(index);
+            }
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(FMTP_PREFIX).append(payloadType).append(' ');
+        boolean first = true;
+        for (Map.Entry<String, String> formatParameter : formatParameters.entrySet()) {
+            if (!first) {
+                line.append(';');
+            }
+            first = false;
+
+            line.append(formatParameter.getKey());
+            if (formatParameter.getValue() != null) {
+                line.append('=').append(formatParameter.getValue());
+            }
+        }
+
+        if (index != -1) {
+            lines.set(index, line.toString());
+        } else {
+            lines.add(findRtpMapLine(payloadType) + 1, line.toString());
+        }
+    }
+
+    @Nullable
+    public Long getBandwidth(String bandwidthType) {
+        int index = findBandwidthLine(bandwidthType);
+        if (index == -1) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(lines.get(index).substring(BANDWIDTH_PREFIX.length() + bandwidthType.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void setBandwidth(String bandwidthType, long bandwidth) {
+        String line = BANDWIDTH_PREFIX + bandwidthType + ":" + bandwidth;
+        int index = findBandwidthLine(bandwidthType);
+        if (index != -1) {
+            lines.set(index, line);
+            return;
+        }
+
+        // b= lines go after i= and c= and before everything else of the section
+        int insertAt = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String existingLine = lines.get(i);
+            if (existingLine.startsWith("i=") || existingLine.startsWith("c=") ||
+                    existingLine.startsWith(BANDWIDTH_PREFIX)) {
+                insertAt = i + 1;
+            }
+        }
+
+        lines.add(insertAt, line);
+    }
+
+    public void removeBandwidth(String bandwidthType) {
+        int index = findBandwidthLine(bandwidthType);
+        if (index != -1) {
+            lines.remove(index);
+        }
+    }
+
+    void appendTo(StringBuilder stringBuilder) {
+        stringBuilder.append("m=");
+        for (int i = 0; i < mediaLineHeader.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(' ');
+            }
+            stringBuilder.append(mediaLineHeader.get(i));
+        }
+
+        for (String payloadType : payloadTypes) {
+            stringBuilder.append(' ').append(payloadType);
+        }
+        stringBuilder.append(SdpSession.LINE_SEPARATOR);
+
+        for (String line : lines) {
+            stringBuilder.append(line).append(SdpSession.LINE_SEPARATOR);
+        }
+    }
+
+    private int findFormatParametersLine(String payloadType) {
+        String prefix = FMTP_PREFIX + payloadType + " ";
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int findRtpMapLine(String payloadType) {
+        for (int i = 0; i < lines.size(); i++) {
+            SdpRtpMap rtpMap = SdpRtpMap.parse(lines.get(i));
+            if (rtpMap != null && payloadType.equals(rtpMap.getPayloadType())) {
+                return i;
+            }
+        }
+
+        return lines.size() - 1;
+    }
+
+    private int findBandwidthLine(String bandwidthType) {
+        String prefix = BANDWIDTH_PREFIX + bandwidthType + ":";
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc.sdp;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+    What we rewrite in every session description before it is applied, local or remote: the video codec
+    order, a cap on the video bitrate and the Opus parameters. Anything left at null stays as the
+    description has it.
+
+    Bandwidth and fmtp lines in a description describe what its author is willing to receive, so the
+    same policy on both sides caps and tunes the media in both directions.
+ */
+public class SdpPolicy {
+    public static final String CODEC_VP8 = "VP8";
+    public static final String CODEC_VP9 = "VP9";
+    public static final String CODEC_H264 = "H264";
+
+    private static final String CODEC_OPUS = "opus";
+    private static final String PTIME_PREFIX = "a=ptime:";
+
+    private List<String> videoCodecOrder = Collections.emptyList();
+    private Long maxVideoBitrateKbps;
+    private Boolean opusDtx;
+    private Boolean opusInbandFec;
+    private Integer opusMaxAverageBitrate;
+    private Integer opusPtime;
+
+    public static SdpPolicy getDefault() {
+        return new SdpPolicy()
+                .setVideoCodecOrder(Arrays.asList(CODEC_VP8, CODEC_VP9, CODEC_H264))
+                .setOpusInbandFec(true);
+    }
+
+    public SdpPolicy setVideoCodecOrder(List<String> videoCodecOrder) {
+        this.videoCodecOrder = new ArrayList<>(videoCodecOrder);
+        return this;
+    }
+
+    /*
+        Written as b=AS (kbps) and b=TIAS (bps), different engines honour different ones.
+     */
+    public SdpPolicy setMaxVideoBitrateKbps(@Nullable Long maxVideoBitrateKbps) {
+        this.maxVideoBitrateKbps = maxVideoBitrateKbps;
+        return this;
+    }
+
+    public SdpPolicy setOpusDtx(@Nullable Boolean opusDtx) {
+        this.opusDtx = opusDtx;
+        return this;
+    }
+
+    public SdpPolicy setOpusInbandFec(@Nullable Boolean opusInbandFec) {
+        this.opusInbandFec = opusInbandFec;
+        return this;
+    }
+
+    public SdpPolicy setOpusMaxAverageBitrate(@Nullable Integer opusMaxAverageBitrate) {
+        this.opusMaxAverageBitrate = opusMaxAverageBitrate;
+        return this;
+    }
+
+    public SdpPolicy setOpusPtime(@Nullable Integer opusPtime) {
+        this.opusPtime = opusPtime;
+        return this;
+    }
+
+    public List<String> getVideoCodecOrder() {
+        return Collections.unmodifiableList(videoCodecOrder);
+    }
+
+    @Nullable
+    public Long getMaxVideoBitrateKbps() {
+        return maxVideoBitrateKbps;
+    }
+
+    public String apply(String sessionDescription) {
+        SdpSession sdpSession = SdpSession.parse(sessionDescription);
+        apply(sdpSession);
+        return sdpSession.toString();
+    }
+
+    public void apply(SdpSession sdpSession) {
+        for (SdpMediaSection mediaSection : sdpSession.getMediaSections("video")) {
+            if (!videoCodecOrder.isEmpty()) {
+                mediaSection.preferCodecs(videoCodecOrder);
+            }
+
+            if (maxVideoBitrateKbps != null) {
+                mediaSection.setBandwidth("AS", maxVideoBitrateKbps);
+                mediaSection.setBandwidth("TIAS", maxVideoBitrateKbps * 1000);
+            }
+        }
+
+        for (SdpMediaSection mediaSection : sdpSession.getMediaSections("audio")) {
+            applyOpusParameters(mediaSection);
+        }
+    }
+
+    private void applyOpusParameters(SdpMediaSection mediaSection) {
+        List<String> opusPayloadTypes = mediaSection.getPayloadTypesForCodec(CODEC_OPUS);
+        if (opusPayloadTypes.isEmpty()) {
+            return;
+        }
+
+        for (String payloadType : opusPayloadTypes) {
+            Map<String, String> formatParameters = mediaSection.getFormatParameters(payloadType);
+            if (opusDtx != null) {
+                formatParameters.put("usedtx", opusDtx ? "1" : "0");
+            }
+
+            if (opusInbandFec != null) {
+                formatParameters.put("useinbandfec", opusInbandFec ? "1" : "0");
+            }
+
+            if (opusMaxAverageBitrate != null) {
+                formatParameters.put("maxaveragebitrate", String.valueOf(opusMaxAverageBitrate));
+            }
+
+            mediaSection.setFormatParameters(payloadType, formatParameters);
+        }
+
+        if (opusPtime != null) {
+            List<String> lines = mediaSection.getLines();
+            String ptimeLine = PTIME_PREFIX + opusPtime;
+            boolean replaced = false;
+            for (int i = 0; i < lines.size(); i++) {
+                if (lines.get(i).startsWith(PTIME_PREFIX)) {
+                    lines.set(i, ptimeLine);
+                    replaced = true;
+                }
+            }
+
+            if (!replaced) {
+                lines.add(ptimeLine);
+            }
+        }
+    }
+}
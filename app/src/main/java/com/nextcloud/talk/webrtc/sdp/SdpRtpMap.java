@@ -0,0 +1,90 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc.sdp;
+
+import android.support.annotation.Nullable;
+
+/*
+    a=rtpmap:<payload type> <encoding name>/<clock rate>[/<encoding parameters>]
+ */
+public class SdpRtpMap {
+    private static final String PREFIX = "a=rtpmap:";
+
+    private final String payloadType;
+    private final String encodingName;
+    private final int clockRate;
+    private final String encodingParameters;
+
+    private SdpRtpMap(String payloadType, String encodingName, int clockRate, @Nullable String encodingParameters) {
+        this.payloadType = payloadType;
+        this.encodingName = encodingName;
+        this.clockRate = clockRate;
+        this.encodingParameters = encodingParameters;
+    }
+
+    static boolean isRtpMapLine(String line) {
+        return line.startsWith(PREFIX);
+    }
+
+    @Nullable
+    static SdpRtpMap parse(String line) {
+        if (!isRtpMapLine(line)) {
+            return null;
+        }
+
+        int payloadTypeEnd = line.indexOf(' ', PREFIX.length());
+        if (payloadTypeEnd == -1) {
+            return null;
+        }
+
+        String[] encoding = line.substring(payloadTypeEnd + 1).trim().split("/");
+        if (encoding.length < 2) {
+            return null;
+        }
+
+        int clockRate;
+        try {
+            clockRate = Integer.parseInt(encoding[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return new SdpRtpMap(line.substring(PREFIX.length(), payloadTypeEnd), encoding[0], clockRate,
+                encoding.length > 2 ? encoding[2] : null);
+    }
+
+    public String getPayloadType() {
+        return payloadType;
+    }
+
+    public String getEncodingName() {
+        return encodingName;
+    }
+
+    public int getClockRate() {
+        return clockRate;
+    }
+
+    @Nullable
+    public String getEncodingParameters() {
+        return encodingParameters;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc.sdp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    A session description split into its session level lines and its media sections. Lines we don't
+    model are kept verbatim, so parsing and serializing an unmodified description gives back the same text.
+ */
+public class SdpSession {
+    static final String LINE_SEPARATOR = "\r\n";
+
+    private final List<String> sessionLines = new ArrayList<>();
+    private final List<SdpMediaSection> mediaSections = new ArrayList<>();
+
+    public static SdpSession parse(String sessionDescription) {
+        SdpSession sdpSession = new SdpSession();
+        SdpMediaSection currentMediaSection = null;
+
+        int lineStart = 0;
+        int length = sessionDescription.length();
+        while (lineStart < length) {
+            int lineEnd = sessionDescription.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = length;
+            }
+
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && sessionDescription.charAt(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            String line = sessionDescription.substring(lineStart, contentEnd);
+            lineStart = lineEnd + 1;
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            if (line.startsWith("m=")) {
+                currentMediaSection = new SdpMediaSection(line);
+                sdpSession.mediaSections.add(currentMediaSection);
+            } else if (currentMediaSection != null) {
+                currentMediaSection.getLines().add(line);
+            } else {
+                sdpSession.sessionLines.add(line);
+            }
+        }
+
+        return sdpSession;
+    }
+
+    public List<String> getSessionLines() {
+        return sessionLines;
+    }
+
+    public List<SdpMediaSection> getMediaSections() {
+        return Collections.unmodifiableList(mediaSections);
+    }
+
+    public List<SdpMediaSection> getMediaSections(String media) {
+        List<SdpMediaSection> sections = new ArrayList<>();
+        for (SdpMediaSection mediaSection : mediaSections) {
+            if (media.equals(mediaSection.getMedia())) {
+                sections.add(mediaSection);
+            }
+        }
+
+        return sections;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String line : sessionLines) {
+            stringBuilder.append(line).append(LINE_SEPARATOR);
+        }
+
+        for (SdpMediaSection mediaSection : mediaSections) {
+            mediaSection.appendTo(stringBuilder);
+        }
+
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk;
+
+import java.util.Locale;
+
+/*
+    Minimal timing helper for the JVM benchmarks next to the unit tests. Every task is warmed up
+    before it is measured, and its results are folded into a sink so the JIT can't drop the work.
+ */
+public class BenchmarkUtils {
+    private static final int WARMUP_RUNS = 2000;
+
+    private static volatile int sink;
+
+    public interface Task {
+        Object run() throws Exception;
+    }
+
+    // average time of one run in nanoseconds, slow tasks measured a few times are warmed up as often
+    public static double measure(int runs, Task task) throws Exception {
+        int hash = 0;
+        int warmupRuns = Math.min(WARMUP_RUNS, runs);
+        for (int i = 0; i < warmupRuns; i++) {
+            hash += hash(task.run());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            hash += hash(task.run());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = hash;
+        return (double) elapsed / runs;
+    }
+
+    private static int hash(Object result) {
+        return result != null ? result.hashCode() : 0;
+    }
+
+    public static void report(String name, double oldNanos, double newNanos) {
+        System.out.println(String.format(Locale.ROOT, "%-40s old %10.0f ns  new %10.0f ns  (%.1fx)", name,
+                oldNanos, newNanos, oldNanos / newNanos));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.models.json.chat;
+
+import com.nextcloud.talk.Benchmark;
+import com.nextcloud.talk.BenchmarkUtils;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChatUtilsTest {
+
+    @Test
+    public void messageWithoutParametersIsKept() {
+        ParsedMessage parsedMessage = ChatUtils.parseMessage("Hello {there}", new HashMap<>());
+        assertEquals("Hello {there}", parsedMessage.getText());
+        assertFalse(parsedMessage.hasSpans());
+
+        String message = "No placeholders at all";
+        assertSame(message, ChatUtils.parseMessage(message, getParameters(3)).getText());
+        assertEquals(null, ChatUtils.parseMessage(null, getParameters(3)).getText());
+    }
+
+    @Test
+    public void mentionsGuestsAndFilesAreRendered() {
+        HashMap<String, HashMap<String, String>> messageParameters = new HashMap<>();
+        messageParameters.put("mention-user1", getParameter("user", "alice", "Alice"));
+        messageParameters.put("mention-guest1", getParameter("guest", "guest/1", "Bob"));
+        messageParameters.put("file", getParameter("file", "42", "notes.txt"));
+
+        ParsedMessage parsedMessage = ChatUtils.parseMessage("{mention-user1} and {mention-guest1} see {file}",
+                messageParameters);
+
+        assertEquals("@Alice and @Bob see notes.txt", parsedMessage.getText());
+        assertEquals(3, parsedMessage.getSpans().size());
+        assertSpan(parsedMessage, 0, "@Alice", "user");
+        assertSpan(parsedMessage, 1, "@Bob", "guest");
+        assertSpan(parsedMessage, 2, "notes.txt", "file");
+        assertTrue(parsedMessage.getSpans().get(0).isMention());
+        assertTrue(parsedMessage.getSpans().get(2).isFile());
+        assertEquals("alice", parsedMessage.getSpans().get(0).getId());
+    }
+
+    @Test
+    public void unknownPlaceholdersAndBracesAreKept() {
+        HashMap<String, HashMap<String, String>> messageParameters = new HashMap<>();
+        messageParameters.put("mention-user1", getParameter("user", "alice", "Alice"));
+        messageParameters.put("actor", getParameter("call", "1", "Call"));
+
+        assertEquals("{ {unknown} {actor} @Alice {", ChatUtils.parseMessage("{ {unknown} {actor} {mention-user1} {",
+                messageParameters).getText());
+        assertEquals("{{@Alice}}", ChatUtils.parseMessage("{{{mention-user1}}}", messageParameters).getText());
+        assertEquals("@Alice@Alice", ChatUtils.parseMessage("{mention-user1}{mention-user1}",
+                messageParameters).getText());
+    }
+
+    @Test
+    public void namesAreInsertedLiterally() {
+        HashMap<String, HashMap<String, String>> messageParameters = new HashMap<>();
+        messageParameters.put("mention-user1", getParameter("user", "cash", "$1 {mention-user1} \\n"));
+
+        ParsedMessage parsedMessage = ChatUtils.parseMessage("Hi {mention-user1}!", messageParameters);
+        assertEquals("Hi @$1 {mention-user1} \\n!", parsedMessage.getText());
+        assertSpan(parsedMessage, 0, "@$1 {mention-user1} \\n", "user");
+    }
+
+    @Test
+    public void matchesReplaceAllRendering() {
+        for (int parameters : new int[]{0, 1, 5, 50}) {
+            HashMap<String, HashMap<String, String>> messageParameters = getParameters(parameters);
+            String message = getMessage(parameters);
+            assertEquals(getParsedMessageWithReplaceAll(message, messageParameters),
+                    ChatUtils.getParsedMessage(message, messageParameters));
+        }
+    }
+
+    @Test
+    public void sentMessageIsRecognized() {
+        HashMap<String, HashMap<String, String>> messageParameters = new HashMap<>();
+        messageParameters.put("mention-user1", getParameter("user", "bob", "Bob Builder"));
+        ChatMessage chatMessage = getChatMessage("alice", 1000, "Ask {mention-user1} ", messageParameters);
+
+        assertTrue(ChatUtils.isSentMessage(chatMessage, "alice", "Ask @Bob Builder", 1000));
+        // what was typed before the server rendered the mention
+        assertTrue(ChatUtils.isSentMessage(chatMessage, "alice", "Ask @bob", 1000));
+        // the server clock is a minute behind
+        assertTrue(ChatUtils.isSentMessage(chatMessage, "alice", "Ask @bob", 1060));
+    }
+
+    @Test
+    public void otherMessagesAreNotTakenForSentOnes() {
+        ChatMessage chatMessage = getChatMessage("alice", 1000, "See you", new HashMap<>());
+
+        assertFalse(ChatUtils.isSentMessage(chatMessage, "bob", "See you", 1000));
+        assertFalse(ChatUtils.isSentMessage(chatMessage, "alice", "See you!", 1000));
+        // posted well before the message was written
+        assertFalse(ChatUtils.isSentMessage(chatMessage, "alice", "See you", 2000));
+
+        chatMessage.setActorType("guests");
+        assertFalse(ChatUtils.isSentMessage(chatMessage, "alice", "See you", 1000));
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkAgainstReplaceAll() throws Exception {
+        for (int parameters : new int[]{0, 5, 50}) {
+            HashMap<String, HashMap<String, String>> messageParameters = getParameters(parameters);
+            String message = getMessage(parameters);
+            int runs = parameters == 50 ? 2000 : 20000;
+
+            double oldNanos = BenchmarkUtils.measure(runs, () ->
+                    getParsedMessageWithReplaceAll(message, messageParameters));
+            double newNanos = BenchmarkUtils.measure(runs, () -> ChatUtils.parseMessage(message, messageParameters));
+            BenchmarkUtils.report("parseMessage, " + parameters + " parameters", oldNanos, newNanos);
+        }
+    }
+
+    private static ChatMessage getChatMessage(String actorId, long timestamp, String message,
+                                              HashMap<String, HashMap<String, String>> messageParameters) {
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setActorType("users");
+        chatMessage.setActorId(actorId);
+        chatMessage.setTimestamp(timestamp);
+        chatMessage.setMessage(message);
+        chatMessage.setMessageParameters(messageParameters);
+        return chatMessage;
+    }
+
+    private static void assertSpan(ParsedMessage parsedMessage, int index, String text, String type) {
+        ParsedMessage.Span span = parsedMessage.getSpans().get(index);
+        assertEquals(text, parsedMessage.getText().substring(span.getStart(), span.getEnd()));
+        assertEquals(type, span.getType());
+    }
+
+    private static HashMap<String, String> getParameter(String type, String id, String name) {
+        HashMap<String, String> parameter = new HashMap<>();
+        parameter.put("type", type);
+        parameter.put("id", id);
+        parameter.put("name", name);
+        return parameter;
+    }
+
+    // every third parameter is a file, the rest are mentions
+    private static HashMap<String, HashMap<String, String>> getParameters(int count) {
+        HashMap<String, HashMap<String, String>> messageParameters = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 2) {
+                messageParameters.put("file" + i, getParameter("file", Integer.toString(i), "file" + i + ".pdf"));
+            } else {
+                messageParameters.put("mention-user" + i, getParameter("user", "user" + i, "User " + i));
+            }
+        }
+        return messageParameters;
+    }
+
+    private static String getMessage(int parameters) {
+        StringBuilder stringBuilder = new StringBuilder("Message with some text before the parameters. ");
+        for (int i = 0; i < parameters; i++) {
+            stringBuilder.append(i % 3 == 2 ? "{file" + i + "}" : "{mention-user" + i + "}").append(" said hi, ");
+        }
+        return stringBuilder.append("and some text after them.").toString();
+    }
+
+    // the rendering ChatUtils used before parseMessage: one replaceAll per parameter
+    private static String getParsedMessageWithReplaceAll(String message,
+                                                         HashMap<String, HashMap<String, String>> messageParameters) {
+        if (messageParameters != null && messageParameters.size() > 0) {
+            for (String key : messageParameters.keySet()) {
+                HashMap<String, String> individualHashMap = messageParameters.get(key);
+                if (individualHashMap.get("type").equals("user") || individualHashMap.get("type").equals("guest")) {
+                    message = message.replaceAll("\\{" + key + "\\}", "@" +
+                            messageParameters.get(key).get("name"));
+                } else if (individualHashMap.get("type").equals("file")) {
+                    message = message.replaceAll("\\{" + key + "\\}", messageParameters.get(key).get("name"));
+                }
+            }
+        }
+
+        return message;
+    }
+}
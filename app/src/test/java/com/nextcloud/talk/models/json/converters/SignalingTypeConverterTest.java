@@ -0,0 +1,376 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.models.json.converters;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.Benchmark;
+import com.nextcloud.talk.BenchmarkUtils;
+import com.nextcloud.talk.models.json.signaling.NCIceCandidate;
+import com.nextcloud.talk.models.json.signaling.NCMessagePayload;
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.Signaling;
+import com.nextcloud.talk.models.json.signaling.SignalingOverall;
+import com.nextcloud.talk.models.json.signaling.SignalingUser;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SignalingTypeConverterTest {
+    private static final String META = "\"meta\":{\"status\":\"ok\",\"statuscode\":200,\"message\":\"OK\"}";
+    private static final int PEERS = 9;
+    private static final int CANDIDATES_PER_PEER = 8;
+
+    @BeforeClass
+    public static void setUp() {
+        LoganSquare.registerTypeConverter(Signaling.class, new SignalingTypeConverter());
+    }
+
+    @Test
+    public void usersInRoomWithBooleanInCall() throws IOException {
+        // older servers
+        String json = getOverall("{\"type\":\"usersInRoom\",\"data\":[" +
+                "{\"userId\":\"alice\",\"sessionId\":\"session-a\",\"roomId\":12,\"inCall\":true," +
+                "\"lastPing\":1530000000},{\"userId\":\"\",\"sessionId\":\"session-b\",\"roomId\":12," +
+                "\"inCall\":false,\"lastPing\":1530000001}]}");
+
+        List<Signaling> signalings = LoganSquare.parse(json, SignalingOverall.class).getOcs().getSignalings();
+        assertEquals(1, signalings.size());
+        assertEquals("usersInRoom", signalings.get(0).getType());
+        assertNull(signalings.get(0).getNcSignalingMessage());
+
+        List<SignalingUser> users = signalings.get(0).getUsersInRoom();
+        assertEquals(2, users.size());
+        assertEquals("alice", users.get(0).getUserId());
+        assertEquals("session-a", users.get(0).getSessionId());
+        assertTrue(users.get(0).isInCall());
+        assertEquals(1530000000L, users.get(0).getLastPing());
+        assertEquals("", users.get(1).getUserId());
+        assertFalse(users.get(1).isInCall());
+    }
+
+    @Test
+    public void usersInRoomWithNumericInCall() throws IOException {
+        // newer servers send the call flags, anything but 0 is in the call
+        String json = getOverall("{\"data\":[" +
+                "{\"sessionId\":\"session-a\",\"inCall\":0},{\"sessionId\":\"session-b\",\"inCall\":1}," +
+                "{\"sessionId\":\"session-c\",\"inCall\":3},{\"sessionId\":\"session-d\",\"inCall\":7}]," +
+                "\"type\":\"usersInRoom\"}");
+
+        Signaling signaling = LoganSquare.parse(json, SignalingOverall.class).getOcs().getSignalings().get(0);
+        // "type" coming after "data" doesn't matter
+        assertEquals("usersInRoom", signaling.getType());
+        assertFalse(signaling.getUsersInRoom().get(0).isInCall());
+        assertTrue(signaling.getUsersInRoom().get(1).isInCall());
+        assertTrue(signaling.getUsersInRoom().get(2).isInCall());
+        assertTrue(signaling.getUsersInRoom().get(3).isInCall());
+    }
+
+    @Test
+    public void messagesWithStringData() throws IOException {
+        String json = getOverall("{\"type\":\"message\",\"data\":\"{\\\"to\\\":\\\"session-local\\\"," +
+                "\\\"sid\\\":\\\"1530000000123\\\",\\\"roomType\\\":\\\"video\\\",\\\"type\\\":\\\"candidate\\\"," +
+                "\\\"payload\\\":{\\\"type\\\":\\\"candidate\\\",\\\"candidate\\\":{\\\"candidate\\\":" +
+                "\\\"candidate:842163049 1 udp 1677729535 198.51.100.7 54321 typ srflx raddr 0.0.0.0 rport 0\\\"," +
+                "\\\"sdpMid\\\":\\\"video\\\",\\\"sdpMLineIndex\\\":1}},\\\"from\\\":\\\"session-a\\\"}\"}," +
+                getMessageEnvelope(getOffer("session-b", "session-local")));
+
+        List<Signaling> signalings = LoganSquare.parse(json, SignalingOverall.class).getOcs().getSignalings();
+        assertEquals(2, signalings.size());
+
+        NCSignalingMessage candidate = signalings.get(0).getNcSignalingMessage();
+        assertEquals("message", signalings.get(0).getType());
+        assertNull(signalings.get(0).getUsersInRoom());
+        assertEquals("session-a", candidate.getFrom());
+        assertEquals("session-local", candidate.getTo());
+        assertEquals("candidate", candidate.getType());
+        assertEquals("video", candidate.getRoomType());
+        assertEquals("video", candidate.getPayload().getIceCandidate().getSdpMid());
+        assertEquals(1, candidate.getPayload().getIceCandidate().getSdpMLineIndex());
+        assertTrue(candidate.getPayload().getIceCandidate().getCandidate().startsWith("candidate:842163049 1 udp"));
+
+        NCSignalingMessage offer = signalings.get(1).getNcSignalingMessage();
+        assertEquals("offer", offer.getType());
+        assertEquals("session-b", offer.getFrom());
+        assertEquals(getSdp("session-b"), offer.getPayload().getSdp());
+        assertEquals("Bob", offer.getPayload().getNick());
+    }
+
+    @Test
+    public void burstMatchesTwoPassParse() throws IOException {
+        for (String json : new String[]{getJoinBurst(true), getJoinBurst(false), getUsersUpdate()}) {
+            List<Signaling> signalings = LoganSquare.parse(json, SignalingOverall.class).getOcs().getSignalings();
+            assertEquals(parseTwoPass(json), signalings);
+        }
+
+        List<Signaling> signalings = LoganSquare.parse(getJoinBurst(false), SignalingOverall.class).getOcs()
+                .getSignalings();
+        assertEquals(1 + PEERS + PEERS * CANDIDATES_PER_PEER, signalings.size());
+        assertEquals(PEERS + 1, signalings.get(0).getUsersInRoom().size());
+        assertEquals(getSdp("session-3"), signalings.get(3).getNcSignalingMessage().getPayload().getSdp());
+    }
+
+    /*
+        Both still parse every message string a second time, the converter just skips the maps and the copied
+        String. The difference is within what a JVM run varies by, so it is only reported.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkAgainstTwoPassParse() throws Exception {
+        String joinBurst = getJoinBurst(false);
+        String usersUpdate = getUsersUpdate();
+
+        double oldNanos = BenchmarkUtils.measure(2000, () -> parseTwoPass(joinBurst));
+        double newNanos = BenchmarkUtils.measure(2000, () ->
+                LoganSquare.parse(joinBurst, SignalingOverall.class).getOcs().getSignalings());
+        BenchmarkUtils.report("10 person join burst, " + joinBurst.length() / 1024 + " kB", oldNanos, newNanos);
+
+        oldNanos = BenchmarkUtils.measure(20000, () -> parseTwoPass(usersUpdate));
+        newNanos = BenchmarkUtils.measure(20000, () ->
+                LoganSquare.parse(usersUpdate, SignalingOverall.class).getOcs().getSignalings());
+        BenchmarkUtils.report("10 person usersInRoom", oldNanos, newNanos);
+    }
+
+    /*
+        How the envelopes were handled before SignalingTypeConverter: "data" was an Object field, so it
+        came out as the maps and lists LoganSquare parses untyped JSON into, the message string was parsed
+        a second time and inCall was checked for a Boolean or a Long.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Signaling> parseTwoPass(String json) throws IOException {
+        Map<String, Object> overall = LoganSquare.parseMap(json, Object.class);
+        List<Object> data = (List<Object>) ((Map<String, Object>) overall.get("ocs")).get("data");
+
+        List<Signaling> signalings = new ArrayList<>();
+        for (Object envelope : data) {
+            Map<String, Object> envelopeMap = (Map<String, Object>) envelope;
+            Signaling signaling = new Signaling();
+            signaling.setType((String) envelopeMap.get("type"));
+
+            if ("usersInRoom".equals(signaling.getType())) {
+                List<SignalingUser> users = new ArrayList<>();
+                for (Object participant : (List<Object>) envelopeMap.get("data")) {
+                    HashMap<String, Object> participantMap = (HashMap<String, Object>) participant;
+                    SignalingUser signalingUser = new SignalingUser();
+                    signalingUser.setSessionId((String) participantMap.get("sessionId"));
+                    signalingUser.setUserId((String) participantMap.get("userId"));
+                    Object inCallObject = participantMap.get("inCall");
+                    if (inCallObject instanceof Boolean) {
+                        signalingUser.setInCall((boolean) inCallObject);
+                    } else {
+                        signalingUser.setInCall(((long) inCallObject) != 0);
+                    }
+                    signalingUser.setLastPing((long) participantMap.get("lastPing"));
+                    users.add(signalingUser);
+                }
+                signaling.setUsersInRoom(users);
+            } else if ("message".equals(signaling.getType())) {
+                signaling.setNcSignalingMessage(LoganSquare.parse(envelopeMap.get("data").toString(),
+                        NCSignalingMessage.class));
+            }
+
+            signalings.add(signaling);
+        }
+
+        return signalings;
+    }
+
+    private static String getOverall(String... envelopes) {
+        return "{\"ocs\":{" + META + ",\"data\":[" + String.join(",", envelopes) + "]}}";
+    }
+
+    private static String getMessageEnvelope(NCSignalingMessage ncSignalingMessage) throws IOException {
+        return "{\"type\":\"message\",\"data\":\"" +
+                StringEscapeUtils.escapeJson(LoganSquare.serialize(ncSignalingMessage)) + "\"}";
+    }
+
+    private static String getUsersInRoomEnvelope(boolean booleanInCall) {
+        StringBuilder stringBuilder = new StringBuilder("{\"type\":\"usersInRoom\",\"data\":[");
+        for (int i = 0; i <= PEERS; i++) {
+            if (i > 0) {
+                stringBuilder.append(',');
+            }
+
+            String sessionId = i == 0 ? "session-local" : "session-" + i;
+            String inCall = booleanInCall ? Boolean.toString(i % 4 != 3) : Integer.toString(i % 4 != 3 ? 7 : 0);
+            stringBuilder.append("{\"userId\":\"user").append(i).append("\",\"sessionId\":\"").append(sessionId)
+                    .append("\",\"roomId\":42,\"inCall\":").append(inCall).append(",\"lastPing\":")
+                    .append(1530000000 + i).append('}');
+        }
+        return stringBuilder.append("]}").toString();
+    }
+
+    // what the first poll after joining a call with 9 others brings: the participants, an offer from each
+    // and the candidates trickling in behind them
+    private static String getJoinBurst(boolean booleanInCall) throws IOException {
+        List<String> envelopes = new ArrayList<>();
+        envelopes.add(getUsersInRoomEnvelope(booleanInCall));
+        for (int i = 1; i <= PEERS; i++) {
+            envelopes.add(getMessageEnvelope(getOffer("session-" + i, "session-local")));
+        }
+        for (int candidate = 0; candidate < CANDIDATES_PER_PEER; candidate++) {
+            for (int i = 1; i <= PEERS; i++) {
+                envelopes.add(getMessageEnvelope(getCandidate("session-" + i, "session-local", candidate)));
+            }
+        }
+        return getOverall(envelopes.toArray(new String[0]));
+    }
+
+    private static String getUsersUpdate() {
+        return getOverall(getUsersInRoomEnvelope(false));
+    }
+
+    private static NCSignalingMessage getOffer(String from, String to) {
+        NCMessagePayload ncMessagePayload = new NCMessagePayload();
+        ncMessagePayload.setType("offer");
+        ncMessagePayload.setSdp(getSdp(from));
+        ncMessagePayload.setNick("session-b".equals(from) ? "Bob" : "User " + from);
+        return getSignalingMessage(from, to, "offer", ncMessagePayload);
+    }
+
+    private static NCSignalingMessage getCandidate(String from, String to, int index) {
+        NCIceCandidate ncIceCandidate = new NCIceCandidate();
+        ncIceCandidate.setSdpMid(index % 2 == 0 ? "audio" : "video");
+        ncIceCandidate.setSdpMLineIndex(index % 2);
+        ncIceCandidate.setCandidate("candidate:" + (842163049 + index) + " 1 udp " + (2122260223 - index) +
+                " 192.0.2." + (10 + index) + " " + (50000 + index) + " typ host generation 0 ufrag EsAw network-id 1");
+
+        NCMessagePayload ncMessagePayload = new NCMessagePayload();
+        ncMessagePayload.setType("candidate");
+        ncMessagePayload.setIceCandidate(ncIceCandidate);
+        return getSignalingMessage(from, to, "candidate", ncMessagePayload);
+    }
+
+    private static NCSignalingMessage getSignalingMessage(String from, String to, String type,
+                                                          NCMessagePayload ncMessagePayload) {
+        NCSignalingMessage ncSignalingMessage = new NCSignalingMessage();
+        ncSignalingMessage.setFrom(from);
+        ncSignalingMessage.setTo(to);
+        ncSignalingMessage.setType(type);
+        ncSignalingMessage.setRoomType("video");
+        ncSignalingMessage.setPayload(ncMessagePayload);
+        return ncSignalingMessage;
+    }
+
+    // an audio and video offer the size Chrome sends, about 4 kB
+    private static String getSdp(String sessionId) {
+        long sessionVersion = Math.abs((long) sessionId.hashCode()) * 1000003L;
+        return "v=0\r\n" +
+                "o=- " + sessionVersion + " 2 IN IP4 127.0.0.1\r\n" +
+                "s=-\r\n" +
+                "t=0 0\r\n" +
+                "a=group:BUNDLE audio video\r\n" +
+                "a=msid-semantic: WMS " + sessionId + "\r\n" +
+                "m=audio 9 UDP/TLS/RTP/SAVPF 111 103 104 9 0 8 106 105 13 110 112 113 126\r\n" +
+                "c=IN IP4 0.0.0.0\r\n" +
+                "a=rtcp:9 IN IP4 0.0.0.0\r\n" +
+                "a=ice-ufrag:EsAw\r\n" +
+                "a=ice-pwd:bP+XJMM09aR8AiX1jdukzR6Y\r\n" +
+                "a=ice-options:trickle\r\n" +
+                "a=fingerprint:sha-256 DA:7B:57:DC:28:CE:04:4F:31:79:85:C4:31:67:EB:27:58:29:ED:77:2A:0D:24:AE:" +
+                "ED:CC:25:62:87:73:09:F1\r\n" +
+                "a=setup:actpass\r\n" +
+                "a=mid:audio\r\n" +
+                "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\r\n" +
+                "a=sendrecv\r\n" +
+                "a=rtcp-mux\r\n" +
+                "a=rtpmap:111 opus/48000/2\r\n" +
+                "a=rtcp-fb:111 transport-cc\r\n" +
+                "a=fmtp:111 minptime=10;useinbandfec=1\r\n" +
+                "a=rtpmap:103 ISAC/16000\r\n" +
+                "a=rtpmap:104 ISAC/32000\r\n" +
+                "a=rtpmap:9 G722/8000\r\n" +
+                "a=rtpmap:0 PCMU/8000\r\n" +
+                "a=rtpmap:8 PCMA/8000\r\n" +
+                "a=rtpmap:106 CN/32000\r\n" +
+                "a=rtpmap:105 CN/16000\r\n" +
+                "a=rtpmap:13 CN/8000\r\n" +
+                "a=rtpmap:110 telephone-event/48000\r\n" +
+                "a=rtpmap:112 telephone-event/32000\r\n" +
+                "a=rtpmap:113 telephone-event/16000\r\n" +
+                "a=rtpmap:126 telephone-event/8000\r\n" +
+                "a=ssrc:3570614608 cname:4TOk42mSjXCkVIa6\r\n" +
+                "a=ssrc:3570614608 msid:" + sessionId + " " + sessionId + "a0\r\n" +
+                "m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99 100 101 102 124 127\r\n" +
+                "c=IN IP4 0.0.0.0\r\n" +
+                "a=rtcp:9 IN IP4 0.0.0.0\r\n" +
+                "a=ice-ufrag:EsAw\r\n" +
+                "a=ice-pwd:bP+XJMM09aR8AiX1jdukzR6Y\r\n" +
+                "a=ice-options:trickle\r\n" +
+                "a=fingerprint:sha-256 DA:7B:57:DC:28:CE:04:4F:31:79:85:C4:31:67:EB:27:58:29:ED:77:2A:0D:24:AE:" +
+                "ED:CC:25:62:87:73:09:F1\r\n" +
+                "a=setup:actpass\r\n" +
+                "a=mid:video\r\n" +
+                "a=extmap:2 urn:ietf:params:rtp-hdrext:toffset\r\n" +
+                "a=extmap:3 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" +
+                "a=extmap:4 urn:3gpp:video-orientation\r\n" +
+                "a=extmap:5 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n" +
+                "a=sendrecv\r\n" +
+                "a=rtcp-mux\r\n" +
+                "a=rtcp-rsize\r\n" +
+                "a=rtpmap:96 VP8/90000\r\n" +
+                "a=rtcp-fb:96 goog-remb\r\n" +
+                "a=rtcp-fb:96 transport-cc\r\n" +
+                "a=rtcp-fb:96 ccm fir\r\n" +
+                "a=rtcp-fb:96 nack\r\n" +
+                "a=rtcp-fb:96 nack pli\r\n" +
+                "a=rtpmap:97 rtx/90000\r\n" +
+                "a=fmtp:97 apt=96\r\n" +
+                "a=rtpmap:98 VP9/90000\r\n" +
+                "a=rtcp-fb:98 goog-remb\r\n" +
+                "a=rtcp-fb:98 transport-cc\r\n" +
+                "a=rtcp-fb:98 ccm fir\r\n" +
+                "a=rtcp-fb:98 nack\r\n" +
+                "a=rtcp-fb:98 nack pli\r\n" +
+                "a=rtpmap:99 rtx/90000\r\n" +
+                "a=fmtp:99 apt=98\r\n" +
+                "a=rtpmap:100 H264/90000\r\n" +
+                "a=rtcp-fb:100 goog-remb\r\n" +
+                "a=rtcp-fb:100 transport-cc\r\n" +
+                "a=rtcp-fb:100 ccm fir\r\n" +
+                "a=rtcp-fb:100 nack\r\n" +
+                "a=rtcp-fb:100 nack pli\r\n" +
+                "a=fmtp:100 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42e01f\r\n" +
+                "a=rtpmap:101 rtx/90000\r\n" +
+                "a=fmtp:101 apt=100\r\n" +
+                "a=rtpmap:102 red/90000\r\n" +
+                "a=rtpmap:124 rtx/90000\r\n" +
+                "a=fmtp:124 apt=102\r\n" +
+                "a=rtpmap:127 ulpfec/90000\r\n" +
+                "a=ssrc-group:FID 2231627014 632943048\r\n" +
+                "a=ssrc:2231627014 cname:4TOk42mSjXCkVIa6\r\n" +
+                "a=ssrc:2231627014 msid:" + sessionId + " " + sessionId + "v0\r\n" +
+                "a=ssrc:632943048 cname:4TOk42mSjXCkVIa6\r\n" +
+                "a=ssrc:632943048 msid:" + sessionId + " " + sessionId + "v0\r\n";
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.utils;
+
+import com.nextcloud.talk.Benchmark;
+import com.nextcloud.talk.BenchmarkUtils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EmojiDetectionTest {
+    // unit tests run in the module directory
+    private static final String REGEX_PATH = "src/main/res/raw/regex";
+    private static final String[] MESSAGES = {"😀", "😀😁", "Sounds good, see you tomorrow 😀",
+            "A longer message that goes on for a while without any emoticon, the way most chat messages do."};
+
+    private static String regex;
+    private static EmojiDetection.TrieNode trie;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // readTextFile joins the lines of the raw resource without a separator
+        regex = new String(Files.readAllBytes(Paths.get(REGEX_PATH)), StandardCharsets.UTF_8)
+                .replace("\r", "").replace("\n", "");
+        trie = EmojiDetection.buildTrie(regex);
+    }
+
+    @Test
+    public void everyListedEmoticonIsOne() {
+        String[] alternatives = regex.split("\\|");
+        assertTrue(alternatives.length > 2000);
+
+        for (String alternative : alternatives) {
+            String emoticon = alternative.replace("\\Q", "").replace("\\E", "");
+            assertEquals(emoticon, 1, EmojiDetection.countEmoticonsOnly(trie, emoticon, 1));
+        }
+    }
+
+    @Test
+    public void sequencesAreTakenWhole() {
+        // skin tone, ZWJ families and professions, flags, keycaps and variation selectors
+        String[] sequences = {"👍🏽", "👨‍👩‍👧", "👨‍👩‍👧‍👦", "👩🏽‍💻",
+                "🏳️‍🌈", "🇩🇪", "1️⃣", "❤️"};
+
+        for (String sequence : sequences) {
+            assertEquals(sequence, 1, EmojiDetection.countEmoticonsOnly(trie, sequence, 1));
+        }
+
+        assertEquals(3, EmojiDetection.countEmoticonsOnly(trie, "👍🏽👨‍👩‍👧🇩🇪", 3));
+        assertEquals(2, EmojiDetection.countEmoticonsOnly(trie, "🇩🇪🇫🇷", 3));
+    }
+
+    @Test
+    public void longerSequencesAreRecognizedUnlikeTheRegex() {
+        // the regex takes the first alternative, 👍 and the three people family come before the longer ones
+        assertFalse(isSingleEmoticonWithRegex(Pattern.compile(regex), "👍🏽"));
+        assertFalse(isSingleEmoticonWithRegex(Pattern.compile(regex), "👨‍👩‍👧‍👦"));
+
+        assertEquals(1, EmojiDetection.countEmoticonsOnly(trie, "👍🏽", 1));
+        assertEquals(1, EmojiDetection.countEmoticonsOnly(trie, "👨‍👩‍👧‍👦", 1));
+    }
+
+    @Test
+    public void mixedTextIsRejected() {
+        String[] messages = {"Hi 😀", "😀 ", " 😀", "😀!", "😀 😁", "a", "‍", "🏽", "\uD83D",
+                "👨‍", "Sounds good, see you tomorrow"};
+
+        for (String message : messages) {
+            assertEquals(message, -1, EmojiDetection.countEmoticonsOnly(trie, message, 3));
+        }
+    }
+
+    @Test
+    public void maxEmoticonsIsALimit() {
+        assertEquals(1, EmojiDetection.countEmoticonsOnly(trie, "😀", 1));
+        assertEquals(-1, EmojiDetection.countEmoticonsOnly(trie, "😀😁", 1));
+        assertEquals(2, EmojiDetection.countEmoticonsOnly(trie, "😀😁", 2));
+        assertEquals(3, EmojiDetection.countEmoticonsOnly(trie, "😀😁😂", 3));
+        assertEquals(-1, EmojiDetection.countEmoticonsOnly(trie, "😀😁😂🤣", 3));
+        assertEquals(-1, EmojiDetection.countEmoticonsOnly(trie, "😀", 0));
+    }
+
+    @Test
+    public void emptyTextIsRejected() {
+        assertEquals(-1, EmojiDetection.countEmoticonsOnly(trie, "", 1));
+        assertEquals(-1, EmojiDetection.countEmoticonsOnly(trie, null, 1));
+    }
+
+    @Test
+    public void matchesRegexOnPlainMessages() {
+        Pattern pattern = Pattern.compile(regex);
+        for (String message : MESSAGES) {
+            assertEquals(message, isSingleEmoticonWithRegex(pattern, message),
+                    EmojiDetection.countEmoticonsOnly(trie, message, 1) == 1);
+        }
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkAgainstRegex() throws Exception {
+        Pattern pattern = Pattern.compile(regex);
+        for (String message : MESSAGES) {
+            // past the first emoticon the regex gets slow, milliseconds per message
+            int runs = message.length() > 4 ? 200 : 20000;
+
+            double oldNanos = BenchmarkUtils.measure(runs, () -> isSingleEmoticonWithRegex(pattern, message));
+            double newNanos = BenchmarkUtils.measure(runs, () ->
+                    EmojiDetection.countEmoticonsOnly(trie, message, 1));
+            BenchmarkUtils.report("single emoticon, " + message.length() + " chars", oldNanos, newNanos);
+        }
+    }
+
+    // the check EmojiDetection did before the trie
+    private static boolean isSingleEmoticonWithRegex(Pattern pattern, CharSequence text) {
+        int startPosition = -1;
+        int endPosition = -1;
+
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            if (startPosition == -1 && endPosition == -1) {
+                startPosition = matcher.start();
+                endPosition = matcher.end();
+            } else {
+                return false;
+            }
+        }
+
+        return startPosition == 0 && text.length() == endPosition;
+    }
+}
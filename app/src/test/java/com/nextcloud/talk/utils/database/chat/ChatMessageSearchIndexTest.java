@@ -0,0 +1,91 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.nextcloud.talk.utils.database.chat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChatMessageSearchIndexTest {
+    // text, room_token, internal_user_id, message_id
+    private static final int COLUMNS = 4;
+    private static final int ROWS = 100000;
+    private static final int AVERAGE_LENGTH = 12;
+
+    @Test
+    public void rareTermsWeighMore() {
+        assertTrue(getScore(12, phrase(1, 10)) > getScore(12, phrase(1, 5000)));
+    }
+
+    @Test
+    public void shorterMessagesWeighMore() {
+        assertTrue(getScore(4, phrase(1, 100)) > getScore(40, phrase(1, 100)));
+    }
+
+    @Test
+    public void repeatedHitsSaturate() {
+        double oneHit = getScore(12, phrase(1, 100));
+        double threeHits = getScore(12, phrase(3, 100));
+        assertTrue(threeHits > oneHit);
+        assertTrue(threeHits < 3 * oneHit);
+    }
+
+    @Test
+    public void everyPhraseCounts() {
+        double rare = getScore(12, phrase(1, 10));
+        double common = getScore(12, phrase(1, 5000));
+        assertEquals(rare + common, getScore(12, phrase(1, 10), phrase(1, 5000)), 1e-9);
+    }
+
+    @Test
+    public void rowsWithoutHitsScoreNothing() {
+        assertEquals(0, getScore(12, phrase(0, 100)), 0);
+    }
+
+    private static int[] phrase(int hitsInRow, int rowsWithHits) {
+        return new int[]{hitsInRow, rowsWithHits};
+    }
+
+    // matchinfo 'pcnalx' of a row as SQLite lays it out, hits only in the text column
+    private static double getScore(int length, int[]... phrases) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(4 * (3 + 2 * COLUMNS + 3 * phrases.length * COLUMNS))
+                .order(ByteOrder.nativeOrder());
+        byteBuffer.putInt(phrases.length).putInt(COLUMNS).putInt(ROWS);
+        for (int column = 0; column < COLUMNS; column++) {
+            byteBuffer.putInt(column == 0 ? AVERAGE_LENGTH : 1);
+        }
+        for (int column = 0; column < COLUMNS; column++) {
+            byteBuffer.putInt(column == 0 ? length : 1);
+        }
+        for (int[] phrase : phrases) {
+            for (int column = 0; column < COLUMNS; column++) {
+                byteBuffer.putInt(column == 0 ? phrase[0] : 0);
+                byteBuffer.putInt(column == 0 ? phrase[0] * phrase[1] : 0);
+                byteBuffer.putInt(column == 0 ? phrase[1] : 0);
+            }
+        }
+
+        return ChatMessageSearchIndex.getScore(byteBuffer.array());
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc;
+
+import com.bluelinelabs.logansquare.LoganSquare;
+import com.nextcloud.talk.models.json.signaling.NCMessagePayload;
+import com.nextcloud.talk.models.json.signaling.NCSignalingMessage;
+import com.nextcloud.talk.models.json.signaling.Signaling;
+import com.nextcloud.talk.models.json.websocket.WebSocketOverall;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/*
+    Runs the transport against a MockWebServer standing in for the external signaling server, which
+    answers the hello, room and message requests the way the real one does.
+ */
+public class WebSocketSignalingTransportTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final String AUTH_URL = "https://cloud.example.com/ocs/v2.php/apps/spreed/api/v1/signaling/backend";
+
+    private final BlockingQueue<Signaling> receivedSignalings = new LinkedBlockingQueue<>();
+    private final BlockingQueue<SignalingTransport> failedTransports = new LinkedBlockingQueue<>();
+    private final SignalingTransport.Listener listener = new SignalingTransport.Listener() {
+        @Override
+        public void onSignalingMessage(Signaling signaling) {
+            receivedSignalings.add(signaling);
+        }
+
+        @Override
+        public void onSignalingTransportFailed(SignalingTransport signalingTransport) {
+            failedTransports.add(signalingTransport);
+        }
+    };
+
+    private MockWebServer mockWebServer;
+    private WebSocketSignalingTransport webSocketSignalingTransport;
+
+    @BeforeClass
+    public static void setUpSchedulers() {
+        // the listener is called on the main thread, there is none on the JVM
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        webSocketSignalingTransport = new WebSocketSignalingTransport(new OkHttpClient(),
+                mockWebServer.url("/spreed").toString(), AUTH_URL, "alice", "ticket", "room-token", "call-session",
+                listener, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        webSocketSignalingTransport.stop();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void helloAndRoomJoin() throws Exception {
+        ServerSocket serverSocket = enqueueServerSocket();
+        // sent before the room is joined, has to wait for it
+        webSocketSignalingTransport.send(getSignalingMessage("offer"));
+        webSocketSignalingTransport.connect();
+
+        WebSocketOverall hello = serverSocket.takeRequest("hello");
+        assertEquals("1.0", hello.getHelloWebSocketMessage().getVersion());
+        assertNull(hello.getHelloWebSocketMessage().getResumeId());
+        assertEquals(AUTH_URL, hello.getHelloWebSocketMessage().getAuthWebSocketMessage().getUrl());
+        assertEquals("alice", hello.getHelloWebSocketMessage().getAuthWebSocketMessage()
+                .getAuthParametersWebSocketMessage().getUserid());
+        assertEquals("ticket", hello.getHelloWebSocketMessage().getAuthWebSocketMessage()
+                .getAuthParametersWebSocketMessage().getTicket());
+        serverSocket.replyHello(hello, "session-1", "resume-1");
+
+        WebSocketOverall room = serverSocket.takeRequest("room");
+        assertEquals("room-token", room.getRoomWebSocketMessage().getRoomId());
+        assertEquals("call-session", room.getRoomWebSocketMessage().getSessionId());
+        serverSocket.replyRoom(room);
+
+        WebSocketOverall message = serverSocket.takeRequest("message");
+        assertEquals("session", message.getCallWebSocketMessage().getRecipientWebSocketMessage().getType());
+        assertEquals("peer-session", message.getCallWebSocketMessage().getRecipientWebSocketMessage()
+                .getSessionId());
+        assertEquals("offer", message.getCallWebSocketMessage().getNcSignalingMessage().getType());
+        assertEquals("v=0", message.getCallWebSocketMessage().getNcSignalingMessage().getPayload().getSdp());
+
+        serverSocket.send("{\"type\":\"message\",\"message\":{\"sender\":{\"type\":\"session\"," +
+                "\"sessionid\":\"peer-session\"},\"data\":{\"to\":\"session-1\",\"type\":\"answer\"," +
+                "\"roomType\":\"video\",\"payload\":{\"type\":\"answer\",\"sdp\":\"v=0\"}}}}");
+
+        Signaling signaling = receivedSignalings.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(signaling);
+        assertEquals("message", signaling.getType());
+        assertEquals("answer", signaling.getNcSignalingMessage().getType());
+        assertEquals("peer-session", signaling.getNcSignalingMessage().getFrom());
+
+        assertEquals("session-1", webSocketSignalingTransport.getSessionId());
+        assertEquals(0, webSocketSignalingTransport.getMetrics().getReconnectsCount());
+        assertEquals(1, webSocketSignalingTransport.getMetrics().getSentMessagesCount());
+        assertEquals(1, webSocketSignalingTransport.getMetrics().getReceivedMessagesCount());
+        // hello and room join, messages aren't answered
+        assertTrue(webSocketSignalingTransport.getMetrics().getAverageRequestRoundTripTimeMs() >= 0);
+        assertTrue(failedTransports.isEmpty());
+    }
+
+    @Test
+    public void droppedConnectionIsResumed() throws Exception {
+        ServerSocket serverSocket = joinRoom();
+        ServerSocket resumedServerSocket = enqueueServerSocket();
+        serverSocket.drop();
+        awaitReconnect();
+
+        // sent while the connection is down, has to go out once it is resumed
+        webSocketSignalingTransport.send(getSignalingMessage("candidate"));
+
+        WebSocketOverall hello = resumedServerSocket.takeRequest("hello");
+        assertEquals("resume-1", hello.getHelloWebSocketMessage().getResumeId());
+        assertNull(hello.getHelloWebSocketMessage().getAuthWebSocketMessage());
+        resumedServerSocket.replyHello(hello, "session-1", "resume-1");
+
+        // the session is still in the room, no join before the message
+        WebSocketOverall message = resumedServerSocket.takeRequest("message");
+        assertEquals("candidate", message.getCallWebSocketMessage().getNcSignalingMessage().getType());
+
+        assertEquals("session-1", webSocketSignalingTransport.getSessionId());
+        assertEquals(1, webSocketSignalingTransport.getMetrics().getReconnectsCount());
+        assertTrue(failedTransports.isEmpty());
+    }
+
+    @Test
+    public void expiredSessionIsJoinedAgain() throws Exception {
+        ServerSocket serverSocket = joinRoom();
+        ServerSocket resumedServerSocket = enqueueServerSocket();
+        serverSocket.drop();
+        awaitReconnect();
+        webSocketSignalingTransport.send(getSignalingMessage("candidate"));
+
+        WebSocketOverall resumeHello = resumedServerSocket.takeRequest("hello");
+        assertEquals("resume-1", resumeHello.getHelloWebSocketMessage().getResumeId());
+        resumedServerSocket.replyError(resumeHello, "no_such_session");
+
+        // a fresh hello with the ticket and a new room join under the new session
+        WebSocketOverall hello = resumedServerSocket.takeRequest("hello");
+        assertNull(hello.getHelloWebSocketMessage().getResumeId());
+        assertEquals("ticket", hello.getHelloWebSocketMessage().getAuthWebSocketMessage()
+                .getAuthParametersWebSocketMessage().getTicket());
+        resumedServerSocket.replyHello(hello, "session-2", "resume-2");
+
+        WebSocketOverall room = resumedServerSocket.takeRequest("room");
+        assertEquals("room-token", room.getRoomWebSocketMessage().getRoomId());
+        resumedServerSocket.replyRoom(room);
+
+        WebSocketOverall message = resumedServerSocket.takeRequest("message");
+        assertEquals("candidate", message.getCallWebSocketMessage().getNcSignalingMessage().getType());
+
+        assertEquals("session-2", webSocketSignalingTransport.getSessionId());
+        assertTrue(failedTransports.isEmpty());
+    }
+
+    @Test
+    public void rejectedHelloFails() throws Exception {
+        ServerSocket serverSocket = enqueueServerSocket();
+        webSocketSignalingTransport.connect();
+
+        serverSocket.replyError(serverSocket.takeRequest("hello"), "invalid_token");
+
+        assertSame(webSocketSignalingTransport, failedTransports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(webSocketSignalingTransport.getSessionId());
+    }
+
+    @Test
+    public void unreachableServerFails() throws Exception {
+        mockWebServer.shutdown();
+        webSocketSignalingTransport.connect();
+
+        assertSame(webSocketSignalingTransport, failedTransports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(webSocketSignalingTransport.getSessionId());
+        assertEquals(0, webSocketSignalingTransport.getMetrics().getReconnectsCount());
+    }
+
+    @Test
+    public void rejectedHelloAfterJoinFails() throws Exception {
+        ServerSocket serverSocket = joinRoom();
+        ServerSocket resumedServerSocket = enqueueServerSocket();
+        serverSocket.drop();
+        awaitReconnect();
+
+        resumedServerSocket.replyError(resumedServerSocket.takeRequest("hello"), "no_such_session");
+        resumedServerSocket.replyError(resumedServerSocket.takeRequest("hello"), "invalid_token");
+
+        // the session is gone and the ticket no longer valid, there is nothing left to try
+        assertSame(webSocketSignalingTransport, failedTransports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private ServerSocket joinRoom() throws Exception {
+        ServerSocket serverSocket = enqueueServerSocket();
+        webSocketSignalingTransport.connect();
+        serverSocket.replyHello(serverSocket.takeRequest("hello"), "session-1", "resume-1");
+        serverSocket.replyRoom(serverSocket.takeRequest("room"));
+
+        // messages are held back until the room is joined
+        webSocketSignalingTransport.send(getSignalingMessage("offer"));
+        serverSocket.takeRequest("message");
+
+        return serverSocket;
+    }
+
+    private void awaitReconnect() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (webSocketSignalingTransport.getMetrics().getReconnectsCount() == 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private ServerSocket enqueueServerSocket() {
+        ServerSocket serverSocket = new ServerSocket();
+        mockWebServer.enqueue(new MockResponse().withWebSocketUpgrade(serverSocket));
+        return serverSocket;
+    }
+
+    private static NCSignalingMessage getSignalingMessage(String type) {
+        NCSignalingMessage ncSignalingMessage = new NCSignalingMessage();
+        ncSignalingMessage.setTo("peer-session");
+        ncSignalingMessage.setType(type);
+        ncSignalingMessage.setRoomType("video");
+        ncSignalingMessage.setPayload(new NCMessagePayload());
+        ncSignalingMessage.getPayload().setType(type);
+        ncSignalingMessage.getPayload().setSdp("v=0");
+        return ncSignalingMessage;
+    }
+
+    // the server end of one connection
+    private static class ServerSocket extends WebSocketListener {
+        private final CountDownLatch openLatch = new CountDownLatch(1);
+        private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+        private volatile WebSocket webSocket;
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            this.webSocket = webSocket;
+            openLatch.countDown();
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            requests.add(text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+
+        WebSocketOverall takeRequest(String type) throws Exception {
+            String request = requests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("no " + type + " request", request);
+
+            WebSocketOverall webSocketOverall = LoganSquare.parse(request, WebSocketOverall.class);
+            assertEquals(request, type, webSocketOverall.getType());
+            if (!"message".equals(type)) {
+                assertNotNull(webSocketOverall.getId());
+            }
+            return webSocketOverall;
+        }
+
+        void replyHello(WebSocketOverall hello, String sessionId, String resumeId) throws InterruptedException {
+            send("{\"id\":\"" + hello.getId() + "\",\"type\":\"hello\",\"hello\":{\"version\":\"1.0\"," +
+                    "\"sessionid\":\"" + sessionId + "\",\"resumeid\":\"" + resumeId + "\"}}");
+        }
+
+        void replyRoom(WebSocketOverall room) throws InterruptedException {
+            send("{\"id\":\"" + room.getId() + "\",\"type\":\"room\",\"room\":{\"roomid\":\"" +
+                    room.getRoomWebSocketMessage().getRoomId() + "\"}}");
+        }
+
+        void replyError(WebSocketOverall request, String code) throws InterruptedException {
+            send("{\"id\":\"" + request.getId() + "\",\"type\":\"error\",\"error\":{\"code\":\"" + code + "\"," +
+                    "\"message\":\"" + code + "\"}}");
+        }
+
+        void send(String message) throws InterruptedException {
+            assertTrue(openLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(webSocket.send(message));
+        }
+
+        void drop() throws InterruptedException {
+            assertTrue(openLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            webSocket.close(1001, "going away");
+        }
+    }
+}
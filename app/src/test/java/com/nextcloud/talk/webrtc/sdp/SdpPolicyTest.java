@@ -0,0 +1,221 @@
+/*
+ * Nextcloud Talk application
+ *
+ * @author Mario Danic
+ * Copyright (C) 2017-2018 Mario Danic <mario@lovelyhq.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.talk.webrtc.sdp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+    The descriptions in resources/sdp follow what Chrome 67, Firefox 61 and the WebRTC library bundled
+    with the app put on the wire, CRLF line endings included.
+ */
+public class SdpPolicyTest {
+    private static final List<String> DESCRIPTIONS = Arrays.asList("chrome_offer", "chrome_answer",
+            "firefox_offer", "firefox_answer", "android_offer", "android_answer");
+
+    @Test
+    public void parseAndToStringRoundTrip() throws IOException {
+        for (String name : DESCRIPTIONS) {
+            String sessionDescription = readDescription(name);
+            assertEquals(name, sessionDescription, SdpSession.parse(sessionDescription).toString());
+        }
+    }
+
+    @Test
+    public void emptyPolicyLeavesDescriptionsUntouched() throws IOException {
+        for (String name : DESCRIPTIONS) {
+            String sessionDescription = readDescription(name);
+            assertEquals(name, sessionDescription, new SdpPolicy().apply(sessionDescription));
+        }
+    }
+
+    @Test
+    public void defaultPolicyLeavesLibWebRtcOfferUntouched() throws IOException {
+        // VP8 first and in-band FEC on is what the bundled library offers anyway
+        String sessionDescription = readDescription("android_offer");
+        assertEquals(sessionDescription, SdpPolicy.getDefault().apply(sessionDescription));
+    }
+
+    @Test
+    public void preferCodecsKeepsRetransmissionNextToItsCodec() throws IOException {
+        SdpSession sdpSession = SdpSession.parse(readDescription("chrome_offer"));
+        new SdpPolicy()
+                .setVideoCodecOrder(Arrays.asList(SdpPolicy.CODEC_H264, SdpPolicy.CODEC_VP9, SdpPolicy.CODEC_VP8))
+                .apply(sdpSession);
+
+        // every H264 profile in rtpmap order, each followed by its rtx, 123 has none
+        assertEquals("m=video 9 UDP/TLS/RTP/SAVPF 100 101 102 122 127 121 125 107 123 98 99 96 97 108 109 124 120",
+                getMediaLine(sdpSession, "video"));
+        assertEquals("m=audio 9 UDP/TLS/RTP/SAVPF 111 103 104 9 0 8 106 105 13 110 112 113 126",
+                getMediaLine(sdpSession, "audio"));
+    }
+
+    @Test
+    public void preferCodecsWithoutRetransmission() throws IOException {
+        SdpSession sdpSession = SdpSession.parse(readDescription("firefox_offer"));
+        new SdpPolicy().setVideoCodecOrder(Collections.singletonList(SdpPolicy.CODEC_H264)).apply(sdpSession);
+
+        assertEquals("m=video 9 UDP/TLS/RTP/SAVPF 126 97 120 121", getMediaLine(sdpSession, "video"));
+    }
+
+    @Test
+    public void preferCodecsIgnoresCodecsNotOffered() throws IOException {
+        SdpSession sdpSession = SdpSession.parse(readDescription("chrome_answer"));
+        new SdpPolicy().setVideoCodecOrder(Arrays.asList(SdpPolicy.CODEC_H264, SdpPolicy.CODEC_VP9))
+                .apply(sdpSession);
+
+        assertEquals("m=video 9 UDP/TLS/RTP/SAVPF 98 99 96 97 100 101 102", getMediaLine(sdpSession, "video"));
+    }
+
+    @Test
+    public void bandwidthGoesAfterConnectionLine() throws IOException {
+        SdpPolicy sdpPolicy = new SdpPolicy().setMaxVideoBitrateKbps(500L);
+        SdpSession sdpSession = SdpSession.parse(readDescription("chrome_offer"));
+        sdpPolicy.apply(sdpSession);
+
+        List<String> videoLines = getMediaSection(sdpSession, "video").getLines();
+        assertEquals("c=IN IP4 0.0.0.0", videoLines.get(0));
+        assertEquals("b=AS:500", videoLines.get(1));
+        assertEquals("b=TIAS:500000", videoLines.get(2));
+        assertEquals("a=rtcp:9 IN IP4 0.0.0.0", videoLines.get(3));
+
+        // applying it again must not add a second pair
+        String once = sdpSession.toString();
+        assertEquals(once, sdpPolicy.apply(once));
+
+        SdpMediaSection audio = getMediaSection(sdpSession, "audio");
+        for (String line : audio.getLines()) {
+            assertTrue(line, !line.startsWith("b="));
+        }
+    }
+
+    @Test
+    public void bandwidthReplacesExistingLines() throws IOException {
+        String sessionDescription = readDescription("firefox_answer")
+                .replace("m=video 9 UDP/TLS/RTP/SAVPF 96 98 100\r\nc=IN IP4 0.0.0.0\r\n",
+                        "m=video 9 UDP/TLS/RTP/SAVPF 96 98 100\r\nc=IN IP4 0.0.0.0\r\nb=AS:2000\r\n");
+        SdpSession sdpSession = SdpSession.parse(new SdpPolicy().setMaxVideoBitrateKbps(300L)
+                .apply(sessionDescription));
+
+        SdpMediaSection video = getMediaSection(sdpSession, "video");
+        assertEquals(Long.valueOf(300), video.getBandwidth("AS"));
+        assertEquals(Long.valueOf(300000), video.getBandwidth("TIAS"));
+        assertEquals(Arrays.asList("c=IN IP4 0.0.0.0", "b=AS:300", "b=TIAS:300000", "a=sendrecv"),
+                video.getLines().subList(0, 4));
+    }
+
+    @Test
+    public void opusParametersAreRewrittenInPlace() throws IOException {
+        SdpSession sdpSession = SdpSession.parse(readDescription("chrome_offer"));
+        new SdpPolicy().setOpusDtx(true).setOpusInbandFec(false).setOpusMaxAverageBitrate(40000).apply(sdpSession);
+
+        List<String> audioLines = getMediaSection(sdpSession, "audio").getLines();
+        int rtpMap = audioLines.indexOf("a=rtpmap:111 opus/48000/2");
+        assertEquals("a=rtcp-fb:111 transport-cc", audioLines.get(rtpMap + 1));
+        assertEquals("a=fmtp:111 minptime=10;useinbandfec=0;usedtx=1;maxaveragebitrate=40000",
+                audioLines.get(rtpMap + 2));
+    }
+
+    @Test
+    public void opusParametersLeaveOtherFormatsAlone() throws IOException {
+        String sessionDescription = readDescription("firefox_offer");
+        String rewritten = new SdpPolicy().setOpusDtx(true).apply(sessionDescription);
+
+        assertEquals(sessionDescription.replace("a=fmtp:109 maxplaybackrate=48000;stereo=1;useinbandfec=1\r\n",
+                "a=fmtp:109 maxplaybackrate=48000;stereo=1;useinbandfec=1;usedtx=1\r\n"), rewritten);
+        assertTrue(rewritten.contains("\r\na=fmtp:101 0-15\r\n"));
+    }
+
+    @Test
+    public void opusParametersAreAddedAfterRtpMap() throws IOException {
+        String sessionDescription = readDescription("android_answer")
+                .replace("a=fmtp:109 minptime=10;useinbandfec=1\r\n", "");
+        SdpSession sdpSession = SdpSession.parse(new SdpPolicy().setOpusInbandFec(true).apply(sessionDescription));
+
+        List<String> audioLines = getMediaSection(sdpSession, "audio").getLines();
+        int rtpMap = audioLines.indexOf("a=rtpmap:109 opus/48000/2");
+        assertEquals("a=fmtp:109 useinbandfec=1", audioLines.get(rtpMap + 1));
+        assertEquals("a=rtpmap:9 G722/8000", audioLines.get(rtpMap + 2));
+    }
+
+    @Test
+    public void ptimeIsReplaced() throws IOException {
+        String sessionDescription = readDescription("chrome_answer")
+                .replace("a=fmtp:111 minptime=10;useinbandfec=1\r\n",
+                        "a=fmtp:111 minptime=10;useinbandfec=1\r\na=ptime:20\r\na=maxptime:120\r\n");
+        String rewritten = new SdpPolicy().setOpusPtime(60).apply(sessionDescription);
+
+        assertEquals(sessionDescription.replace("\r\na=ptime:20\r\n", "\r\na=ptime:60\r\n"), rewritten);
+    }
+
+    @Test
+    public void ptimeIsAppendedToTheAudioSection() throws IOException {
+        SdpSession sdpSession = SdpSession.parse(new SdpPolicy().setOpusPtime(40)
+                .apply(readDescription("firefox_answer")));
+
+        List<String> audioLines = getMediaSection(sdpSession, "audio").getLines();
+        assertEquals("a=ptime:40", audioLines.get(audioLines.size() - 1));
+        assertEquals(1, Collections.frequency(audioLines, "a=ptime:40"));
+        assertTrue(!getMediaSection(sdpSession, "video").getLines().contains("a=ptime:40"));
+    }
+
+    private static SdpMediaSection getMediaSection(SdpSession sdpSession, String media) {
+        List<SdpMediaSection> mediaSections = sdpSession.getMediaSections(media);
+        assertEquals(1, mediaSections.size());
+        return mediaSections.get(0);
+    }
+
+    private static String getMediaLine(SdpSession sdpSession, String media) {
+        StringBuilder stringBuilder = new StringBuilder();
+        getMediaSection(sdpSession, media).appendTo(stringBuilder);
+        return stringBuilder.substring(0, stringBuilder.indexOf(SdpSession.LINE_SEPARATOR));
+    }
+
+    // the files are checked in with LF endings, on the wire it's CRLF
+    private String readDescription(String name) throws IOException {
+        InputStream inputStream = getClass().getResourceAsStream("/sdp/" + name + ".sdp");
+        assertNotNull(name, inputStream);
+
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8).replace("\n", "\r\n");
+        } finally {
+            inputStream.close();
+        }
+    }
+}